@@ -0,0 +1,67 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replays the Wikipedia pages in src/resources against Index: indexing
+ * all of them, and looking up terms drawn with their real frequencies,
+ * so common terms like "the" are looked up most often.
+ *
+ * JedisIndex needs a Redis server, so it isn't benchmarked here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IndexReplayBenchmark {
+
+	private static final int QUERIES = 10000;
+
+	private TermWorkload workload;
+	private Index index;
+	private String[] queries;
+
+	@Setup
+	public void setUp() throws IOException {
+		workload = TermWorkload.fromResources();
+		index = indexAll();
+		queries = workload.sample(QUERIES, 17);
+	}
+
+	private Index indexAll() {
+		Index index = new Index();
+		for (Map.Entry<String, Elements> entry: workload.pages().entrySet()) {
+			index.indexPage(entry.getKey(), entry.getValue());
+		}
+		return index;
+	}
+
+	@Benchmark
+	public Index indexPages() {
+		return indexAll();
+	}
+
+	@Benchmark
+	public void lookup(Blackhole blackhole) {
+		for (String term: queries) {
+			blackhole.consume(index.get(term));
+		}
+	}
+}
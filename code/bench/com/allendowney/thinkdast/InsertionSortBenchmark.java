@@ -0,0 +1,60 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks ListSorter.insertionSort, the same way SortBenchmark does
+ * the other sorts.
+ *
+ * It is quadratic, so it only runs on the smallest lists SortBenchmark
+ * uses; its scores can be compared with SortBenchmark's at the same n.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InsertionSortBenchmark {
+
+	@Param({"1000"})
+	public int n;
+
+	@Param({"UNIFORM", "SEQUENTIAL", "ZIPF"})
+	public KeyDistribution distribution;
+
+	private final ListSorter<Integer> sorter = new ListSorter<Integer>();
+	private final Comparator<Integer> comparator = Comparator.naturalOrder();
+	private List<Integer> unsorted;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		unsorted = new ArrayList<Integer>();
+		for (int key: distribution.keys(n, 17)) {
+			unsorted.add(key);
+		}
+	}
+
+	@Benchmark
+	public List<Integer> insertionSort() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.insertionSort(list, comparator);
+		return list;
+	}
+}
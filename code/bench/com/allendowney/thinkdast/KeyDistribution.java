@@ -0,0 +1,54 @@
+package com.allendowney.thinkdast;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Ways to choose the keys a benchmark uses.
+ *
+ * UNIFORM keys are spread evenly over [0, n), SEQUENTIAL keys are 0, 1,
+ * 2, ..., and ZIPF keys follow Zipf's law with exponent 1, the way words
+ * in a text do: key k comes up about 1/(k+1) times as often as key 0.
+ */
+public enum KeyDistribution {
+	UNIFORM, SEQUENTIAL, ZIPF;
+
+	/**
+	 * Returns `n` keys from this distribution, the same for the same seed.
+	 *
+	 * @param n
+	 * @param seed
+	 * @return
+	 */
+	public int[] keys(int n, long seed) {
+		Random random = new Random(seed);
+		int[] keys = new int[n];
+		switch (this) {
+		case SEQUENTIAL:
+			for (int i = 0; i < n; i++) {
+				keys[i] = i;
+			}
+			break;
+		case UNIFORM:
+			for (int i = 0; i < n; i++) {
+				keys[i] = random.nextInt(n);
+			}
+			break;
+		case ZIPF:
+			// cdf[k] is the probability of a key <= k
+			double[] cdf = new double[n];
+			double total = 0;
+			for (int k = 0; k < n; k++) {
+				total += 1.0 / (k + 1);
+				cdf[k] = total;
+			}
+			for (int i = 0; i < n; i++) {
+				double x = random.nextDouble() * total;
+				int k = Arrays.binarySearch(cdf, x);
+				keys[i] = Math.min(k < 0 ? -k - 1 : k, n - 1);
+			}
+			break;
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,89 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks MyArrayList and MyLinkedList against java.util.ArrayList.
+ *
+ * Each benchmark does n operations, so the score divided by n is the
+ * cost of one operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ListBenchmark {
+
+	@Param({"MyArrayList", "MyLinkedList", "ArrayList"})
+	public String implementation;
+
+	@Param({"1000", "10000"})
+	public int n;
+
+	@Param({"UNIFORM", "SEQUENTIAL"})
+	public KeyDistribution distribution;
+
+	private List<Integer> list;
+	private int[] indexes;
+
+	@Setup
+	public void setUp() {
+		list = makeList(implementation);
+		for (int i = 0; i < n; i++) {
+			list.add(i);
+		}
+		indexes = distribution.keys(n, 17);
+	}
+
+	static List<Integer> makeList(String implementation) {
+		if (implementation.equals("MyArrayList")) {
+			return new MyArrayList<Integer>();
+		}
+		if (implementation.equals("MyLinkedList")) {
+			return new MyLinkedList<Integer>();
+		}
+		return new ArrayList<Integer>();
+	}
+
+	@Benchmark
+	public List<Integer> addEnd() {
+		List<Integer> fresh = makeList(implementation);
+		for (int i = 0; i < n; i++) {
+			fresh.add(i);
+		}
+		return fresh;
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (int index: indexes) {
+			blackhole.consume(list.get(index));
+		}
+	}
+
+	@Benchmark
+	public long iterate() {
+		long total = 0;
+		for (Integer x: list) {
+			total += x;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,87 @@
+package com.allendowney.thinkdast;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks MyHashMap, MyFixedHashMap and MyTreeMap against java.util.HashMap.
+ *
+ * The keys are Strings, like the terms in TermCounter, drawn from one of
+ * the KeyDistributions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MapBenchmark {
+
+	@Param({"MyHashMap", "MyFixedHashMap", "MyTreeMap", "HashMap"})
+	public String implementation;
+
+	@Param({"1000", "10000"})
+	public int n;
+
+	@Param({"UNIFORM", "SEQUENTIAL", "ZIPF"})
+	public KeyDistribution distribution;
+
+	private String[] keys;
+	private Map<String, Integer> map;
+
+	@Setup
+	public void setUp() {
+		int[] ints = distribution.keys(n, 17);
+		keys = new String[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = "key" + ints[i];
+		}
+		map = makeMap(implementation);
+		for (String key: keys) {
+			map.put(key, 1);
+		}
+	}
+
+	static Map<String, Integer> makeMap(String implementation) {
+		if (implementation.equals("MyHashMap")) {
+			return new MyHashMap<String, Integer>();
+		}
+		if (implementation.equals("MyFixedHashMap")) {
+			return new MyFixedHashMap<String, Integer>();
+		}
+		if (implementation.equals("MyTreeMap")) {
+			return new MyTreeMap<String, Integer>();
+		}
+		return new HashMap<String, Integer>();
+	}
+
+	@Benchmark
+	public Map<String, Integer> put() {
+		Map<String, Integer> fresh = makeMap(implementation);
+		for (String key: keys) {
+			fresh.put(key, 1);
+		}
+		return fresh;
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (String key: keys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+}
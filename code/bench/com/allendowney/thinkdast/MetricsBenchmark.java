@@ -0,0 +1,62 @@
+package com.allendowney.thinkdast;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what recording a metric costs the code that records it,
+ * with one thread and with four threads sharing the same metrics.
+ *
+ * Timing a histogram calls System.nanoTime, which costs from about 20 ns
+ * to a few hundred, depending on the clock the OS gives the JVM; the
+ * nanoTime benchmark measures that part alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MetricsBenchmark {
+
+	private final MetricsRegistry.Counter counter = new MetricsRegistry().counter("counter");
+	private final MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("histogram");
+
+	// what histogram costs without the histogram
+	@Benchmark
+	public long nanoTime() {
+		return System.nanoTime() - 1000;
+	}
+
+	@Benchmark
+	public void counter() {
+		counter.increment();
+	}
+
+	@Benchmark
+	public void histogram() {
+		histogram.recordSince(System.nanoTime() - 1000);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void counterShared() {
+		counter.increment();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void histogramShared() {
+		histogram.recordSince(System.nanoTime() - 1000);
+	}
+}
@@ -0,0 +1,96 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the sorts in ListSorter.
+ *
+ * Every invocation sorts a fresh copy of the same unsorted list; making
+ * the copy is part of the score, but it is the same for every sort.
+ * Insertion sort is quadratic, so it has its own benchmark,
+ * InsertionSortBenchmark, that only runs on the small lists.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SortBenchmark {
+
+	@Param({"1000", "100000"})
+	public int n;
+
+	@Param({"UNIFORM", "SEQUENTIAL", "ZIPF"})
+	public KeyDistribution distribution;
+
+	private final ListSorter<Integer> sorter = new ListSorter<Integer>();
+	private final Comparator<Integer> comparator = Comparator.naturalOrder();
+	private List<Integer> unsorted;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		unsorted = new ArrayList<Integer>();
+		for (int key: distribution.keys(n, 17)) {
+			unsorted.add(key);
+		}
+	}
+
+	@Benchmark
+	public List<Integer> mergeSortInPlace() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.mergeSortInPlace(list, comparator);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> timSort() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.timSort(list, comparator);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> heapSort() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.heapSort(list, comparator);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> radixSort() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.radixSort(list, Integer::intValue);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> parallelMergeSort() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.parallelMergeSortInPlace(list, comparator);
+		return list;
+	}
+
+	@Benchmark
+	public List<Integer> partialSortTop10() {
+		List<Integer> list = new ArrayList<Integer>(unsorted);
+		sorter.partialSort(list, 10, comparator);
+		return list;
+	}
+}
@@ -0,0 +1,47 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks TermCounter on the Wikipedia pages saved in src/resources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TermCounterBenchmark {
+
+	@Param({"Java_(programming_language)", "Philosophy", "Computer_science"})
+	public String page;
+
+	private Elements paragraphs;
+
+	@Setup
+	public void setUp() throws IOException {
+		WikiFetcher fetcher = new WikiFetcher();
+		paragraphs = fetcher.readWikipedia("https://en.wikipedia.org/wiki/" + page);
+	}
+
+	@Benchmark
+	public TermCounter processElements() {
+		TermCounter counter = new TermCounter(page);
+		counter.processElements(paragraphs);
+		return counter;
+	}
+}
@@ -0,0 +1,74 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replays the terms from the Wikipedia pages in src/resources against
+ * each map implementation.
+ *
+ * STREAM is the terms in the order they appear in the pages; SAMPLE is
+ * the same number of terms drawn at random with the same frequencies,
+ * which loses the locality of real text.  See TermWorkload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TermReplayBenchmark {
+
+	@Param({"MyHashMap", "MyFixedHashMap", "MyTreeMap", "HashMap"})
+	public String implementation;
+
+	@Param({"STREAM", "SAMPLE"})
+	public String order;
+
+	private String[] terms;
+	private Map<String, Integer> map;
+
+	@Setup
+	public void setUp() throws IOException {
+		TermWorkload workload = TermWorkload.fromResources();
+		terms = order.equals("STREAM") ? workload.stream() : workload.sample(workload.stream().length, 17);
+		map = count(MapBenchmark.makeMap(implementation), terms);
+	}
+
+	/**
+	 * Counts the terms the way TermCounter does.
+	 */
+	static Map<String, Integer> count(Map<String, Integer> map, String[] terms) {
+		for (String term: terms) {
+			Integer count = map.get(term);
+			map.put(term, count == null ? 1 : count + 1);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public Map<String, Integer> count() {
+		return count(MapBenchmark.makeMap(implementation), terms);
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (String term: terms) {
+			blackhole.consume(map.get(term));
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.allendowney.thinkdast;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Counts the bytes the current thread allocates, and the garbage
+ * collections the JVM runs.
+ *
+ * Allocation counts come from HotSpot's com.sun.management.ThreadMXBean,
+ * which keeps a running total of the bytes each thread has allocated on
+ * the heap.  The difference between two readings is what the code in
+ * between allocated, including objects that died right away, which is
+ * exactly the garbage a rewrite to avoid boxing or node allocation should
+ * get rid of.  On JVMs without the counter, isSupported returns false and
+ * allocatedBytes returns -1.
+ *
+ * GC counts and times are totals over all collectors and all threads,
+ * so a collection that happens during a measurement was not necessarily
+ * caused by it.
+ *
+ */
+public class AllocationMeter {
+
+	private final com.sun.management.ThreadMXBean threadBean;
+	private final List<GarbageCollectorMXBean> gcBeans;
+
+	// bytes that reading the counter allocates, subtracted from each difference
+	private final long overhead;
+
+	public AllocationMeter() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+				threadBean.setThreadAllocatedMemoryEnabled(true);
+			}
+		} else {
+			threadBean = null;
+		}
+		gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+		overhead = threadBean == null ? 0 : measureOverhead();
+	}
+
+	/**
+	 * Reads the counter a few times with nothing in between, and returns
+	 * the smallest difference.
+	 */
+	private long measureOverhead() {
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			long before = threadBean.getCurrentThreadAllocatedBytes();
+			long after = threadBean.getCurrentThreadAllocatedBytes();
+			min = Math.min(min, after - before);
+		}
+		return min;
+	}
+
+	/**
+	 * Returns true if this JVM can count allocated bytes.
+	 *
+	 * @return
+	 */
+	public boolean isSupported() {
+		return threadBean != null;
+	}
+
+	/**
+	 * Returns the total bytes the current thread has allocated, or -1 if
+	 * the JVM doesn't count them.
+	 *
+	 * @return
+	 */
+	public long allocatedBytes() {
+		if (threadBean == null) {
+			return -1;
+		}
+		return threadBean.getCurrentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Returns the bytes allocated since an earlier reading of allocatedBytes,
+	 * not counting the readings themselves, or -1 if the JVM doesn't count them.
+	 *
+	 * @param before
+	 * @return
+	 */
+	public long allocatedSince(long before) {
+		if (threadBean == null || before < 0) {
+			return -1;
+		}
+		return Math.max(0, threadBean.getCurrentThreadAllocatedBytes() - before - overhead);
+	}
+
+	/**
+	 * Returns the number of collections so far, over all collectors.
+	 *
+	 * @return
+	 */
+	public long gcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean: gcBeans) {
+			total += Math.max(0, bean.getCollectionCount());
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the time spent in collections so far, in milliseconds, over
+	 * all collectors.
+	 *
+	 * @return
+	 */
+	public long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean: gcBeans) {
+			total += Math.max(0, bean.getCollectionTime());
+		}
+		return total;
+	}
+}
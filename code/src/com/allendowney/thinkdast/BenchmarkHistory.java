@@ -0,0 +1,526 @@
+package com.allendowney.thinkdast;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Keeps benchmark results from run to run, so we can see whether a change
+ * made anything faster or slower.
+ *
+ * Each run is one Properties file in the history directory, named by
+ * time, git revision and JVM, and files are never changed once they are
+ * written.  A run holds metrics in operations per second, so bigger is
+ * always better, from JMH (importJmhCsv) or from Profiler
+ * (addProfileResult).
+ *
+ * trend() shows each metric over the most recent runs on each JVM and
+ * flags step changes: runs where a metric differs from the median of
+ * the few runs before it by more than a threshold.  A run right after
+ * a flagged one is never flagged, so a step is reported once, whether
+ * it lasts or things go back to normal.
+ *
+ * Usage:
+ *   BenchmarkHistory import-jmh results.csv [history directory]
+ *   BenchmarkHistory trend [filter] [history directory]
+ *
+ */
+public class BenchmarkHistory {
+
+	public static final String DEFAULT_DIRECTORY = "bench-history";
+
+	// metrics from Profiler are throughput at this n, from the fitted curve
+	public static final int REFERENCE_N = 10000;
+
+	// a step is a change of more than this fraction ...
+	static final double STEP_THRESHOLD = 0.1;
+	// ... compared with the median of up to this many earlier runs
+	static final int STEP_WINDOW = 3;
+
+	private static final String METRIC = "metric.";
+
+	/**
+	 * The results of one benchmark run, and where and when it ran.
+	 */
+	public static class Run {
+		private final long timestamp;
+		private final String revision;
+		private final String jvm;
+		private final Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+
+		public Run(long timestamp, String revision, String jvm) {
+			this.timestamp = timestamp;
+			this.revision = revision;
+			this.jvm = jvm;
+		}
+
+		/**
+		 * Makes a Run for now, on this JVM, at the current git revision.
+		 *
+		 * @return
+		 */
+		public static Run current() {
+			return new Run(System.currentTimeMillis(), gitRevision(),
+					System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public String getRevision() {
+			return revision;
+		}
+
+		public String getJvm() {
+			return jvm;
+		}
+
+		public Map<String, Double> getMetrics() {
+			return Collections.unmodifiableMap(metrics);
+		}
+
+		/**
+		 * Adds a metric, in operations per second.
+		 *
+		 * @param name
+		 * @param opsPerSecond
+		 */
+		public void put(String name, double opsPerSecond) {
+			metrics.put(name, opsPerSecond);
+		}
+
+		/**
+		 * Adds the throughput of a Profiler result at REFERENCE_N, from a
+		 * line fitted to the points that take at least 0.1 ms.
+		 *
+		 * @param name
+		 * @param result
+		 * @return whether there were enough points to fit
+		 */
+		public boolean addProfileResult(String name, ProfileResult result) {
+			Profiler.Fit fit = ProfileComparison.fit(result);
+			if (fit == null) {
+				return false;
+			}
+			double millis = Math.exp(fit.getIntercept() + fit.getSlope() * Math.log(REFERENCE_N));
+			put(name, REFERENCE_N / (millis / 1000));
+			return true;
+		}
+	}
+
+	private final Path directory;
+
+	public BenchmarkHistory(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Writes a run to a new file in the history directory.
+	 *
+	 * @param run
+	 * @return the new file
+	 * @throws IOException
+	 */
+	public Path save(Run run) throws IOException {
+		Files.createDirectories(directory);
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'", Locale.ROOT);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		String base = format.format(new Date(run.timestamp)) + "-" + sanitize(run.revision)
+				+ "-" + sanitize(run.jvm);
+
+		Properties properties = new Properties();
+		properties.setProperty("timestamp", Long.toString(run.timestamp));
+		properties.setProperty("revision", run.revision);
+		properties.setProperty("jvm", run.jvm);
+		for (Map.Entry<String, Double> entry: run.metrics.entrySet()) {
+			properties.setProperty(METRIC + entry.getKey(), Double.toString(entry.getValue()));
+		}
+
+		// never overwrite an earlier run
+		for (int i = 0; ; i++) {
+			Path path = directory.resolve(base + (i == 0 ? "" : "-" + i) + ".properties");
+			try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				properties.store(out, "benchmark run");
+				return path;
+			} catch (FileAlreadyExistsException e) {
+				// try the next suffix
+			}
+		}
+	}
+
+	/**
+	 * Reads every run in the history directory, oldest first.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public List<Run> load() throws IOException {
+		List<Run> runs = new ArrayList<Run>();
+		if (!Files.isDirectory(directory)) {
+			return runs;
+		}
+		List<Path> paths = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.properties")) {
+			for (Path path: stream) {
+				paths.add(path);
+			}
+		}
+		// file names start with the time, so this puts them in order; the
+		// extension is left out so that a name comes before its -1, -2 ...
+		Collections.sort(paths, new Comparator<Path>() {
+			@Override
+			public int compare(Path p1, Path p2) {
+				return baseName(p1).compareTo(baseName(p2));
+			}
+		});
+		for (Path path: paths) {
+			Properties properties = new Properties();
+			try (InputStream in = Files.newInputStream(path)) {
+				properties.load(in);
+			}
+			Run run = new Run(Long.parseLong(properties.getProperty("timestamp", "0")),
+					properties.getProperty("revision", "unknown"),
+					properties.getProperty("jvm", "unknown"));
+			List<String> names = new ArrayList<String>(properties.stringPropertyNames());
+			Collections.sort(names);
+			for (String name: names) {
+				if (name.startsWith(METRIC)) {
+					run.put(name.substring(METRIC.length()), Double.parseDouble(properties.getProperty(name)));
+				}
+			}
+			runs.add(run);
+		}
+		return runs;
+	}
+
+	private static String baseName(Path path) {
+		String name = path.getFileName().toString();
+		return name.substring(0, name.length() - ".properties".length());
+	}
+
+	/**
+	 * Returns, for each value, its change relative to the median of up
+	 * to STEP_WINDOW earlier values if that is more than STEP_THRESHOLD,
+	 * or NaN.  A value right after a step is not a step itself: while the
+	 * window still holds values from before, it would be flagged again.
+	 * Missing values are NaN and are skipped.
+	 *
+	 * @param values
+	 * @return
+	 */
+	static double[] steps(double[] values) {
+		double[] steps = new double[values.length];
+		Arrays.fill(steps, Double.NaN);
+		List<Double> window = new ArrayList<Double>();
+		boolean afterStep = false;
+		for (int i = 0; i < values.length; i++) {
+			if (Double.isNaN(values[i])) {
+				continue;
+			}
+			boolean step = false;
+			if (!window.isEmpty() && !afterStep) {
+				List<Double> sorted = new ArrayList<Double>(window);
+				Collections.sort(sorted);
+				int k = sorted.size();
+				double median = (sorted.get((k - 1) / 2) + sorted.get(k / 2)) / 2;
+				double change = values[i] / median - 1;
+				if (Math.abs(change) > STEP_THRESHOLD) {
+					steps[i] = change;
+					step = true;
+				}
+			}
+			afterStep = step;
+			window.add(values[i]);
+			if (window.size() > STEP_WINDOW) {
+				window.remove(0);
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * Returns a table for each JVM with the metrics whose name contains
+	 * `filter`, over the last `maxRuns` runs, with step changes flagged.
+	 *
+	 * @param runs oldest first
+	 * @param filter
+	 * @param maxRuns
+	 * @return
+	 */
+	public static String trend(List<Run> runs, String filter, int maxRuns) {
+		Map<String, List<Run>> byJvm = new LinkedHashMap<String, List<Run>>();
+		for (Run run: runs) {
+			List<Run> list = byJvm.get(run.jvm);
+			if (list == null) {
+				list = new ArrayList<Run>();
+				byJvm.put(run.jvm, list);
+			}
+			list.add(run);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, List<Run>> entry: byJvm.entrySet()) {
+			List<Run> all = entry.getValue();
+			List<Run> recent = all.subList(Math.max(0, all.size() - maxRuns), all.size());
+			Set<String> names = new LinkedHashSet<String>();
+			for (Run run: recent) {
+				for (String name: run.metrics.keySet()) {
+					if (name.contains(filter)) {
+						names.add(name);
+					}
+				}
+			}
+			int width = 6;
+			for (String name: names) {
+				width = Math.max(width, name.length());
+			}
+
+			sb.append(entry.getKey()).append(" (ops/s)\n");
+			sb.append(String.format(Locale.ROOT, "%-" + width + "s", "metric"));
+			for (Run run: recent) {
+				sb.append(String.format(Locale.ROOT, " %10.10s", run.revision));
+			}
+			sb.append("  steps\n");
+			for (String name: names) {
+				double[] values = new double[recent.size()];
+				for (int i = 0; i < values.length; i++) {
+					Double value = recent.get(i).metrics.get(name);
+					values[i] = value == null ? Double.NaN : value;
+				}
+				double[] steps = steps(values);
+				sb.append(String.format(Locale.ROOT, "%-" + width + "s", name));
+				List<String> notes = new ArrayList<String>();
+				for (int i = 0; i < values.length; i++) {
+					sb.append(String.format(Locale.ROOT, " %10s", Double.isNaN(values[i]) ? "-" : abbreviate(values[i])));
+					if (!Double.isNaN(steps[i])) {
+						notes.add(String.format(Locale.ROOT, "%+.0f%% at %s", 100 * steps[i], recent.get(i).revision));
+					}
+				}
+				sb.append("  ").append(String.join(", ", notes)).append('\n');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Formats a number with 3 significant digits and a k, M or G suffix.
+	 */
+	static String abbreviate(double x) {
+		String[] suffixes = {"", "k", "M", "G", "T"};
+		int i = 0;
+		while (Math.abs(x) >= 1000 && i < suffixes.length - 1) {
+			x /= 1000;
+			i++;
+		}
+		return String.format(Locale.ROOT, x >= 100 ? "%.0f%s" : x >= 10 ? "%.1f%s" : "%.2f%s", x, suffixes[i]);
+	}
+
+	/**
+	 * Reads a JMH results file written with -rf csv, and adds each score
+	 * to the run as operations per second.
+	 *
+	 * The metric name is the benchmark method, without the package,
+	 * followed by its parameters, like MapBenchmark.put[implementation=HashMap,n=1000].
+	 *
+	 * @param run
+	 * @param path
+	 * @return the number of metrics added
+	 * @throws IOException
+	 */
+	public static int importJmhCsv(Run run, Path path) throws IOException {
+		int added = 0;
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			List<String> header = parseCsvLine(reader.readLine());
+			int benchmark = header.indexOf("Benchmark");
+			int score = header.indexOf("Score");
+			int unit = header.indexOf("Unit");
+			if (benchmark < 0 || score < 0 || unit < 0) {
+				throw new IOException("Not a JMH CSV file: " + path);
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				List<String> fields = parseCsvLine(line);
+				double opsPerSecond = toOpsPerSecond(Double.parseDouble(fields.get(score)), fields.get(unit));
+				if (Double.isNaN(opsPerSecond)) {
+					System.err.println("Skipping " + fields.get(benchmark) + " in " + fields.get(unit));
+					continue;
+				}
+				String name = fields.get(benchmark);
+				name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+				List<String> params = new ArrayList<String>();
+				for (int i = 0; i < header.size() && i < fields.size(); i++) {
+					if (header.get(i).startsWith("Param: ") && !fields.get(i).isEmpty()) {
+						params.add(header.get(i).substring(7) + "=" + fields.get(i));
+					}
+				}
+				if (!params.isEmpty()) {
+					name += "[" + String.join(",", params) + "]";
+				}
+				run.put(name, opsPerSecond);
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Converts a JMH score to operations per second, or returns NaN if
+	 * the unit isn't a time per operation or operations per time.
+	 */
+	static double toOpsPerSecond(double score, String unit) {
+		String[] parts = unit.split("/");
+		if (parts.length != 2) {
+			return Double.NaN;
+		}
+		if (parts[1].equals("op")) {
+			double seconds = seconds(parts[0]);
+			return score * seconds == 0 ? Double.NaN : 1 / (score * seconds);
+		}
+		if (parts[0].equals("ops")) {
+			return score / seconds(parts[1]);
+		}
+		return Double.NaN;
+	}
+
+	private static double seconds(String unit) {
+		switch (unit) {
+		case "ns": return 1e-9;
+		case "us": return 1e-6;
+		case "ms": return 1e-3;
+		case "s": return 1;
+		case "min": return 60;
+		case "hr": return 3600;
+		default: return Double.NaN;
+		}
+	}
+
+	/**
+	 * Splits a CSV line, handling fields in double quotes.
+	 */
+	static List<String> parseCsvLine(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	/**
+	 * Returns the short git revision, with "-dirty" if there are
+	 * uncommitted changes, or "unknown" if git isn't available.
+	 *
+	 * @return
+	 */
+	static String gitRevision() {
+		try {
+			String revision = runGit("rev-parse", "--short", "HEAD");
+			if (revision.isEmpty()) {
+				return "unknown";
+			}
+			String status = runGit("status", "--porcelain", "--untracked-files=no");
+			return status.isEmpty() ? revision : revision + "-dirty";
+		} catch (IOException e) {
+			return "unknown";
+		}
+	}
+
+	private static String runGit(String... args) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add("git");
+		command.addAll(Arrays.asList(args));
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		StringBuilder output = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				output.append(line).append('\n');
+			}
+		}
+		try {
+			if (process.waitFor() != 0) {
+				return "";
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "";
+		}
+		return output.toString().trim();
+	}
+
+	private static String sanitize(String s) {
+		return s.replaceAll("[^A-Za-z0-9._-]+", "_");
+	}
+
+	/**
+	 * @param args see the class comment
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 2 && args[0].equals("import-jmh")) {
+			BenchmarkHistory history = new BenchmarkHistory(Paths.get(args.length > 2 ? args[2] : DEFAULT_DIRECTORY));
+			Run run = Run.current();
+			int added = importJmhCsv(run, Paths.get(args[1]));
+			System.out.println("Recorded " + added + " results in " + history.save(run));
+			return;
+		}
+		if (args.length >= 1 && args[0].equals("trend")) {
+			String filter = args.length > 1 ? args[1] : "";
+			BenchmarkHistory history = new BenchmarkHistory(Paths.get(args.length > 2 ? args[2] : DEFAULT_DIRECTORY));
+			System.out.print(trend(history.load(), filter, 10));
+			return;
+		}
+		System.err.println("Usage: BenchmarkHistory import-jmh results.csv [directory]");
+		System.err.println("       BenchmarkHistory trend [filter] [directory]");
+		System.exit(2);
+	}
+}
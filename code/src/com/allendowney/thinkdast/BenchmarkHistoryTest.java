@@ -0,0 +1,165 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class BenchmarkHistoryTest {
+
+	private Path directory;
+	private BenchmarkHistory history;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("BenchmarkHistoryTest");
+		history = new BenchmarkHistory(directory.resolve("history"));
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		for (Path dir: new Path[] {directory.resolve("history"), directory}) {
+			if (Files.isDirectory(dir)) {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+					for (Path path: stream) {
+						if (!Files.isDirectory(path)) {
+							Files.delete(path);
+						}
+					}
+				}
+				Files.delete(dir);
+			}
+		}
+	}
+
+	private static BenchmarkHistory.Run run(long timestamp, String revision, double value) {
+		BenchmarkHistory.Run run = new BenchmarkHistory.Run(timestamp, revision, "TestVM 1.8");
+		run.put("MyHashMap.put", value);
+		run.put("ListSorter.mergeSort", 1000);
+		return run;
+	}
+
+	/**
+	 * Test method for {@link BenchmarkHistory#save}.
+	 */
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		assertThat(history.load().isEmpty(), is(true));
+
+		// same time, revision and JVM, so the second one needs a new name
+		Path first = history.save(run(1000000, "abc1234", 500));
+		Path second = history.save(run(1000000, "abc1234", 600));
+		history.save(run(500000, "older", 400));
+		assertThat(first.equals(second), is(false));
+		assertThat(first.getFileName().toString(), is("19700101T001640Z-abc1234-TestVM_1.8.properties"));
+
+		List<BenchmarkHistory.Run> runs = history.load();
+		assertThat(runs.size(), is(3));
+		assertThat(runs.get(0).getRevision(), is("older"));
+		assertThat(runs.get(1).getMetrics().get("MyHashMap.put"), is(500.0));
+		assertThat(runs.get(2).getMetrics().get("MyHashMap.put"), is(600.0));
+		assertThat(runs.get(2).getJvm(), is("TestVM 1.8"));
+	}
+
+	/**
+	 * Test method for {@link BenchmarkHistory#steps(double[])}.
+	 */
+	@Test
+	public void testSteps() {
+		double[] steps = BenchmarkHistory.steps(new double[] {100, 105, 95, 150, Double.NaN, 100, 101});
+		assertThat(Double.isNaN(steps[0]), is(true));
+		assertThat(Double.isNaN(steps[1]), is(true));
+		assertThat(Double.isNaN(steps[2]), is(true));
+		// the median of 100, 105 and 95 is 100
+		assertThat(steps[3], is(0.5));
+		assertThat(Double.isNaN(steps[4]), is(true));
+		// going back to 100 right after the step is not another step
+		assertThat(Double.isNaN(steps[5]), is(true));
+		assertThat(Double.isNaN(steps[6]), is(true));
+
+		// a step that stays is flagged once
+		steps = BenchmarkHistory.steps(new double[] {100, 100, 100, 150, 150, 150, 150});
+		assertThat(steps[3], is(0.5));
+		for (int i = 4; i < steps.length; i++) {
+			assertThat(Double.isNaN(steps[i]), is(true));
+		}
+
+		// so is a step down that stays
+		steps = BenchmarkHistory.steps(new double[] {100, 100, 100, 50, 50, 50});
+		assertThat(steps[3], is(-0.5));
+		assertThat(Double.isNaN(steps[4]), is(true));
+		assertThat(Double.isNaN(steps[5]), is(true));
+	}
+
+	/**
+	 * Test method for {@link BenchmarkHistory#trend}.
+	 */
+	@Test
+	public void testTrend() {
+		List<BenchmarkHistory.Run> runs = Arrays.asList(
+				run(1, "r1", 1000), run(2, "r2", 1010), run(3, "r3", 500));
+		String trend = BenchmarkHistory.trend(runs, "MyHashMap", 10);
+		assertThat(trend, containsString("TestVM 1.8 (ops/s)"));
+		assertThat(trend, containsString("-50% at r3"));
+		assertThat(trend, not(containsString("ListSorter")));
+
+		// only the last two runs
+		trend = BenchmarkHistory.trend(runs, "", 2);
+		assertThat(trend, not(containsString("r1")));
+		assertThat(trend, containsString("ListSorter.mergeSort"));
+		assertThat(trend, containsString("1.01k"));
+	}
+
+	/**
+	 * Test method for {@link BenchmarkHistory#importJmhCsv}.
+	 */
+	@Test
+	public void testImportJmhCsv() throws IOException {
+		Path csv = directory.resolve("results.csv");
+		String text = "\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\",\"Param: implementation\",\"Param: n\"\n"
+				+ "\"com.allendowney.thinkdast.MapBenchmark.put\",\"avgt\",1,10,250.000000,5.0,\"us/op\",MyHashMap,1000\n"
+				+ "\"com.allendowney.thinkdast.SortBenchmark.sort\",\"thrpt\",1,10,2.5,0.1,\"ops/ms\",,\n"
+				+ "\"com.allendowney.thinkdast.Other.alloc\",\"avgt\",1,10,3.0,0.1,\"B/op\",,\n";
+		Files.write(csv, text.getBytes(StandardCharsets.UTF_8));
+
+		BenchmarkHistory.Run run = new BenchmarkHistory.Run(0, "r", "vm");
+		assertThat(BenchmarkHistory.importJmhCsv(run, csv), is(2));
+		assertThat(run.getMetrics().get("MapBenchmark.put[implementation=MyHashMap,n=1000]"), is(4000.0));
+		assertThat(run.getMetrics().get("SortBenchmark.sort"), is(2500.0));
+	}
+
+	/**
+	 * Test method for {@link BenchmarkHistory.Run#addProfileResult}.
+	 */
+	@Test
+	public void testAddProfileResult() {
+		// 1 ms per 1000 operations, so a million operations per second at any n
+		ProfileResult result = new ProfileResult("linear");
+		for (int n = 1000; n <= 64000; n *= 2) {
+			result.add(new ProfileResult.Point(n, new long[] {n * 1000L}));
+		}
+		BenchmarkHistory.Run run = new BenchmarkHistory.Run(0, "r", "vm");
+		assertThat(run.addProfileResult("linear", result), is(true));
+		assertThat(Math.abs(run.getMetrics().get("linear") / 1e6 - 1) < 1e-6, is(true));
+	}
+}
@@ -0,0 +1,105 @@
+package com.allendowney.thinkdast;
+
+import java.awt.Color;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.LogarithmicAxis;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.ui.ApplicationFrame;
+import org.jfree.ui.RefineryUtilities;
+
+/**
+ * Window that shows Profiler results on a log-log chart.
+ *
+ * Making one needs a display, so Profiler only does that when the JVM
+ * is not headless.
+ *
+ * @author downey
+ *
+ */
+public class ChartRenderer extends ApplicationFrame {
+
+	/**
+	 * This is here because extending ApplicationFrame requires it.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private String domainLabel = "Problem size (n)";
+
+	public ChartRenderer(String title) {
+		super(title);
+	}
+
+	/**
+	 * Sets the label on the x axis.
+	 *
+	 * @param domainLabel
+	 */
+	public void setDomainLabel(String domainLabel) {
+		this.domainLabel = domainLabel;
+	}
+
+	/**
+	 * Plots the series, with `rangeLabel` on the y axis.
+	 *
+	 * @param series
+	 * @param rangeLabel
+	 */
+	public void plot(XYSeries series, String rangeLabel) {
+		final XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(series);
+
+        final JFreeChart chart = ChartFactory.createXYLineChart(
+            "",          // chart title
+            "",               // domain axis label
+            "",                  // range axis label
+            dataset,                  // data
+            PlotOrientation.VERTICAL,
+            false,                     // include legend
+            true,
+            false
+        );
+
+        final XYPlot plot = chart.getXYPlot();
+        final NumberAxis domainAxis = new LogarithmicAxis(domainLabel);
+        final NumberAxis rangeAxis = new LogarithmicAxis(rangeLabel);
+        plot.setDomainAxis(domainAxis);
+        plot.setRangeAxis(rangeAxis);
+        chart.setBackgroundPaint(Color.white);
+        plot.setOutlinePaint(Color.black);
+        final ChartPanel chartPanel = new ChartPanel(chart);
+        chartPanel.setPreferredSize(new java.awt.Dimension(1000, 600));
+        setContentPane(chartPanel);
+        pack();
+        RefineryUtilities.centerFrameOnScreen(this);
+        setVisible(true);
+	}
+
+	/**
+	 * Plots two series against the same n, the second one on its own
+	 * log axis on the right, for example run time and bytes allocated.
+	 *
+	 * @param series
+	 * @param rangeLabel
+	 * @param second
+	 * @param secondLabel
+	 */
+	public void plot(XYSeries series, String rangeLabel, XYSeries second, String secondLabel) {
+		plot(series, rangeLabel);
+
+		final XYPlot plot = ((ChartPanel) getContentPane()).getChart().getXYPlot();
+		plot.setDataset(1, new XYSeriesCollection(second));
+		plot.setRangeAxis(1, new LogarithmicAxis(secondLabel));
+		plot.mapDatasetToRangeAxis(1, 1);
+		final XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
+		renderer.setSeriesPaint(0, Color.blue);
+		plot.setRenderer(1, renderer);
+	}
+}
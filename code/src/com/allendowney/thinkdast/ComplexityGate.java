@@ -0,0 +1,549 @@
+package com.allendowney.thinkdast;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import com.allendowney.thinkdast.Profiler.Timeable;
+
+/**
+ * Catches changes that make a data structure slower or change its order
+ * of growth.
+ *
+ * The gate profiles a set of Timeables, fits a line to log(time) versus
+ * log(n) for each one, and compares the fit with a baseline file saved
+ * from an earlier run.  A case fails if:
+ *
+ *   its slope (the exponent of n) grew by more than `slopeTolerance`,
+ *   which catches O(n) to O(n^2), or O(1) to O(n) per operation;
+ *
+ *   it grew by an extra factor of log n: over the baseline's range of n,
+ *   from minN to maxN, an extra log n multiplies the growth in run time
+ *   by log(maxN) / log(minN), and a case fails if its growth is more
+ *   than halfway there (on a log scale) from the baseline's growth.
+ *   That is a change in slope of only about 0.05, so this check is only
+ *   made for cases with a baseline slope under LOG_CHECK_MAX_SLOPE, the
+ *   O(1)-per-operation cases it is meant for, whose slopes are steady
+ *   enough; the slopes of quadratic cases wander more than that;
+ *
+ *   or its run time at the largest n in the baseline grew by more than a
+ *   factor of 1 + `timeTolerance`.
+ *
+ * The log n check compares a case with its own baseline rather than with
+ * a slope of exactly 1, because the measured slopes of O(n) cases are
+ * often well above 1 (cache misses grow with n too); what matters is
+ * that the slope stays where it was.  Run times
+ * depend on the machine, so both the baseline and the check time a fixed
+ * calibration loop, and times are scaled by the ratio before they are
+ * compared.
+ *
+ * Slopes also depend on how the JVM sizes the heap and collects garbage,
+ * which can differ from one run to the next, so record and check should
+ * run with a fixed heap and the same collector; bench.xml uses
+ * -Xms1g -Xmx1g -XX:+UseSerialGC.  The standard cases are each measured
+ * in FORKS new JVMs with those options, and a failing case is measured
+ * again, up to ATTEMPTS times, before it counts as a regression.
+ *
+ * Usage: ComplexityGate record|check [baseline file]
+ *
+ */
+public class ComplexityGate {
+
+	public static final String DEFAULT_BASELINE = "complexity-baseline.properties";
+
+	// points faster than this are mostly timer and JIT noise, so we don't fit them
+	static final double MIN_MILLIS = 1.0;
+	// fewest points we are willing to fit a line to
+	static final int MIN_POINTS = 3;
+	// each case is profiled this many times, after a warm-up round, and the points pooled
+	static final int ROUNDS = 2;
+	// the standard cases are measured in this many new JVMs, and we keep the median slope
+	static final int FORKS = 3;
+	// cases with a steeper baseline slope are not checked for an extra log n
+	static final double LOG_CHECK_MAX_SLOPE = 1.5;
+	// a failing case is measured again up to this many times, and only
+	// fails if it fails every time
+	static final int ATTEMPTS = 3;
+
+	/**
+	 * A Timeable to profile, and the range of n to profile it over.
+	 */
+	private static class Case {
+		final String name;
+		final Timeable timeable;
+		final int startN;
+		final int endMillis;
+
+		Case(String name, Timeable timeable, int startN, int endMillis) {
+			this.name = name;
+			this.timeable = timeable;
+			this.startN = startN;
+			this.endMillis = endMillis;
+		}
+	}
+
+	/**
+	 * The fit for one case, and the range of n it was fitted over.
+	 */
+	public static class Measurement {
+		final double slope;
+		final double intercept;
+		final double minN;
+		final double maxN;
+
+		public Measurement(double slope, double intercept, double minN, double maxN) {
+			this.slope = slope;
+			this.intercept = intercept;
+			this.minN = minN;
+			this.maxN = maxN;
+		}
+
+		/**
+		 * Returns the fitted run time in milliseconds for a given n.
+		 */
+		double predict(double n) {
+			return Math.exp(intercept + slope * Math.log(n));
+		}
+	}
+
+	private final double slopeTolerance;
+	private final double timeTolerance;
+	private final List<Case> cases = new ArrayList<Case>();
+	// whether to measure each case in new JVMs; only for the standard cases,
+	// which a new JVM can make for itself
+	private boolean fork = false;
+
+	/**
+	 * @param slopeTolerance how much the exponent may grow
+	 * @param timeTolerance how much the run time may grow, as a fraction
+	 */
+	public ComplexityGate(double slopeTolerance, double timeTolerance) {
+		this.slopeTolerance = slopeTolerance;
+		this.timeTolerance = timeTolerance;
+	}
+
+	/**
+	 * Adds a Timeable to the gate.
+	 *
+	 * @param name used as the key in the baseline file, so no spaces
+	 * @param timeable
+	 * @param startN
+	 * @param endMillis
+	 */
+	public void add(String name, Timeable timeable, int startN, int endMillis) {
+		cases.add(new Case(name, timeable, startN, endMillis));
+	}
+
+	/**
+	 * Makes a gate with the Timeables from ProfileListAdd and ProfileMapPut.
+	 *
+	 * @return
+	 */
+	public static ComplexityGate standard() {
+		ComplexityGate gate = new ComplexityGate(0.5, 0.5);
+		gate.add("MyArrayList.addEnd", ProfileListAdd.arrayListAddEnd(), 64000, 250);
+		gate.add("MyArrayList.addBeginning", ProfileListAdd.arrayListAddBeginning(), 4000, 500);
+		gate.add("MyLinkedList.addBeginning", ProfileListAdd.linkedListAddBeginning(), 64000, 250);
+		gate.add("MyLinkedList.addEnd", ProfileListAdd.linkedListAddEnd(), 1000, 500);
+		gate.add("HashMap.put", ProfileMapPut.hashMapPut(), 8000, 1000);
+		gate.add("MyHashMap.put", ProfileMapPut.myHashMapPut(), 250, 2000);
+		gate.add("MyFixedHashMap.put", ProfileMapPut.myFixedHashMapPut(), 8000, 1000);
+		gate.fork = true;
+		return gate;
+	}
+
+	/**
+	 * Measures every case.
+	 *
+	 * @return map from case name to measurement, in the order they were added
+	 */
+	public Map<String, Measurement> measureAll() {
+		Map<String, Measurement> results = new LinkedHashMap<String, Measurement>();
+		for (Case c: cases) {
+			results.put(c.name, measure(c, 0, Integer.MAX_VALUE));
+		}
+		return results;
+	}
+
+	/**
+	 * Measures a case over n from minN to maxN, in this JVM or, for the
+	 * standard gate, in FORKS new JVMs.
+	 *
+	 * When checking, minN and maxN come from the baseline: per-operation
+	 * costs go up as a structure outgrows each level of cache, so slopes
+	 * fitted over different ranges of n are not comparable.
+	 *
+	 * New JVMs are used for the same reason JMH forks: the JIT and the
+	 * heap end up a little different in every JVM, enough to move a slope
+	 * by more than an extra log n would, and the same in every round in
+	 * that JVM.  The median of a few JVMs is much steadier than any one.
+	 */
+	private Measurement measure(Case c, int minN, int maxN) {
+		System.out.println(c.name);
+		if (!fork) {
+			return measureHere(c, minN, maxN);
+		}
+		List<Measurement> forks = new ArrayList<Measurement>();
+		for (int i = 0; i < FORKS; i++) {
+			forks.add(measureInNewJvm(c.name, minN, maxN));
+		}
+		return medianSlope(forks);
+	}
+
+	/**
+	 * Profiles a case once to warm up, then ROUNDS times, and fits all
+	 * the points from those rounds with n from minN to maxN together.
+	 */
+	private Measurement measureHere(Case c, int minN, int maxN) {
+		Profiler profiler = new Profiler(c.name, c.timeable);
+		profiler.setWarmups(2);
+		profiler.setIterations(5);
+		profiler.setMaxN(maxN);
+		profiler.timingRun(c.startN, c.endMillis);
+		List<ProfileResult> rounds = new ArrayList<ProfileResult>();
+		for (int i = 0; i < ROUNDS; i++) {
+			rounds.add(profiler.timingRun(c.startN, c.endMillis));
+		}
+		return measure(rounds, minN);
+	}
+
+	/**
+	 * Runs "ComplexityGate measure" in a new JVM with the same options
+	 * and class path as this one, and reads the measurement it prints.
+	 */
+	private static Measurement measureInNewJvm(String name, int minN, int maxN) {
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ComplexityGate.class.getName());
+		command.add("measure");
+		command.add(name);
+		command.add(Integer.toString(minN));
+		command.add(Integer.toString(maxN));
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		try {
+			Process process = builder.start();
+			String result = null;
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(RESULT)) {
+						result = line.substring(RESULT.length()).trim();
+					}
+				}
+			}
+			if (process.waitFor() != 0 || result == null) {
+				throw new IllegalStateException("measuring " + name + " in a new JVM failed");
+			}
+			String[] fields = result.split(" ");
+			return new Measurement(Double.parseDouble(fields[0]), Double.parseDouble(fields[1]),
+					Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	// the line "ComplexityGate measure" prints its result on
+	private static final String RESULT = "measurement:";
+
+	/**
+	 * Returns the measurement with the median slope.
+	 */
+	static Measurement medianSlope(List<Measurement> measurements) {
+		List<Measurement> sorted = new ArrayList<Measurement>(measurements);
+		Collections.sort(sorted, new Comparator<Measurement>() {
+			@Override
+			public int compare(Measurement m1, Measurement m2) {
+				return Double.compare(m1.slope, m2.slope);
+			}
+		});
+		return sorted.get(sorted.size() / 2);
+	}
+
+	/**
+	 * Fits a line to log(time) versus log(n) for the points in some
+	 * ProfileResults that take at least MIN_MILLIS.
+	 *
+	 * Uses the fastest run for each n rather than the median, and fits
+	 * with the Theil-Sen estimator, the median of the slopes between all
+	 * pairs of points, rather than least squares: a GC pause or a burst of
+	 * load from another process makes a few points much too slow, which
+	 * can bend a least squares line by more than an extra log n would,
+	 * but barely moves the median.
+	 *
+	 * @param results
+	 * @param minN points with smaller n are left out
+	 * @return
+	 * @throws IllegalStateException if fewer than MIN_POINTS different n are left
+	 */
+	static Measurement measure(List<ProfileResult> results, int minN) {
+		List<double[]> points = new ArrayList<double[]>();
+		TreeSet<Integer> ns = new TreeSet<Integer>();
+		String title = results.isEmpty() ? "" : results.get(0).getTitle();
+		for (ProfileResult result: results) {
+			for (ProfileResult.Point point: result.getPoints()) {
+				double millis = point.min() / 1e6;
+				if (millis >= MIN_MILLIS && point.getN() >= minN) {
+					points.add(new double[] {Math.log(point.getN()), Math.log(millis)});
+					ns.add(point.getN());
+				}
+			}
+		}
+		if (ns.size() < MIN_POINTS) {
+			throw new IllegalStateException(title + ": only " + ns.size() + " sizes take "
+					+ MIN_MILLIS + " ms or more; increase endMillis");
+		}
+
+		List<Double> slopes = new ArrayList<Double>();
+		for (int i = 0; i < points.size(); i++) {
+			for (int j = i + 1; j < points.size(); j++) {
+				double dx = points.get(j)[0] - points.get(i)[0];
+				if (dx != 0) {
+					slopes.add((points.get(j)[1] - points.get(i)[1]) / dx);
+				}
+			}
+		}
+		double slope = median(slopes);
+		List<Double> intercepts = new ArrayList<Double>();
+		for (double[] point: points) {
+			intercepts.add(point[1] - slope * point[0]);
+		}
+		return new Measurement(slope, median(intercepts),
+				ns.first(), ns.last());
+	}
+
+	private static double median(List<Double> values) {
+		List<Double> sorted = new ArrayList<Double>(values);
+		Collections.sort(sorted);
+		int n = sorted.size();
+		return n % 2 == 1 ? sorted.get(n / 2) : (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2;
+	}
+
+	// the calibration loop keeps its result here so the JIT can't discard it
+	static long calibrationSink;
+
+	/**
+	 * Times a fixed amount of work, for comparing machines.
+	 *
+	 * @return median time in milliseconds
+	 */
+	public static double calibrate() {
+		long[] data = new long[1 << 20];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = i * 31L;
+		}
+		long[] samples = new long[9];
+		for (int trial = 0; trial < 12; trial++) {
+			long start = System.nanoTime();
+			long total = 0;
+			for (int rep = 0; rep < 20; rep++) {
+				for (int i = 0; i < data.length; i++) {
+					total += data[i] ^ rep;
+				}
+			}
+			calibrationSink += total;
+			long elapsed = System.nanoTime() - start;
+			// the first three trials are warm-up
+			if (trial >= 3) {
+				samples[trial - 3] = elapsed;
+			}
+		}
+		return new ProfileResult.Point(0, samples).median() / 1e6;
+	}
+
+	/**
+	 * Stores measurements and a calibration time as Properties.
+	 *
+	 * @param results
+	 * @param calibrationMillis
+	 * @return
+	 */
+	public static Properties toProperties(Map<String, Measurement> results, double calibrationMillis) {
+		Properties properties = new Properties();
+		properties.setProperty("calibration.ms", format(calibrationMillis));
+		for (Map.Entry<String, Measurement> entry: results.entrySet()) {
+			Measurement m = entry.getValue();
+			properties.setProperty(entry.getKey() + ".slope", format(m.slope));
+			properties.setProperty(entry.getKey() + ".intercept", format(m.intercept));
+			properties.setProperty(entry.getKey() + ".minN", format(m.minN));
+			properties.setProperty(entry.getKey() + ".n", format(m.maxN));
+		}
+		return properties;
+	}
+
+	private static String format(double x) {
+		return String.format(Locale.ROOT, "%.6g", x);
+	}
+
+	/**
+	 * Compares measurements with a baseline.
+	 *
+	 * @param baseline as written by toProperties
+	 * @param results
+	 * @param calibrationMillis calibration time on this machine
+	 * @param report a table of results is appended here
+	 * @return the failures, empty if everything passed
+	 */
+	public List<String> compare(Properties baseline, Map<String, Measurement> results,
+								double calibrationMillis, StringBuilder report) {
+		List<String> failures = new ArrayList<String>();
+		double baseCalibration = Double.parseDouble(baseline.getProperty("calibration.ms", "NaN"));
+		// how much faster this machine is than the baseline machine
+		double speedup = Double.isNaN(baseCalibration) ? 1 : baseCalibration / calibrationMillis;
+
+		report.append(String.format(Locale.ROOT, "%-28s %8s %8s %10s %10s  %s%n",
+				"case", "slope", "base", "time (ms)", "base (ms)", "verdict"));
+		for (Map.Entry<String, Measurement> entry: results.entrySet()) {
+			String name = entry.getKey();
+			Measurement current = entry.getValue();
+			String slope = baseline.getProperty(name + ".slope");
+			if (slope == null) {
+				report.append(String.format(Locale.ROOT, "%-28s %8.3f %8s %10s %10s  %s%n",
+						name, current.slope, "-", "-", "-", "no baseline"));
+				continue;
+			}
+			// baselines from before minN was recorded can't check for log n
+			Measurement base = new Measurement(Double.parseDouble(slope),
+					Double.parseDouble(baseline.getProperty(name + ".intercept")),
+					Double.parseDouble(baseline.getProperty(name + ".minN", "NaN")),
+					Double.parseDouble(baseline.getProperty(name + ".n")));
+
+			// compare at the largest n in the baseline, in baseline-machine milliseconds
+			double baseTime = base.predict(base.maxN);
+			double time = current.predict(base.maxN) * speedup;
+
+			List<String> problems = new ArrayList<String>();
+			if (current.slope - base.slope > slopeTolerance) {
+				problems.add(String.format(Locale.ROOT, "grows like n^%.2f instead of n^%.2f",
+						current.slope, base.slope));
+			} else if (base.slope < LOG_CHECK_MAX_SLOPE && base.minN > 1 && base.maxN > base.minN) {
+				double baseGrowth = base.predict(base.maxN) / base.predict(base.minN);
+				double growth = current.predict(base.maxN) / current.predict(base.minN);
+				double logFactor = Math.log(base.maxN) / Math.log(base.minN);
+				if (growth > baseGrowth * Math.sqrt(logFactor)) {
+					problems.add(String.format(Locale.ROOT,
+							"grows %.1fx from n = %.0f to %.0f instead of %.1fx (%.1fx with an extra log n)",
+							growth, base.minN, base.maxN, baseGrowth, baseGrowth * logFactor));
+				}
+			}
+			if (time > baseTime * (1 + timeTolerance)) {
+				problems.add(String.format(Locale.ROOT, "%.1fx slower at n = %.0f",
+						time / baseTime, base.maxN));
+			}
+			for (String problem: problems) {
+				failures.add(name + " " + problem);
+			}
+			report.append(String.format(Locale.ROOT, "%-28s %8.3f %8.3f %10.3f %10.3f  %s%n",
+					name, current.slope, base.slope, time, baseTime,
+					problems.isEmpty() ? "ok" : "FAIL: " + String.join("; ", problems)));
+		}
+		return failures;
+	}
+
+	/**
+	 * Measures every case and compares it with a baseline, measuring a
+	 * failing case again, up to ATTEMPTS times in all, before reporting
+	 * it as a regression.
+	 *
+	 * @param baseline as written by toProperties
+	 * @param calibrationMillis calibration time on this machine
+	 * @param report a table of results is appended here
+	 * @return the failures, empty if everything passed
+	 */
+	public List<String> check(Properties baseline, double calibrationMillis, StringBuilder report) {
+		Map<String, Measurement> results = new LinkedHashMap<String, Measurement>();
+		for (Case c: cases) {
+			// measure over the same range of n as the baseline, if it has one
+			int minN = (int) Double.parseDouble(baseline.getProperty(c.name + ".minN", "0"));
+			int maxN = (int) Double.parseDouble(baseline.getProperty(c.name + ".n",
+					Integer.toString(Integer.MAX_VALUE)));
+			Measurement measurement = measure(c, minN, maxN);
+			for (int attempt = 1; attempt < ATTEMPTS; attempt++) {
+				Map<String, Measurement> single = new LinkedHashMap<String, Measurement>();
+				single.put(c.name, measurement);
+				if (compare(baseline, single, calibrationMillis, new StringBuilder()).isEmpty()) {
+					break;
+				}
+				System.out.println(c.name + " looks slower; measuring again");
+				measurement = measure(c, minN, maxN);
+			}
+			results.put(c.name, measurement);
+		}
+		return compare(baseline, results, calibrationMillis, report);
+	}
+
+	/**
+	 * @param args record or check, then optionally the baseline file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 4 && args[0].equals("measure")) {
+			// run by measureInNewJvm: measure one standard case here
+			ComplexityGate gate = standard();
+			for (Case c: gate.cases) {
+				if (c.name.equals(args[1])) {
+					Measurement m = gate.measureHere(c, Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+					System.out.println(RESULT + " " + m.slope + " " + m.intercept + " " + m.minN + " " + m.maxN);
+					return;
+				}
+			}
+			System.err.println("No case named " + args[1]);
+			System.exit(2);
+		}
+		if (args.length < 1 || !(args[0].equals("record") || args[0].equals("check"))) {
+			System.err.println("Usage: ComplexityGate record|check [baseline file]");
+			System.exit(2);
+		}
+		Path path = Paths.get(args.length > 1 ? args[1] : DEFAULT_BASELINE);
+		ComplexityGate gate = standard();
+		double calibration = calibrate();
+
+		if (args[0].equals("record")) {
+			try (OutputStream out = Files.newOutputStream(path)) {
+				toProperties(gate.measureAll(), calibration).store(out, "ComplexityGate baseline");
+			}
+			System.out.println("Wrote " + path);
+			return;
+		}
+
+		Properties baseline = new Properties();
+		try (InputStream in = Files.newInputStream(path)) {
+			baseline.load(in);
+		}
+		StringBuilder report = new StringBuilder();
+		List<String> failures = gate.check(baseline, calibration, report);
+		System.out.print(report);
+		if (!failures.isEmpty()) {
+			System.out.println(failures.size() + " complexity regression(s):");
+			for (String failure: failures) {
+				System.out.println("  " + failure);
+			}
+			System.exit(1);
+		}
+		System.out.println("No complexity regressions.");
+	}
+}
@@ -0,0 +1,185 @@
+package com.allendowney.thinkdast;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jfree.data.xy.XYSeries;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.allendowney.thinkdast.ComplexityGate.Measurement;
+
+/**
+ * @author downey
+ *
+ */
+public class ComplexityGateTest {
+
+	private ComplexityGate gate;
+	private Properties baseline;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		gate = new ComplexityGate(0.1, 0.5);
+		Map<String, Measurement> results = new LinkedHashMap<String, Measurement>();
+		// 1 ms at n = 1000, growing linearly
+		results.put("linear", new Measurement(1.0, -Math.log(1000), 100, 1000));
+		baseline = ComplexityGate.toProperties(results, 10.0);
+	}
+
+	private List<String> check(Measurement current, double calibrationMillis) {
+		Map<String, Measurement> results = new LinkedHashMap<String, Measurement>();
+		results.put("linear", current);
+		return gate.compare(baseline, results, calibrationMillis, new StringBuilder());
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#compare}.
+	 */
+	@Test
+	public void testUnchanged() {
+		List<String> failures = check(new Measurement(1.0, -Math.log(1000), 100, 1000), 10.0);
+		assertThat(failures.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#compare}.
+	 */
+	@Test
+	public void testSlopeRegression() {
+		// same time at n = 1000, but quadratic
+		List<String> failures = check(new Measurement(2.0, -2 * Math.log(1000), 100, 1000), 10.0);
+		assertThat(failures.size(), is(1));
+		assertThat(failures.get(0).startsWith("linear grows like n^2.00"), is(true));
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#compare}.
+	 */
+	@Test
+	public void testLogRegression() {
+		gate = new ComplexityGate(0.5, 10);
+		// n log n, fitted as a line over n = 100 to 1000, has a slope of
+		// only about 1.15, well within the slope tolerance
+		XYSeries series = new XYSeries("n log n");
+		for (int n = 100; n <= 1000; n *= 2) {
+			series.add(n, n * Math.log(n) / 1000);
+		}
+		Profiler.Fit fit = Profiler.fit(series);
+		assertThat(fit.getSlope() < 1.2, is(true));
+
+		List<String> failures = check(new Measurement(fit.getSlope(), fit.getIntercept(), 100, 800), 10.0);
+		assertThat(failures.size(), is(1));
+		assertThat(failures.get(0), containsString("linear grows"));
+		assertThat(failures.get(0), containsString("with an extra log n"));
+
+		// a smaller change in slope than a log factor passes
+		failures = check(new Measurement(1.03, -1.03 * Math.log(1000), 100, 1000), 10.0);
+		assertThat(failures.isEmpty(), is(true));
+
+		// quadratic cases are not checked for log n
+		Map<String, Measurement> results = new LinkedHashMap<String, Measurement>();
+		results.put("quadratic", new Measurement(2.0, -2 * Math.log(1000), 100, 1000));
+		baseline = ComplexityGate.toProperties(results, 10.0);
+		results.put("quadratic", new Measurement(2.15, -2.15 * Math.log(1000), 100, 1000));
+		assertThat(gate.compare(baseline, results, 10.0, new StringBuilder()).isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#compare}.
+	 */
+	@Test
+	public void testTimeRegression() {
+		// same slope, twice as slow
+		List<String> failures = check(new Measurement(1.0, Math.log(2) - Math.log(1000), 100, 1000), 10.0);
+		assertThat(failures.size(), is(1));
+		assertThat(failures.get(0).contains("2.0x slower"), is(true));
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#compare}.
+	 */
+	@Test
+	public void testCalibration() {
+		// twice as slow on a machine that is twice as slow is not a regression
+		List<String> failures = check(new Measurement(1.0, Math.log(2) - Math.log(1000), 100, 1000), 20.0);
+		assertThat(failures.isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#compare}.
+	 */
+	@Test
+	public void testNoBaseline() {
+		Map<String, Measurement> results = new LinkedHashMap<String, Measurement>();
+		results.put("new", new Measurement(3.0, 0, 100, 1000));
+		StringBuilder report = new StringBuilder();
+		List<String> failures = gate.compare(baseline, results, 10.0, report);
+		assertThat(failures.isEmpty(), is(true));
+		assertThat(report.toString().contains("no baseline"), is(true));
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#measure(List)}.
+	 */
+	@Test
+	public void testMeasure() {
+		// three rounds of a linear case, 1 ms per 1000, and in one round
+		// a 10x spike at the largest n
+		List<ProfileResult> rounds = new ArrayList<ProfileResult>();
+		for (int round = 0; round < 3; round++) {
+			ProfileResult result = new ProfileResult("linear");
+			for (int n = 1000; n <= 16000; n *= 2) {
+				long nanos = n * 1000L * (round == 1 && n == 16000 ? 10 : 1);
+				result.add(new ProfileResult.Point(n, new long[] {nanos, nanos + 1000}));
+			}
+			rounds.add(result);
+		}
+		Measurement m = ComplexityGate.measure(rounds, 0);
+		assertEquals(1.0, m.slope, 1e-9);
+		assertEquals(1000, m.minN, 0);
+		assertEquals(16000, m.maxN, 0);
+		assertEquals(8.0, m.predict(8000), 1e-9);
+		assertEquals(2000, ComplexityGate.measure(rounds, 2000).minN, 0);
+
+		// points under MIN_MILLIS are left out
+		ProfileResult fast = new ProfileResult("fast");
+		for (int n = 1000; n <= 16000; n *= 2) {
+			fast.add(new ProfileResult.Point(n, new long[] {n * 100L}));
+		}
+		try {
+			ComplexityGate.measure(Arrays.asList(fast), 0);
+			fail();
+		} catch (IllegalStateException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link ComplexityGate#toProperties}.
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		baseline.store(out, null);
+		Properties loaded = new Properties();
+		loaded.load(new ByteArrayInputStream(out.toByteArray()));
+		assertThat(loaded, is(baseline));
+		assertThat(Double.parseDouble(loaded.getProperty("linear.slope")), is(1.0));
+		assertThat(Double.parseDouble(loaded.getProperty("linear.minN")), is(100.0));
+		assertThat(Double.parseDouble(loaded.getProperty("calibration.ms")), is(10.0));
+	}
+}
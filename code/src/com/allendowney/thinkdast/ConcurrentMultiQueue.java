@@ -0,0 +1,239 @@
+package com.allendowney.thinkdast;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority queue that many threads can use at once, in exchange for
+ * not always returning the smallest element.
+ *
+ * This is a MultiQueue: the elements are spread over several heaps, each
+ * with its own lock.  offer pushes onto a random heap.  poll looks at the
+ * smallest element of two random heaps and takes the smaller of the two.
+ * Threads rarely want the same lock, so throughput keeps growing with
+ * the number of threads, where a queue with a single lock stops scaling
+ * at one or two.
+ *
+ * The price is that poll returns an element close to the front, not
+ * necessarily the front.  Call the rank of an element the number of
+ * elements in the queue that are smaller.  With m heaps, the expected
+ * rank of the element poll returns is O(m), independent of the number of
+ * elements, and ranks much bigger than m are exponentially unlikely;
+ * ConcurrentMultiQueueTest checks that the mean rank stays below m.
+ * With one heap the queue is exact.  poll returns null only if every
+ * heap was empty when it checked.
+ *
+ * @param <E>
+ */
+public class ConcurrentMultiQueue<E> {
+
+	// tries with two random heaps before poll scans all of them
+	private static final int POLL_ATTEMPTS = 8;
+
+	/**
+	 * One heap, its lock, and a copy of its smallest element that can be
+	 * read without the lock.
+	 */
+	private static class SubQueue<E> {
+		final ReentrantLock lock = new ReentrantLock();
+		final MyHeap<E> heap;
+		volatile E top;
+
+		SubQueue(Comparator<? super E> comparator) {
+			heap = new MyHeap<E>(comparator, 4);
+		}
+
+		/**
+		 * Must be called with the lock held.
+		 */
+		E poll() {
+			E element = heap.poll();
+			top = heap.peek();
+			return element;
+		}
+
+		/**
+		 * Must be called with the lock held.
+		 */
+		void push(E element) {
+			heap.push(element);
+			top = heap.peek();
+		}
+	}
+
+	private final Comparator<? super E> comparator;
+	private final SubQueue<E>[] queues;
+
+	/**
+	 * Makes a queue with two heaps per available processor, using the natural ordering.
+	 */
+	public ConcurrentMultiQueue() {
+		this(2 * Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	/**
+	 * Makes a queue with `numQueues` heaps.
+	 *
+	 * Twice the number of threads that use the queue is a good choice;
+	 * fewer heaps means less relaxation but more contention.
+	 *
+	 * @param numQueues
+	 * @param comparator null to use the natural ordering
+	 */
+	public ConcurrentMultiQueue(int numQueues, Comparator<? super E> comparator) {
+		if (numQueues < 1) {
+			throw new IllegalArgumentException("Illegal number of queues: " + numQueues);
+		}
+		this.comparator = comparator;
+		@SuppressWarnings("unchecked")
+		SubQueue<E>[] queues = (SubQueue<E>[]) new SubQueue<?>[numQueues];
+		this.queues = queues;
+		for (int i = 0; i < numQueues; i++) {
+			queues[i] = new SubQueue<E>(comparator);
+		}
+	}
+
+	/**
+	 * Returns the number of heaps, which bounds the relaxation.
+	 *
+	 * @return
+	 */
+	public int numQueues() {
+		return queues.length;
+	}
+
+	/**
+	 * Adds an element.
+	 *
+	 * @param element
+	 */
+	public void offer(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (true) {
+			SubQueue<E> queue = queues[random.nextInt(queues.length)];
+			// if another thread has this heap, try a different one
+			if (queue.lock.tryLock()) {
+				try {
+					queue.push(element);
+					return;
+				} finally {
+					queue.lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns an element near the front of the queue.
+	 *
+	 * @return the element, or null if the queue is empty
+	 */
+	public E poll() {
+		if (queues.length > 1) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int attempt = 0; attempt < POLL_ATTEMPTS; attempt++) {
+				SubQueue<E> first = queues[random.nextInt(queues.length)];
+				SubQueue<E> second = queues[random.nextInt(queues.length)];
+				E top1 = first.top;
+				E top2 = second.top;
+				if (top1 == null && top2 == null) {
+					break;
+				}
+				SubQueue<E> queue = (top2 == null || (top1 != null && compare(top1, top2) <= 0))
+						? first : second;
+				if (queue.lock.tryLock()) {
+					try {
+						E element = queue.poll();
+						if (element != null) {
+							return element;
+						}
+					} finally {
+						queue.lock.unlock();
+					}
+				}
+			}
+		}
+		return pollAny();
+	}
+
+	/**
+	 * Takes the smallest element of the first non-empty heap, waiting for locks.
+	 */
+	private E pollAny() {
+		int start = ThreadLocalRandom.current().nextInt(queues.length);
+		for (int i = 0; i < queues.length; i++) {
+			SubQueue<E> queue = queues[(start + i) % queues.length];
+			if (queue.top == null) {
+				continue;
+			}
+			queue.lock.lock();
+			try {
+				E element = queue.poll();
+				if (element != null) {
+					return element;
+				}
+			} finally {
+				queue.lock.unlock();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 *
+	 * If other threads are changing the queue, the result might be out of date.
+	 *
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+		for (SubQueue<E> queue: queues) {
+			queue.lock.lock();
+			try {
+				size += queue.heap.size();
+			} finally {
+				queue.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Checks whether the queue is empty, subject to the same caveat as size.
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		for (SubQueue<E> queue: queues) {
+			if (queue.top != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(E a, E b) {
+		return comparator == null ? ((Comparable<? super E>) a).compareTo(b) : comparator.compare(a, b);
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<Integer>(4, null);
+		for (int i = 0; i < 20; i++) {
+			queue.offer(i);
+		}
+		StringBuilder sb = new StringBuilder();
+		while (!queue.isEmpty()) {
+			sb.append(queue.poll()).append(' ');
+		}
+		System.out.println(sb);
+	}
+}
@@ -0,0 +1,133 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class ConcurrentMultiQueueTest {
+
+	/**
+	 * With one heap, the queue is exact.
+	 */
+	@Test
+	public void testSingleQueueIsExact() {
+		ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<Integer>(1, null);
+		for (int x: shuffled(1000)) {
+			queue.offer(x);
+		}
+		assertThat(queue.size(), is(1000));
+		for (int i = 0; i < 1000; i++) {
+			assertThat(queue.poll(), is(i));
+		}
+		assertThat(queue.isEmpty(), is(true));
+		assertThat(queue.poll(), nullValue());
+	}
+
+	/**
+	 * Checks the documented relaxation: with m heaps, the mean rank of the
+	 * polled elements stays below m, and no element is lost.
+	 */
+	@Test
+	public void testRankError() {
+		int n = 20000;
+		for (int m: new int[] {4, 16}) {
+			ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<Integer>(m, null);
+			for (int x: shuffled(n)) {
+				queue.offer(x);
+			}
+
+			// removed[x] is 1 once x has been polled; a Fenwick tree counts them
+			int[] tree = new int[n + 1];
+			long totalRank = 0;
+			int maxRank = 0;
+			for (int i = 0; i < n; i++) {
+				int x = queue.poll();
+				int smallerRemoved = 0;
+				for (int j = x; j > 0; j -= j & -j) {
+					smallerRemoved += tree[j];
+				}
+				int rank = x - smallerRemoved;
+				totalRank += rank;
+				maxRank = Math.max(maxRank, rank);
+				for (int j = x + 1; j <= n; j += j & -j) {
+					tree[j]++;
+				}
+			}
+			assertThat(queue.poll(), nullValue());
+			double meanRank = (double) totalRank / n;
+			assertThat("mean rank " + meanRank, meanRank < m, is(true));
+			assertThat("max rank " + maxRank, maxRank < 20 * m, is(true));
+		}
+	}
+
+	/**
+	 * Several threads offer and poll at once; every element comes out exactly once.
+	 */
+	@Test
+	public void testConcurrentOfferAndPoll() throws InterruptedException {
+		final int threads = 8;
+		final int perThread = 10000;
+		final ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<Integer>(2 * threads, null);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(threads * perThread);
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final int base = t * perThread;
+			workers.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; i++) {
+						queue.offer(base + i);
+						if (i % 2 == 1) {
+							seen.incrementAndGet(pollUntilFound(queue));
+							seen.incrementAndGet(pollUntilFound(queue));
+						}
+					}
+				}
+			});
+		}
+		for (Thread worker: workers) {
+			worker.start();
+		}
+		for (Thread worker: workers) {
+			worker.join();
+		}
+		assertThat(queue.isEmpty(), is(true));
+		for (int i = 0; i < seen.length(); i++) {
+			assertThat(seen.get(i), is(1));
+		}
+	}
+
+	/**
+	 * poll can miss an element another thread offers while it is scanning,
+	 * so retry until it finds one.
+	 */
+	private static int pollUntilFound(ConcurrentMultiQueue<Integer> queue) {
+		while (true) {
+			Integer x = queue.poll();
+			if (x != null) {
+				return x;
+			}
+		}
+	}
+
+	private static List<Integer> shuffled(int n) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			list.add(i);
+		}
+		Collections.shuffle(list, new Random(n));
+		return list;
+	}
+}
@@ -0,0 +1,447 @@
+package com.allendowney.thinkdast;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Sorts more data than fits in memory.
+ *
+ * The input is read in runs of at most `runSize` elements; each run is
+ * sorted in memory with ListSorter and written to a temporary file.  Then
+ * the runs are merged, k at a time, using a heap that holds the next
+ * element from each run.  Every open run needs a read buffer, so the
+ * memory budget determines how many runs can be merged at once; if there
+ * are more, the merge takes more than one pass.
+ *
+ * Elements are written to the run files with a Codec, each one preceded
+ * by its length.  The sort is stable.
+ *
+ * @param <T>
+ */
+public class ExternalSorter<T> {
+
+	/**
+	 * Converts elements to and from bytes.
+	 *
+	 * @param <T>
+	 */
+	public interface Codec<T> {
+		byte[] encode(T element);
+		T decode(byte[] bytes);
+	}
+
+	/**
+	 * Codec for Strings, using UTF-8.
+	 */
+	public static final Codec<String> STRINGS = new Codec<String>() {
+		@Override
+		public byte[] encode(String element) {
+			return element.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String decode(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	public static final int DEFAULT_RUN_SIZE = 1 << 16;
+	public static final long DEFAULT_MEMORY_BUDGET = 16 << 20;
+
+	// size of the buffer for each run file
+	static final int BUFFER_SIZE = 1 << 16;
+
+	private final Comparator<T> comparator;
+	private final Codec<T> codec;
+	private final int runSize;
+	private final int fanIn;
+	private final Path tempDirectory;
+
+	/**
+	 * Makes a sorter with the default run size and memory budget that
+	 * puts its run files in the system temporary directory.
+	 *
+	 * @param comparator
+	 * @param codec
+	 */
+	public ExternalSorter(Comparator<T> comparator, Codec<T> codec) {
+		this(comparator, codec, DEFAULT_RUN_SIZE, DEFAULT_MEMORY_BUDGET, null);
+	}
+
+	/**
+	 * Makes a sorter.
+	 *
+	 * @param comparator
+	 * @param codec
+	 * @param runSize maximum number of elements sorted in memory at a time
+	 * @param memoryBudget bytes of file buffers the merge may use
+	 * @param tempDirectory where to put the run files, or null for the system default
+	 */
+	public ExternalSorter(Comparator<T> comparator, Codec<T> codec, int runSize,
+						  long memoryBudget, Path tempDirectory) {
+		if (runSize < 1) {
+			throw new IllegalArgumentException("Illegal run size: " + runSize);
+		}
+		if (memoryBudget < 3L * BUFFER_SIZE) {
+			throw new IllegalArgumentException("Memory budget too small: " + memoryBudget);
+		}
+		this.comparator = comparator;
+		this.codec = codec;
+		this.runSize = runSize;
+		// one buffer for each input run, plus one for the output
+		this.fanIn = (int) Math.min(memoryBudget / BUFFER_SIZE - 1, Integer.MAX_VALUE);
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * Returns the number of runs merged at a time.
+	 *
+	 * @return
+	 */
+	public int fanIn() {
+		return fanIn;
+	}
+
+	/**
+	 * Sorts the elements from `input` and passes them to `output` in order.
+	 *
+	 * @param input
+	 * @param output
+	 * @throws IOException
+	 */
+	public void sort(Iterator<? extends T> input, Consumer<? super T> output) throws IOException {
+		ListSorter<T> sorter = new ListSorter<T>();
+		List<Path> runs = new ArrayList<Path>();
+		Path directory = null;
+		try {
+			@SuppressWarnings("unchecked")
+			T[] buffer = (T[]) new Object[runSize];
+			while (input.hasNext()) {
+				int n = 0;
+				while (n < runSize && input.hasNext()) {
+					buffer[n++] = input.next();
+				}
+				T[] run = n == runSize ? buffer : Arrays.copyOf(buffer, n);
+				sorter.mergeSort(run, comparator);
+
+				if (runs.isEmpty() && !input.hasNext()) {
+					// everything fit in memory
+					for (T element: run) {
+						output.accept(element);
+					}
+					return;
+				}
+				if (directory == null) {
+					directory = createDirectory();
+				}
+				runs.add(writeRun(directory, run));
+			}
+
+			// merge groups of runs until there are few enough for one pass
+			while (runs.size() > fanIn) {
+				List<Path> merged = new ArrayList<Path>();
+				for (int i = 0; i < runs.size(); i += fanIn) {
+					List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+					merged.add(mergeToFile(directory, group));
+				}
+				runs = merged;
+			}
+			merge(runs, output);
+		} finally {
+			if (directory != null) {
+				deleteDirectory(directory);
+			}
+		}
+	}
+
+	/**
+	 * Sorts the elements of an Iterable and returns them in a List.
+	 *
+	 * Only useful when the result fits in memory, which is mostly for testing.
+	 *
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	public List<T> sort(Iterable<? extends T> input) throws IOException {
+		final List<T> result = new ArrayList<T>();
+		sort(input.iterator(), new Consumer<T>() {
+			@Override
+			public void accept(T element) {
+				result.add(element);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Makes a new directory for the run files of one sort.
+	 */
+	private Path createDirectory() throws IOException {
+		return tempDirectory == null
+				? Files.createTempDirectory("sort")
+				: Files.createTempDirectory(tempDirectory, "sort");
+	}
+
+	/**
+	 * Deletes the run files that are left, even if the sort failed, and their directory.
+	 */
+	private static void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			Iterator<Path> it = files.iterator();
+			while (it.hasNext()) {
+				Files.deleteIfExists(it.next());
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * Writes a sorted run to a new temporary file.
+	 */
+	private Path writeRun(Path directory, T[] run) throws IOException {
+		Path path = Files.createTempFile(directory, "run", ".tmp");
+		try (RunWriter writer = new RunWriter(path)) {
+			for (T element: run) {
+				writer.write(element);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Merges a group of runs into a new run, and deletes the old ones.
+	 */
+	private Path mergeToFile(Path directory, List<Path> group) throws IOException {
+		Path path = Files.createTempFile(directory, "run", ".tmp");
+		try (final RunWriter writer = new RunWriter(path)) {
+			merge(group, new Consumer<T>() {
+				@Override
+				public void accept(T element) {
+					writer.writeUnchecked(element);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		for (Path run: group) {
+			Files.delete(run);
+		}
+		return path;
+	}
+
+	/**
+	 * Merges sorted runs, passing the elements to `output` in order.
+	 *
+	 * The heap holds one reader for each run that isn't used up, ordered by
+	 * its next element; ties go to the earlier run, which keeps the sort
+	 * stable.
+	 */
+	private void merge(List<Path> runs, Consumer<? super T> output) throws IOException {
+		PriorityQueue<RunReader> heap = new PriorityQueue<RunReader>(Math.max(runs.size(), 1),
+				new Comparator<RunReader>() {
+					@Override
+					public int compare(RunReader r1, RunReader r2) {
+						int cmp = comparator.compare(r1.head, r2.head);
+						return cmp != 0 ? cmp : Integer.compare(r1.index, r2.index);
+					}
+				});
+		List<RunReader> readers = new ArrayList<RunReader>();
+		try {
+			for (int i = 0; i < runs.size(); i++) {
+				RunReader reader = new RunReader(runs.get(i), i);
+				readers.add(reader);
+				if (reader.advance()) {
+					heap.add(reader);
+				}
+			}
+			while (!heap.isEmpty()) {
+				RunReader reader = heap.poll();
+				output.accept(reader.head);
+				if (reader.advance()) {
+					heap.add(reader);
+				}
+			}
+		} finally {
+			for (RunReader reader: readers) {
+				reader.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes length-prefixed elements to a file through a buffer.
+	 */
+	private class RunWriter implements AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		RunWriter(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void write(T element) throws IOException {
+			byte[] bytes = codec.encode(element);
+			if (buffer.remaining() < 4 + bytes.length) {
+				flush();
+			}
+			if (buffer.remaining() < 4 + bytes.length) {
+				// too big for the buffer; write it directly
+				buffer.putInt(bytes.length);
+				flush();
+				writeFully(ByteBuffer.wrap(bytes));
+				return;
+			}
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+
+		void writeUnchecked(T element) {
+			try {
+				write(element);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			writeFully(buffer);
+			buffer.clear();
+		}
+
+		private void writeFully(ByteBuffer source) throws IOException {
+			while (source.hasRemaining()) {
+				channel.write(source);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads length-prefixed elements from a file through a buffer.
+	 */
+	private class RunReader {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private final int index;
+		private T head;
+
+		RunReader(Path path, int index) throws IOException {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+			this.index = index;
+			buffer.flip();    // start out empty
+		}
+
+		/**
+		 * Reads the next element into `head`.
+		 *
+		 * @return false if the run is used up
+		 */
+		boolean advance() throws IOException {
+			if (!fill(4)) {
+				if (buffer.hasRemaining()) {
+					throw new EOFException("Truncated run file");
+				}
+				head = null;
+				return false;
+			}
+			int length = buffer.getInt();
+			byte[] bytes = new byte[length];
+			int copied = Math.min(length, buffer.remaining());
+			buffer.get(bytes, 0, copied);
+			if (copied < length) {
+				// the rest of a big element goes straight into the array
+				ByteBuffer rest = ByteBuffer.wrap(bytes, copied, length - copied);
+				while (rest.hasRemaining()) {
+					if (channel.read(rest) < 0) {
+						throw new EOFException("Truncated run file");
+					}
+				}
+			}
+			head = codec.decode(bytes);
+			return true;
+		}
+
+		/**
+		 * Makes sure the buffer has at least `needed` bytes, if the file does.
+		 */
+		private boolean fill(int needed) throws IOException {
+			if (buffer.remaining() >= needed) {
+				return true;
+			}
+			buffer.compact();
+			try {
+				while (buffer.position() < needed) {
+					if (channel.read(buffer) < 0) {
+						return false;
+					}
+				}
+				return true;
+			} finally {
+				buffer.flip();
+			}
+		}
+
+		void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Sorts the words in a text file, one word per line, into another file.
+	 *
+	 * @param args input and output file names
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: ExternalSorter input output");
+			return;
+		}
+		ExternalSorter<String> sorter = new ExternalSorter<String>(
+				Comparator.<String>naturalOrder(), STRINGS);
+		try (Stream<String> lines = Files.lines(Paths.get(args[0]), StandardCharsets.UTF_8);
+			 final BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+			sorter.sort(lines.iterator(), new Consumer<String>() {
+				@Override
+				public void accept(String line) {
+					try {
+						writer.write(line);
+						writer.newLine();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+}
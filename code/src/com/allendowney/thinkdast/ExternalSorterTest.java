@@ -0,0 +1,152 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class ExternalSorterTest {
+
+	private Path directory;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("ExternalSorterTest");
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		Files.delete(directory);
+	}
+
+	/**
+	 * Test method for {@link ExternalSorter#sort(java.lang.Iterable)}.
+	 */
+	@Test
+	public void testSort() throws IOException {
+		List<String> words = randomWords(10000);
+		List<String> expected = new ArrayList<String>(words);
+		Collections.sort(expected);
+
+		// 100 runs and a fan-in of 4, so the merge takes several passes
+		ExternalSorter<String> sorter = new ExternalSorter<String>(Comparator.<String>naturalOrder(),
+				ExternalSorter.STRINGS, 100, 5 * ExternalSorter.BUFFER_SIZE, directory);
+		assertThat(sorter.fanIn(), is(4));
+		assertThat(sorter.sort(words), is(expected));
+		assertThat(isEmpty(directory), is(true));
+
+		// everything fits in one run
+		sorter = new ExternalSorter<String>(Comparator.<String>naturalOrder(),
+				ExternalSorter.STRINGS, 100000, ExternalSorter.DEFAULT_MEMORY_BUDGET, directory);
+		assertThat(sorter.sort(words), is(expected));
+		assertThat(sorter.sort(new ArrayList<String>()).size(), is(0));
+	}
+
+	/**
+	 * Checks elements bigger than the file buffers.
+	 */
+	@Test
+	public void testSortBigElements() throws IOException {
+		List<String> words = new ArrayList<String>();
+		for (char c = 'z'; c >= 'a'; c--) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < ExternalSorter.BUFFER_SIZE / 3; i++) {
+				sb.append(c);
+			}
+			words.add(sb.toString());
+			words.add(Character.toString(c));
+		}
+		List<String> expected = new ArrayList<String>(words);
+		Collections.sort(expected);
+
+		ExternalSorter<String> sorter = new ExternalSorter<String>(Comparator.<String>naturalOrder(),
+				ExternalSorter.STRINGS, 5, 3 * ExternalSorter.BUFFER_SIZE, directory);
+		assertThat(sorter.sort(words), is(expected));
+	}
+
+	/**
+	 * Checks that equal elements stay in their original order.
+	 */
+	@Test
+	public void testSortStable() throws IOException {
+		ExternalSorter.Codec<int[]> pairs = new ExternalSorter.Codec<int[]>() {
+			@Override
+			public byte[] encode(int[] pair) {
+				return ByteBuffer.allocate(8).putInt(pair[0]).putInt(pair[1]).array();
+			}
+
+			@Override
+			public int[] decode(byte[] bytes) {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				return new int[] {buffer.getInt(), buffer.getInt()};
+			}
+		};
+		Random random = new Random(37);
+		List<int[]> list = new ArrayList<int[]>();
+		for (int i = 0; i < 5000; i++) {
+			list.add(new int[] {random.nextInt(20), i});
+		}
+
+		Comparator<int[]> byKey = new Comparator<int[]>() {
+			@Override
+			public int compare(int[] p1, int[] p2) {
+				return Integer.compare(p1[0], p2[0]);
+			}
+		};
+		ExternalSorter<int[]> sorter = new ExternalSorter<int[]>(byKey, pairs, 64,
+				3 * ExternalSorter.BUFFER_SIZE, directory);
+		List<int[]> sorted = sorter.sort(list);
+		assertThat(sorted.size(), is(5000));
+		for (int i = 1; i < sorted.size(); i++) {
+			int[] prev = sorted.get(i - 1);
+			int[] next = sorted.get(i);
+			assertThat(prev[0] < next[0] || (prev[0] == next[0] && prev[1] < next[1]), is(true));
+		}
+	}
+
+	private static boolean isEmpty(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return !files.findAny().isPresent();
+		}
+	}
+
+	/**
+	 * Makes a list of random words, the same every time.
+	 */
+	private static List<String> randomWords(int n) {
+		Random random = new Random(n);
+		List<String> words = new ArrayList<String>();
+		for (int i = 0; i < n; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = 1 + random.nextInt(10);
+			for (int j = 0; j < length; j++) {
+				sb.append((char) ('a' + random.nextInt(26)));
+			}
+			words.add(sb.toString());
+		}
+		return words;
+	}
+}
@@ -20,6 +20,13 @@ import redis.clients.jedis.Transaction;
  */
 public class JedisIndex {
 
+	private static final MetricsRegistry.Counter PAGES =
+			MetricsRegistry.global().counter("index.pages");
+	private static final MetricsRegistry.Counter COMMANDS =
+			MetricsRegistry.global().counter("index.redis_commands");
+	private static final MetricsRegistry.Histogram TRANSACTION_NANOS =
+			MetricsRegistry.global().histogram("index.transaction_ns");
+
 	private Jedis jedis;
 
 	/**
@@ -114,18 +121,29 @@ public class JedisIndex {
 	 * @param paragraphs  Collection of elements that should be indexed.
 	 */
 	public void indexPage(String url, Elements paragraphs) {
-		TermCounter termCounter = new TermCounter(url);
-		termCounter.processElements(paragraphs);
+		Tracer tracer = Tracer.global();
+		try (Tracer.Span span = tracer.start("index")) {
+			TermCounter termCounter = new TermCounter(url);
+			try (Tracer.Span count = tracer.start("count")) {
+				termCounter.processElements(paragraphs);
+			}
 
-		Transaction t = jedis.multi();
-		t.del(termCounterKey(url));
-		for (String term: termCounter.keySet()) {
-			// Url set
-			t.sadd(urlSetKey(term), termCounter.getLabel());
-			// Term counter
-			t.hset(termCounterKey(url), term, termCounter.get(term).toString());
+			long start = System.nanoTime();
+			try (Tracer.Span transaction = tracer.start("transaction")) {
+				Transaction t = jedis.multi();
+				t.del(termCounterKey(url));
+				for (String term: termCounter.keySet()) {
+					// Url set
+					t.sadd(urlSetKey(term), termCounter.getLabel());
+					// Term counter
+					t.hset(termCounterKey(url), term, termCounter.get(term).toString());
+				}
+				t.exec();
+			}
+			TRANSACTION_NANOS.recordSince(start);
+			PAGES.increment();
+			COMMANDS.add(1 + 2 * termCounter.keySet().size());
 		}
-		t.exec();
 	}
 
 	/**
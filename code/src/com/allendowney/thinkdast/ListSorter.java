@@ -6,6 +6,11 @@ import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
 
 /**
  * Provides sorting algorithms.
@@ -13,6 +18,21 @@ import java.util.PriorityQueue;
  */
 public class ListSorter<T> {
 
+	// runs this short are sorted with insertion sort
+	private static final int INSERTION_SORT_CUTOFF = 16;
+
+	// select gives up on median-of-three if this many rounds don't halve the range
+	static final int HALVING_ROUNDS = 3;
+
+	// default size below which the parallel merge sort works sequentially
+	public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+	// arrays shorter than this are sorted by timSort with binary insertion sort
+	private static final int MIN_MERGE = 32;
+
+	// number of consecutive wins before a timSort merge starts galloping
+	private static final int MIN_GALLOP = 7;
+
 	/**
 	 * Sorts a list using a Comparator object.
 	 * 
@@ -40,14 +60,942 @@ public class ListSorter<T> {
 	/**
 	 * Sorts a list using a Comparator object.
 	 * 
+	 * Copies the list into an array, sorts the array with a stable merge
+	 * sort that uses one scratch array of the same size, and copies the
+	 * results back.
+	 * 
 	 * @param list
 	 * @param comparator
 	 * @return
 	 */
 	public void mergeSortInPlace(List<T> list, Comparator<T> comparator) {
-		List<T> sorted = mergeSort(list, comparator);
-		list.clear();
-		list.addAll(sorted);
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		mergeSort(array, comparator);
+		writeBack(list, array);
+	}
+
+	/**
+	 * Sorts an array using a Comparator object.
+	 * 
+	 * The sort is stable and allocates a single scratch array.
+	 * 
+	 * @param array
+	 * @param comparator
+	 */
+	public void mergeSort(T[] array, Comparator<T> comparator) {
+		T[] scratch = array.clone();
+		mergeSort(scratch, array, 0, array.length, comparator);
+	}
+
+	/**
+	 * Sorts dest[lo, hi), using src[lo, hi) as scratch space.
+	 * 
+	 * src and dest have to start out with the same contents in that range.
+	 * Each level of the recursion swaps the roles of the two arrays, so
+	 * the merge step never has to copy its input first.
+	 * 
+	 * @param src
+	 * @param dest
+	 * @param lo
+	 * @param hi
+	 * @param comparator
+	 */
+	private void mergeSort(T[] src, T[] dest, int lo, int hi, Comparator<T> comparator) {
+		if (hi - lo <= INSERTION_SORT_CUTOFF) {
+			insertionSort(dest, lo, hi, comparator);
+			return;
+		}
+
+		// sort both halves of src, using dest as scratch
+		int mid = (lo + hi) >>> 1;
+		mergeSort(dest, src, lo, mid, comparator);
+		mergeSort(dest, src, mid, hi, comparator);
+
+		// if the halves are already in order, there's nothing to merge
+		if (comparator.compare(src[mid-1], src[mid]) <= 0) {
+			System.arraycopy(src, lo, dest, lo, hi - lo);
+			return;
+		}
+		merge(src, dest, lo, mid, hi, comparator);
+	}
+
+	/**
+	 * Merges the sorted runs src[lo, mid) and src[mid, hi) into dest[lo, hi).
+	 * 
+	 * When elements are equal, the one from the first run goes first,
+	 * which keeps the sort stable.
+	 * 
+	 * @param src
+	 * @param dest
+	 * @param lo
+	 * @param mid
+	 * @param hi
+	 * @param comparator
+	 */
+	private void merge(T[] src, T[] dest, int lo, int mid, int hi, Comparator<T> comparator) {
+		int i = lo;
+		int j = mid;
+		for (int k = lo; k < hi; k++) {
+			if (j >= hi || (i < mid && comparator.compare(src[i], src[j]) <= 0)) {
+				dest[k] = src[i++];
+			} else {
+				dest[k] = src[j++];
+			}
+		}
+	}
+
+	/**
+	 * Sorts array[lo, hi) with insertion sort.
+	 * 
+	 * @param array
+	 * @param lo
+	 * @param hi
+	 * @param comparator
+	 */
+	private void insertionSort(T[] array, int lo, int hi, Comparator<T> comparator) {
+		for (int i = lo + 1; i < hi; i++) {
+			T elt_i = array[i];
+			int j = i;
+			while (j > lo && comparator.compare(elt_i, array[j-1]) < 0) {
+				array[j] = array[j-1];
+				j--;
+			}
+			array[j] = elt_i;
+		}
+	}
+
+	/**
+	 * Sorts a list using multiple threads.
+	 * 
+	 * Gives the same results as mergeSortInPlace, including the order of
+	 * equal elements.
+	 * 
+	 * @param list
+	 * @param comparator
+	 */
+	public void parallelMergeSortInPlace(List<T> list, Comparator<T> comparator) {
+		parallelMergeSortInPlace(list, comparator, PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Sorts a list using multiple threads.
+	 * 
+	 * @param list
+	 * @param comparator
+	 * @param threshold pieces smaller than this are sorted and merged sequentially
+	 */
+	public void parallelMergeSortInPlace(List<T> list, Comparator<T> comparator, int threshold) {
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		parallelMergeSort(array, comparator, threshold);
+		writeBack(list, array);
+	}
+
+	/**
+	 * Sorts an array with a stable merge sort that runs in the common ForkJoinPool,
+	 * or in the current pool if called from inside one.
+	 * 
+	 * Both the recursive sorts and the merges are split into tasks, so the
+	 * final merge doesn't run on a single core.
+	 * 
+	 * @param array
+	 * @param comparator
+	 * @param threshold pieces smaller than this are sorted and merged sequentially
+	 */
+	public void parallelMergeSort(T[] array, Comparator<T> comparator, int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Illegal threshold: " + threshold);
+		}
+		T[] scratch = array.clone();
+		if (array.length <= threshold) {
+			mergeSort(scratch, array, 0, array.length, comparator);
+			return;
+		}
+		SortTask task = new SortTask(scratch, array, 0, array.length, comparator, threshold);
+		if (ForkJoinTask.inForkJoinPool()) {
+			// already in a pool, maybe one with a given parallelism; stay there
+			task.invoke();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+	}
+
+	/**
+	 * Sorts dest[lo, hi) using src[lo, hi) as scratch; see mergeSort.
+	 */
+	private class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] src;
+		private final T[] dest;
+		private final int lo;
+		private final int hi;
+		private final Comparator<T> comparator;
+		private final int threshold;
+
+		SortTask(T[] src, T[] dest, int lo, int hi, Comparator<T> comparator, int threshold) {
+			this.src = src;
+			this.dest = dest;
+			this.lo = lo;
+			this.hi = hi;
+			this.comparator = comparator;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= threshold) {
+				mergeSort(src, dest, lo, hi, comparator);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new SortTask(dest, src, lo, mid, comparator, threshold),
+					  new SortTask(dest, src, mid, hi, comparator, threshold));
+
+			if (comparator.compare(src[mid-1], src[mid]) <= 0) {
+				System.arraycopy(src, lo, dest, lo, hi - lo);
+				return;
+			}
+			new MergeTask(src, dest, lo, mid, mid, hi, lo, comparator, threshold).invoke();
+		}
+	}
+
+	/**
+	 * Merges src[lo1, hi1) and src[lo2, hi2) into dest, starting at destLo.
+	 * 
+	 * Splits the longer run at its middle element, finds where that element
+	 * would go in the other run, and merges the two halves in parallel.
+	 * Equal elements from the first run always end up before those from
+	 * the second, so the merge is stable.
+	 */
+	private class MergeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] src;
+		private final T[] dest;
+		private final int lo1, hi1, lo2, hi2, destLo;
+		private final Comparator<T> comparator;
+		private final int threshold;
+
+		MergeTask(T[] src, T[] dest, int lo1, int hi1, int lo2, int hi2, int destLo,
+				Comparator<T> comparator, int threshold) {
+			this.src = src;
+			this.dest = dest;
+			this.lo1 = lo1;
+			this.hi1 = hi1;
+			this.lo2 = lo2;
+			this.hi2 = hi2;
+			this.destLo = destLo;
+			this.comparator = comparator;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			int n1 = hi1 - lo1;
+			int n2 = hi2 - lo2;
+			// (with fewer than 3 elements, a split might not make the pieces smaller)
+			if (n1 + n2 <= Math.max(threshold, 2) || n1 == 0 || n2 == 0) {
+				sequentialMerge();
+				return;
+			}
+
+			int split1, split2;
+			if (n1 >= n2) {
+				// elements of the second run that are less than the pivot go left
+				split1 = (lo1 + hi1) >>> 1;
+				split2 = lowerBound(src, lo2, hi2, src[split1], comparator);
+			} else {
+				// elements of the first run that are <= the pivot go left
+				split2 = (lo2 + hi2) >>> 1;
+				split1 = upperBound(src, lo1, hi1, src[split2], comparator);
+			}
+			int destMid = destLo + (split1 - lo1) + (split2 - lo2);
+			invokeAll(new MergeTask(src, dest, lo1, split1, lo2, split2, destLo, comparator, threshold),
+					  new MergeTask(src, dest, split1, hi1, split2, hi2, destMid, comparator, threshold));
+		}
+
+		private void sequentialMerge() {
+			int i = lo1;
+			int j = lo2;
+			int k = destLo;
+			while (i < hi1 && j < hi2) {
+				if (comparator.compare(src[i], src[j]) <= 0) {
+					dest[k++] = src[i++];
+				} else {
+					dest[k++] = src[j++];
+				}
+			}
+			System.arraycopy(src, i, dest, k, hi1 - i);
+			System.arraycopy(src, j, dest, k + (hi1 - i), hi2 - j);
+		}
+	}
+
+	/**
+	 * Sorts a list with an adaptive merge sort modeled on TimSort.
+	 * 
+	 * The sort finds runs that are already in order (or in strictly
+	 * reverse order), so it takes linear time on sorted input and not much
+	 * more on input that is nearly sorted.  It is stable.
+	 * 
+	 * @param list
+	 * @param comparator
+	 */
+	public void timSort(List<T> list, Comparator<T> comparator) {
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		timSort(array, comparator);
+		writeBack(list, array);
+	}
+
+	/**
+	 * Sorts an array with an adaptive merge sort modeled on TimSort.
+	 * 
+	 * @param array
+	 * @param comparator
+	 */
+	public void timSort(T[] array, Comparator<T> comparator) {
+		new RunMerger(array, comparator).sort();
+	}
+
+	/**
+	 * State of one timSort: the array, a stack of pending runs and the
+	 * scratch array used for merging.
+	 * 
+	 * Runs on the stack satisfy the TimSort invariants: each run is longer
+	 * than the next one, and longer than the next two combined, so the
+	 * merges stay balanced and the stack stays short.
+	 */
+	private class RunMerger {
+		private final T[] a;
+		private final Comparator<T> comparator;
+
+		private final int[] runBase;
+		private final int[] runLen;
+		private int stackSize = 0;
+
+		private T[] tmp;                    // allocated on the first merge
+		private int minGallop = MIN_GALLOP; // adapts to how well galloping pays off
+
+		RunMerger(T[] a, Comparator<T> comparator) {
+			this.a = a;
+			this.comparator = comparator;
+			// every run but the last has at least minRun elements
+			int maxRuns = a.length / Math.max(minRunLength(a.length), 1) + 2;
+			runBase = new int[maxRuns];
+			runLen = new int[maxRuns];
+		}
+
+		void sort() {
+			int n = a.length;
+			if (n < 2) {
+				return;
+			}
+			if (n < MIN_MERGE) {
+				int initRunLen = countRunAndMakeAscending(0, n);
+				binaryInsertionSort(0, n, initRunLen);
+				return;
+			}
+
+			int minRun = minRunLength(n);
+			int lo = 0;
+			while (lo < n) {
+				int runLength = countRunAndMakeAscending(lo, n);
+
+				// extend short runs to minRun elements
+				if (runLength < minRun) {
+					int force = Math.min(minRun, n - lo);
+					binaryInsertionSort(lo, lo + force, lo + runLength);
+					runLength = force;
+				}
+				runBase[stackSize] = lo;
+				runLen[stackSize] = runLength;
+				stackSize++;
+				mergeCollapse();
+				lo += runLength;
+			}
+			mergeForceCollapse();
+		}
+
+		/**
+		 * Returns the length of the run that starts at lo, reversing it if
+		 * it is descending.
+		 * 
+		 * Only strictly descending runs are reversed, so equal elements
+		 * keep their order.
+		 */
+		private int countRunAndMakeAscending(int lo, int hi) {
+			int runHi = lo + 1;
+			if (runHi == hi) {
+				return 1;
+			}
+			if (comparator.compare(a[runHi++], a[lo]) < 0) {
+				while (runHi < hi && comparator.compare(a[runHi], a[runHi-1]) < 0) {
+					runHi++;
+				}
+				reverse(lo, runHi);
+			} else {
+				while (runHi < hi && comparator.compare(a[runHi], a[runHi-1]) >= 0) {
+					runHi++;
+				}
+			}
+			return runHi - lo;
+		}
+
+		private void reverse(int lo, int hi) {
+			hi--;
+			while (lo < hi) {
+				T t = a[lo];
+				a[lo++] = a[hi];
+				a[hi--] = t;
+			}
+		}
+
+		/**
+		 * Sorts a[lo, hi), given that a[lo, start) is already sorted.
+		 */
+		private void binaryInsertionSort(int lo, int hi, int start) {
+			for ( ; start < hi; start++) {
+				T pivot = a[start];
+				// insert after any equal elements, for stability
+				int pos = upperBound(a, lo, start, pivot, comparator);
+				System.arraycopy(a, pos, a, pos + 1, start - pos);
+				a[pos] = pivot;
+			}
+		}
+
+		/**
+		 * Merges runs until the invariants hold again.
+		 */
+		private void mergeCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLen[n-1] <= runLen[n] + runLen[n+1]
+						|| n > 1 && runLen[n-2] <= runLen[n] + runLen[n-1]) {
+					if (runLen[n-1] < runLen[n+1]) {
+						n--;
+					}
+				} else if (runLen[n] > runLen[n+1]) {
+					break;
+				}
+				mergeAt(n);
+			}
+		}
+
+		/**
+		 * Merges all remaining runs.
+		 */
+		private void mergeForceCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLen[n-1] < runLen[n+1]) {
+					n--;
+				}
+				mergeAt(n);
+			}
+		}
+
+		/**
+		 * Merges run i with run i+1.
+		 */
+		private void mergeAt(int i) {
+			int base1 = runBase[i];
+			int len1 = runLen[i];
+			int base2 = runBase[i+1];
+			int len2 = runLen[i+1];
+
+			runLen[i] = len1 + len2;
+			if (i == stackSize - 3) {
+				runBase[i+1] = runBase[i+2];
+				runLen[i+1] = runLen[i+2];
+			}
+			stackSize--;
+
+			// elements of run 1 that go before all of run 2 are already in place
+			int k = gallopRight(a[base2], a, base1, len1);
+			base1 += k;
+			len1 -= k;
+			if (len1 == 0) {
+				return;
+			}
+
+			// so are elements of run 2 that go after all of run 1
+			len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2);
+			if (len2 == 0) {
+				return;
+			}
+			mergeLo(base1, len1, base2, len2);
+		}
+
+		/**
+		 * Merges two adjacent runs, copying the first one to tmp.
+		 * 
+		 * Merges one element at a time until one run wins minGallop times
+		 * in a row, then switches to galloping: it searches for how many
+		 * elements of each run go next and moves them as a block.
+		 */
+		private void mergeLo(int base1, int len1, int base2, int len2) {
+			if (tmp == null || tmp.length < len1) {
+				@SuppressWarnings("unchecked")
+				T[] bigger = (T[]) new Object[Math.max(len1, Math.min(a.length, 256))];
+				tmp = bigger;
+			}
+			System.arraycopy(a, base1, tmp, 0, len1);
+
+			int cursor1 = 0;          // in tmp
+			int cursor2 = base2;      // in a
+			int end2 = base2 + len2;
+			int dest = base1;
+
+			outer:
+			while (true) {
+				int count1 = 0;       // times in a row run 1 won
+				int count2 = 0;       // times in a row run 2 won
+
+				// one element at a time
+				do {
+					if (comparator.compare(a[cursor2], tmp[cursor1]) < 0) {
+						a[dest++] = a[cursor2++];
+						count2++;
+						count1 = 0;
+						if (cursor2 == end2) {
+							break outer;
+						}
+					} else {
+						a[dest++] = tmp[cursor1++];
+						count1++;
+						count2 = 0;
+						if (cursor1 == len1) {
+							break outer;
+						}
+					}
+				} while ((count1 | count2) < minGallop);
+
+				// galloping
+				do {
+					count1 = gallopRight(a[cursor2], tmp, cursor1, len1 - cursor1);
+					System.arraycopy(tmp, cursor1, a, dest, count1);
+					dest += count1;
+					cursor1 += count1;
+					if (cursor1 == len1) {
+						break outer;
+					}
+					a[dest++] = a[cursor2++];
+					if (cursor2 == end2) {
+						break outer;
+					}
+
+					count2 = gallopLeft(tmp[cursor1], a, cursor2, end2 - cursor2);
+					System.arraycopy(a, cursor2, a, dest, count2);
+					dest += count2;
+					cursor2 += count2;
+					if (cursor2 == end2) {
+						break outer;
+					}
+					a[dest++] = tmp[cursor1++];
+					if (cursor1 == len1) {
+						break outer;
+					}
+					if (minGallop > 1) {
+						minGallop--;
+					}
+				} while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+
+				// galloping stopped paying off; make it harder to start again
+				minGallop += 2;
+			}
+
+			// whatever is left of run 2 is already in place
+			if (cursor1 < len1) {
+				System.arraycopy(tmp, cursor1, a, dest, len1 - cursor1);
+			}
+		}
+
+		/**
+		 * Returns how many elements at the start of the sorted range
+		 * array[base, base+len) are less than `key`.
+		 * 
+		 * Searches exponentially from the start, then binary searches, so
+		 * it is fast when the answer is small.
+		 */
+		private int gallopLeft(T key, T[] array, int base, int len) {
+			int lastOfs = 0;
+			int ofs = 1;
+			while (ofs < len && comparator.compare(array[base + ofs - 1], key) < 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) {     // overflow
+					ofs = len;
+				}
+			}
+			ofs = Math.min(ofs, len);
+			return lowerBound(array, base + lastOfs, base + ofs, key, comparator) - base;
+		}
+
+		/**
+		 * Returns how many elements at the start of the sorted range
+		 * array[base, base+len) are less than or equal to `key`.
+		 */
+		private int gallopRight(T key, T[] array, int base, int len) {
+			int lastOfs = 0;
+			int ofs = 1;
+			while (ofs < len && comparator.compare(array[base + ofs - 1], key) <= 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) {     // overflow
+					ofs = len;
+				}
+			}
+			ofs = Math.min(ofs, len);
+			return upperBound(array, base + lastOfs, base + ofs, key, comparator) - base;
+		}
+	}
+
+	/**
+	 * Returns the smallest run length timSort will merge, chosen so that
+	 * n / minRun is a power of two or a little less.
+	 */
+	private static int minRunLength(int n) {
+		int r = 0;
+		while (n >= MIN_MERGE) {
+			r |= (n & 1);
+			n >>= 1;
+		}
+		return n + r;
+	}
+
+	/**
+	 * Sorts a list by an int key without comparing elements.
+	 *
+	 * The key of each element is computed once.  If the keys fall in a
+	 * range not much bigger than the list, this is a single counting sort;
+	 * otherwise it is an LSD radix sort, one pass per byte of the key,
+	 * that skips bytes all the keys share.  Either way it takes linear
+	 * time and is stable.
+	 *
+	 * @param list
+	 * @param key
+	 */
+	public void radixSort(List<T> list, ToIntFunction<? super T> key) {
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		radixSort(array, key);
+		writeBack(list, array);
+	}
+
+	/**
+	 * Sorts an array by an int key without comparing elements.
+	 *
+	 * @param array
+	 * @param key
+	 */
+	public void radixSort(T[] array, ToIntFunction<? super T> key) {
+		int n = array.length;
+		if (n <= 1) {
+			return;
+		}
+		int[] keys = new int[n];
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int i = 0; i < n; i++) {
+			int k = key.applyAsInt(array[i]);
+			keys[i] = k;
+			min = Math.min(min, k);
+			max = Math.max(max, k);
+		}
+
+		// use long arithmetic, since max - min can overflow an int
+		long range = (long) max - min + 1;
+		if (range <= Math.max(2L * n, 256)) {
+			countingSort(array, keys, min, (int) range);
+		} else {
+			lsdRadixSort(array, keys);
+		}
+	}
+
+	/**
+	 * Sorts `array` by `keys`, all of which are in [min, min + range).
+	 */
+	private void countingSort(T[] array, int[] keys, int min, int range) {
+		int n = array.length;
+		int[] count = new int[range + 1];
+		for (int k: keys) {
+			count[k - min + 1]++;
+		}
+		for (int r = 0; r < range; r++) {
+			count[r+1] += count[r];
+		}
+		T[] sorted = Arrays.copyOf(array, n);
+		for (int i = 0; i < n; i++) {
+			sorted[count[keys[i] - min]++] = array[i];
+		}
+		System.arraycopy(sorted, 0, array, 0, n);
+	}
+
+	/**
+	 * Sorts `array` by `keys` one byte at a time, least significant first,
+	 * moving the keys along with the elements.
+	 */
+	private void lsdRadixSort(T[] array, int[] keys) {
+		int n = array.length;
+		T[] src = array;
+		T[] dest = Arrays.copyOf(array, n);
+		int[] srcKeys = keys;
+		int[] destKeys = new int[n];
+
+		for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+			int[] count = new int[257];
+			for (int k: srcKeys) {
+				count[RadixSort.digit(k, shift) + 1]++;
+			}
+			if (count[RadixSort.digit(srcKeys[0], shift) + 1] == n) {
+				continue;
+			}
+			for (int r = 0; r < 256; r++) {
+				count[r+1] += count[r];
+			}
+			for (int i = 0; i < n; i++) {
+				int j = count[RadixSort.digit(srcKeys[i], shift)]++;
+				dest[j] = src[i];
+				destKeys[j] = srcKeys[i];
+			}
+			T[] temp = src;
+			src = dest;
+			dest = temp;
+			int[] tempKeys = srcKeys;
+			srcKeys = destKeys;
+			destKeys = tempKeys;
+		}
+		if (src != array) {
+			System.arraycopy(src, 0, array, 0, n);
+		}
+	}
+
+	/**
+	 * Rearranges a list so the element at index `n` is the one that would
+	 * be there if the list were sorted.
+	 *
+	 * Elements before index n are not greater than it, and elements after
+	 * are not less, but otherwise in no particular order.  Takes linear time.
+	 *
+	 * @param list
+	 * @param n
+	 * @param comparator
+	 * @return the element at index n
+	 */
+	public T nthElement(List<T> list, int n, Comparator<T> comparator) {
+		if (n < 0 || n >= list.size()) {
+			throw new IndexOutOfBoundsException("Index: " + n + ", Size: " + list.size());
+		}
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		nthElement(array, n, comparator);
+		writeBack(list, array);
+		return array[n];
+	}
+
+	/**
+	 * Rearranges an array so the element at index `n` is the one that
+	 * would be there if the array were sorted.
+	 *
+	 * This is introselect: quickselect with median-of-three pivots, which
+	 * takes linear time on average, as long as every HALVING_ROUNDS rounds
+	 * at least halve the range left to search.  The first time they don't,
+	 * it switches to median-of-medians pivots for the rest of the search.
+	 * So the median-of-three rounds cost at most HALVING_ROUNDS * 2n
+	 * comparisons in all, and median-of-medians is linear, which makes the
+	 * worst case linear even on inputs built to defeat quickselect.
+	 *
+	 * @param array
+	 * @param n
+	 * @param comparator
+	 */
+	public void nthElement(T[] array, int n, Comparator<T> comparator) {
+		select(array, 0, array.length, n, comparator, false);
+	}
+
+	/**
+	 * Sorts the `k` smallest elements of a list into its first k positions.
+	 *
+	 * The rest of the list ends up in no particular order.  Takes time
+	 * proportional to n + k log k, which is much less than sorting the
+	 * whole list when k is small.  Unlike the other sorts here, it is not
+	 * stable.
+	 *
+	 * @param list
+	 * @param k
+	 * @param comparator
+	 */
+	public void partialSort(List<T> list, int k, Comparator<T> comparator) {
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		partialSort(array, k, comparator);
+		writeBack(list, array);
+	}
+
+	/**
+	 * Sorts the `k` smallest elements of an array into its first k positions.
+	 *
+	 * @param array
+	 * @param k
+	 * @param comparator
+	 */
+	public void partialSort(T[] array, int k, Comparator<T> comparator) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Illegal k: " + k);
+		}
+		if (k >= array.length) {
+			mergeSort(array, comparator);
+			return;
+		}
+		if (k == 0) {
+			return;
+		}
+		nthElement(array, k - 1, comparator);
+		T[] scratch = Arrays.copyOf(array, k);
+		mergeSort(scratch, array, 0, k, comparator);
+	}
+
+	/**
+	 * Moves the element that belongs at index `n` there, considering only array[lo, hi).
+	 *
+	 * @param medianOfMedians whether to use median-of-medians pivots from the start
+	 */
+	void select(T[] array, int lo, int hi, int n, Comparator<T> comparator, boolean medianOfMedians) {
+		int rounds = 0;
+		int checkpoint = hi - lo;
+		while (hi - lo > INSERTION_SORT_CUTOFF) {
+			if (!medianOfMedians && rounds == HALVING_ROUNDS) {
+				// give up on median-of-three if the range hasn't halved
+				if (hi - lo > checkpoint / 2) {
+					medianOfMedians = true;
+				}
+				rounds = 0;
+				checkpoint = hi - lo;
+			}
+			T pivot;
+			if (medianOfMedians) {
+				pivot = medianOfMedians(array, lo, hi, comparator);
+			} else {
+				pivot = medianOfThree(array, lo, (lo + hi) >>> 1, hi - 1, comparator);
+				rounds++;
+			}
+
+			// three-way partition: [lo, lt) < pivot, [lt, gt) == pivot, [gt, hi) > pivot
+			int lt = lo;
+			int gt = hi;
+			int i = lo;
+			while (i < gt) {
+				int cmp = comparator.compare(array[i], pivot);
+				if (cmp < 0) {
+					swap(array, lt++, i++);
+				} else if (cmp > 0) {
+					swap(array, i, --gt);
+				} else {
+					i++;
+				}
+			}
+
+			if (n < lt) {
+				hi = lt;
+			} else if (n >= gt) {
+				lo = gt;
+			} else {
+				return;
+			}
+		}
+		insertionSort(array, lo, hi, comparator);
+	}
+
+	private T medianOfThree(T[] array, int a, int b, int c, Comparator<T> comparator) {
+		T x = array[a];
+		T y = array[b];
+		T z = array[c];
+		if (comparator.compare(x, y) < 0) {
+			if (comparator.compare(y, z) < 0) {
+				return y;
+			}
+			return comparator.compare(x, z) < 0 ? z : x;
+		}
+		if (comparator.compare(x, z) < 0) {
+			return x;
+		}
+		return comparator.compare(y, z) < 0 ? z : y;
+	}
+
+	/**
+	 * Returns a pivot that is guaranteed to have at least 30% of
+	 * array[lo, hi) on each side of it.
+	 *
+	 * Sorts each group of five elements, moves the medians of the groups
+	 * to the front of the range, and selects the median of those.
+	 */
+	private T medianOfMedians(T[] array, int lo, int hi, Comparator<T> comparator) {
+		int medians = lo;
+		for (int start = lo; start < hi; start += 5) {
+			int end = Math.min(start + 5, hi);
+			insertionSort(array, start, end, comparator);
+			swap(array, medians++, (start + end) >>> 1);
+		}
+		int mid = (lo + medians) >>> 1;
+		select(array, lo, medians, mid, comparator, true);
+		return array[mid];
+	}
+
+	private static void swap(Object[] array, int i, int j) {
+		Object temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
+	}
+
+	/**
+	 * Returns the first index in the sorted range array[lo, hi) whose
+	 * element is not less than `key`.
+	 */
+	private int lowerBound(T[] array, int lo, int hi, T key, Comparator<T> comparator) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (comparator.compare(array[mid], key) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the first index in the sorted range array[lo, hi) whose
+	 * element is greater than `key`.
+	 */
+	private int upperBound(T[] array, int lo, int hi, T key, Comparator<T> comparator) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (comparator.compare(array[mid], key) <= 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Replaces the contents of `list` with the elements of `array`.
+	 * 
+	 * @param list
+	 * @param array
+	 */
+	private void writeBack(List<T> list, T[] array) {
+		if (list instanceof RandomAccess) {
+			for (int i = 0; i < array.length; i++) {
+				list.set(i, array[i]);
+			}
+		} else {
+			list.clear();
+			list.addAll(Arrays.asList(array));
+		}
 	}
 
 	/**
@@ -61,7 +1009,7 @@ public class ListSorter<T> {
 	 */
 	public List<T> mergeSort(List<T> list, Comparator<T> comparator) {
 		// Out of the recursion
-		if (list.size() == 1) {
+		if (list.size() <= 1) {
 			return list;
 		}
 
@@ -88,7 +1036,8 @@ public class ListSorter<T> {
 			} else if (second.size() == 0) {
 				merged.add(first.remove(0));
 			} else {
-				merged.add(comparator.compare(first.get(0), second.get(0)) < 0 ? first.remove(0) : second.remove(0));
+				// on ties, take from `first` to keep the sort stable
+				merged.add(comparator.compare(first.get(0), second.get(0)) <= 0 ? first.remove(0) : second.remove(0));
 			}
 		}
 		return merged;
@@ -111,20 +1060,118 @@ public class ListSorter<T> {
 	/**
 	 * Sorts a list using a Comparator object.
 	 * 
+	 * Uses a binary heap; see heapSort(List, Comparator, int).
+	 * 
 	 * @param list
 	 * @param comparator
-	 * @return
 	 */
 	public void heapSort(List<T> list, Comparator<T> comparator) {
-		MyHeap<T> heap = new MyHeap<T>();
-		for (T element: list) {
-			heap.push(element);
+		heapSort(list, comparator, 2);
+	}
+
+	/**
+	 * Sorts a list with a heap sort, using a heap where each node has
+	 * `arity` children.
+	 * 
+	 * The heap is built in the list itself, so if the list supports fast
+	 * random access, the sort allocates nothing.  Other lists are copied to
+	 * an array first.  Takes O(n log n) time in the worst case, but it is
+	 * not stable.
+	 * 
+	 * @param list
+	 * @param comparator
+	 * @param arity
+	 */
+	public void heapSort(List<T> list, Comparator<T> comparator, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Illegal arity: " + arity);
+		}
+		if (list instanceof RandomAccess) {
+			heapSortInPlace(list, comparator, arity);
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		T[] array = (T[]) list.toArray();
+		heapSort(array, comparator, arity);
+		writeBack(list, array);
+	}
+
+	/**
+	 * Sorts an array in place with a binary heap sort.
+	 * 
+	 * @param array
+	 * @param comparator
+	 */
+	public void heapSort(T[] array, Comparator<T> comparator) {
+		heapSort(array, comparator, 2);
+	}
+
+	/**
+	 * Sorts an array in place with a heap sort, using a heap where each
+	 * node has `arity` children.
+	 * 
+	 * @param array
+	 * @param comparator
+	 * @param arity
+	 */
+	public void heapSort(T[] array, Comparator<T> comparator, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Illegal arity: " + arity);
 		}
-		for (int i = 0; i < list.size(); i++) {
-			list.set(i, heap.poll());
+		// Arrays.asList writes through to the array without copying it
+		heapSortInPlace(Arrays.asList(array), comparator, arity);
+	}
+
+	/**
+	 * Turns `list` into a max-heap, then repeatedly swaps the largest
+	 * remaining element into place at the end.
+	 */
+	private void heapSortInPlace(List<T> list, Comparator<T> comparator, int arity) {
+		int n = list.size();
+		if (n < 2) {
+			return;
+		}
+		// build the heap bottom up, starting from the last node with children
+		for (int i = (n - 2) / arity; i >= 0; i--) {
+			siftDown(list, i, list.get(i), n, comparator, arity);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			T last = list.get(end);
+			list.set(end, list.get(0));
+			siftDown(list, 0, last, end, comparator, arity);
 		}
 	}
 
+	/**
+	 * Puts `element` into the hole at index `i` of the max-heap list[0, n),
+	 * moving larger children up into the hole until it fits.
+	 */
+	private void siftDown(List<T> heap, int i, T element, int n, Comparator<T> comparator, int arity) {
+		while (true) {
+			int first = arity * i + 1;
+			if (first >= n) {
+				break;
+			}
+			// find the largest child
+			int largest = first;
+			T child = heap.get(first);
+			int end = Math.min(first + arity, n);
+			for (int j = first + 1; j < end; j++) {
+				T other = heap.get(j);
+				if (comparator.compare(other, child) > 0) {
+					largest = j;
+					child = other;
+				}
+			}
+			if (comparator.compare(element, child) >= 0) {
+				break;
+			}
+			heap.set(i, child);
+			i = largest;
+		}
+		heap.set(i, element);
+	}
+
 	
 	/**
 	 * Returns the largest `k` elements in `list` in ascending order.
@@ -136,21 +1183,9 @@ public class ListSorter<T> {
 	 * @return
 	 */
 	public List<T> topK(int k, List<T> list, Comparator<T> comparator) {
-		MyHeap<T> heap = new MyHeap<T>();
-		for (T element: list) {
-			if (heap.size() < k) {
-				heap.push(element);
-			} else if (comparator.compare(heap.peek(), element) < 0) {
-				heap.poll();
-				heap.push(element);
-			}
-		}
-
-		List<T> result = new LinkedList<T>();
-		for (int i = 0; i < k; i++) {
-			result.add(heap.poll());
-		}
-		return result;
+		TopK<T> top = new TopK<T>(k, comparator);
+		top.offerAll(list);
+		return top.toList();
 	}
 
 	
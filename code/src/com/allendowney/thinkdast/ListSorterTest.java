@@ -5,8 +5,11 @@ import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -79,6 +82,386 @@ public class ListSorterTest {
 		isSorted(sorted);
 	}
 
+	/**
+	 * Test method for {@link mergeSortInPlace(java.util.List, java.util.Comparator)}
+	 * with enough elements to use the merge step, in several kinds of list.
+	 */
+	@Test
+	public void testMergeSortInPlaceLarge() {
+		List<Integer> expected = randomList(10000);
+		List<Integer> arrayList = new ArrayList<Integer>(expected);
+		List<Integer> linkedList = new LinkedList<Integer>(expected);
+		List<Integer> myList = new MyArrayList<Integer>();
+		myList.addAll(expected);
+		Collections.sort(expected);
+
+		sorter.mergeSortInPlace(arrayList, comparator);
+		sorter.mergeSortInPlace(linkedList, comparator);
+		sorter.mergeSortInPlace(myList, comparator);
+		assertThat(arrayList, is(expected));
+		assertThat(linkedList, is(expected));
+		assertThat(Arrays.asList(myList.toArray()), is(Arrays.asList(expected.toArray())));
+
+		List<Integer> empty = new ArrayList<Integer>();
+		sorter.mergeSortInPlace(empty, comparator);
+		assertThat(empty.size(), is(0));
+	}
+
+	/**
+	 * Checks that mergeSortInPlace keeps equal elements in their original order.
+	 */
+	@Test
+	public void testMergeSortStable() {
+		List<String> list = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			list.add((i * 37) % 10 + ":" + i);
+		}
+		List<String> expected = new ArrayList<String>(list);
+
+		// compare only the part before the colon
+		Comparator<String> byPrefix = new Comparator<String>() {
+			@Override
+			public int compare(String s1, String s2) {
+				return s1.substring(0, s1.indexOf(':')).compareTo(s2.substring(0, s2.indexOf(':')));
+			}
+		};
+		Collections.sort(expected, byPrefix);
+
+		new ListSorter<String>().mergeSortInPlace(list, byPrefix);
+		assertThat(list, is(expected));
+		assertThat(new ListSorter<String>().mergeSort(new ArrayList<String>(list), byPrefix), is(expected));
+	}
+
+	/**
+	 * Test method for {@link ListSorter#parallelMergeSortInPlace(java.util.List, java.util.Comparator, int)}.
+	 */
+	@Test
+	public void testParallelMergeSortInPlace() {
+		List<Integer> list = randomList(100000);
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected);
+
+		// a small threshold, to exercise the parallel merge
+		sorter.parallelMergeSortInPlace(list, comparator, 100);
+		assertThat(list, is(expected));
+
+		list = new ArrayList<Integer>(Arrays.asList(3, 5, 1, 4, 2));
+		sorter.parallelMergeSortInPlace(list, comparator);
+		isSorted(list);
+	}
+
+	/**
+	 * Checks that parallelMergeSortInPlace terminates with thresholds
+	 * so small that a merge could split into a copy of itself.
+	 */
+	@Test
+	public void testParallelMergeSortTinyThreshold() {
+		for (int threshold: new int[] {1, 2, 3}) {
+			for (int n: new int[] {2, 3, 300}) {
+				List<Integer> list = randomList(n);
+				List<Integer> expected = new ArrayList<Integer>(list);
+				Collections.sort(expected);
+				sorter.parallelMergeSortInPlace(list, comparator, threshold);
+				assertThat(list, is(expected));
+			}
+		}
+	}
+
+	/**
+	 * Checks that parallelMergeSortInPlace gives the same order as
+	 * mergeSortInPlace when there are many equal elements.
+	 */
+	@Test
+	public void testParallelMergeSortStable() {
+		Random random = new Random(17);
+		List<String> list = new ArrayList<String>();
+		for (int i = 0; i < 50000; i++) {
+			list.add(random.nextInt(20) + ":" + i);
+		}
+		List<String> expected = new ArrayList<String>(list);
+
+		Comparator<String> byPrefix = new Comparator<String>() {
+			@Override
+			public int compare(String s1, String s2) {
+				return Integer.compare(Integer.parseInt(s1.substring(0, s1.indexOf(':'))),
+									   Integer.parseInt(s2.substring(0, s2.indexOf(':'))));
+			}
+		};
+		ListSorter<String> stringSorter = new ListSorter<String>();
+		stringSorter.mergeSortInPlace(expected, byPrefix);
+		stringSorter.parallelMergeSortInPlace(list, byPrefix, 64);
+		assertThat(list, is(expected));
+	}
+
+	/**
+	 * Test method for {@link ListSorter#timSort(java.util.List, java.util.Comparator)}.
+	 */
+	@Test
+	public void testTimSort() {
+		List<Integer> list = new ArrayList<Integer>(Arrays.asList(3, 5, 1, 4, 2));
+		sorter.timSort(list, comparator);
+		isSorted(list);
+
+		for (int n: new int[] {0, 1, 31, 32, 1000, 100000}) {
+			list = randomList(n);
+			List<Integer> expected = new ArrayList<Integer>(list);
+			Collections.sort(expected);
+			sorter.timSort(list, comparator);
+			assertThat(list, is(expected));
+		}
+	}
+
+	/**
+	 * Checks that timSort does linear work on sorted and reversed input,
+	 * and not much more when a few elements are out of place.
+	 */
+	@Test
+	public void testTimSortAdaptive() {
+		final int[] count = new int[1];
+		Comparator<Integer> counting = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer elt1, Integer elt2) {
+				count[0]++;
+				return elt1.compareTo(elt2);
+			}
+		};
+		int n = 100000;
+		List<Integer> sorted = new ArrayList<Integer>();
+		List<Integer> reversed = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			sorted.add(i);
+			reversed.add(n - i);
+		}
+
+		sorter.timSort(sorted, counting);
+		assertThat(count[0], is(n - 1));
+
+		count[0] = 0;
+		sorter.timSort(reversed, counting);
+		assertThat(count[0], is(n - 1));
+		assertThat(reversed.get(0), is(1));
+
+		// move a few elements to random places
+		Random random = new Random(17);
+		for (int i = 0; i < 10; i++) {
+			sorted.set(random.nextInt(n), random.nextInt(n));
+		}
+		List<Integer> expected = new ArrayList<Integer>(sorted);
+		Collections.sort(expected);
+		count[0] = 0;
+		sorter.timSort(sorted, counting);
+		assertThat(sorted, is(expected));
+		assertThat(count[0] < 3 * n, is(true));
+	}
+
+	/**
+	 * Checks that timSort keeps equal elements in their original order.
+	 */
+	@Test
+	public void testTimSortStable() {
+		Random random = new Random(17);
+		List<String> list = new ArrayList<String>();
+		for (int i = 0; i < 50000; i++) {
+			// long runs of increasing and decreasing prefixes, with ties
+			int prefix = (i / 1000) % 2 == 0 ? (i % 1000) / 10 : 100 - (i % 1000) / 10;
+			list.add((random.nextInt(10) == 0 ? random.nextInt(100) : prefix) + ":" + i);
+		}
+		List<String> expected = new ArrayList<String>(list);
+
+		Comparator<String> byPrefix = new Comparator<String>() {
+			@Override
+			public int compare(String s1, String s2) {
+				return Integer.compare(Integer.parseInt(s1.substring(0, s1.indexOf(':'))),
+									   Integer.parseInt(s2.substring(0, s2.indexOf(':'))));
+			}
+		};
+		Collections.sort(expected, byPrefix);
+		new ListSorter<String>().timSort(list, byPrefix);
+		assertThat(list, is(expected));
+	}
+
+	/**
+	 * Test method for {@link ListSorter#radixSort(java.util.List, java.util.function.ToIntFunction)}.
+	 */
+	@Test
+	public void testRadixSort() {
+		List<Integer> list = new LinkedList<Integer>(Arrays.asList(3, 5, 1, 4, 2));
+		sorter.radixSort(list, Integer::intValue);
+		isSorted(list);
+
+		// small key range uses counting sort; wide range uses radix passes
+		for (int n: new int[] {1000, 20000}) {
+			list = randomList(n);
+			List<Integer> expected = new ArrayList<Integer>(list);
+			Collections.sort(expected);
+			sorter.radixSort(list, Integer::intValue);
+			assertThat(list, is(expected));
+		}
+
+		Random random = new Random(3);
+		list = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			list.add(random.nextInt());
+		}
+		list.add(Integer.MIN_VALUE);
+		list.add(Integer.MAX_VALUE);
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected);
+		sorter.radixSort(list, Integer::intValue);
+		assertThat(list, is(expected));
+	}
+
+	/**
+	 * Checks that radixSort keeps elements with equal keys in their original order.
+	 */
+	@Test
+	public void testRadixSortStable() {
+		Random random = new Random(19);
+		for (int bound: new int[] {100, 1 << 20}) {
+			List<String> list = new ArrayList<String>();
+			for (int i = 0; i < 5000; i++) {
+				list.add((random.nextInt(bound) - bound / 2) + ":" + i);
+			}
+			List<String> expected = new ArrayList<String>(list);
+
+			Comparator<String> byPrefix = Comparator.comparingInt(ListSorterTest::prefix);
+			Collections.sort(expected, byPrefix);
+			new ListSorter<String>().radixSort(list, ListSorterTest::prefix);
+			assertThat(list, is(expected));
+		}
+	}
+
+	/**
+	 * Test method for {@link ListSorter#nthElement(java.util.List, int, java.util.Comparator)}.
+	 */
+	@Test
+	public void testNthElement() {
+		List<Integer> list = new ArrayList<Integer>(Arrays.asList(6, 3, 5, 8, 1, 4, 2, 7));
+		assertThat(sorter.nthElement(list, 2, comparator), is(3));
+		assertThat(list.get(2), is(3));
+
+		for (int n: new int[] {0, 1, 500, 9999}) {
+			list = randomList(10000);
+			List<Integer> expected = new ArrayList<Integer>(list);
+			Collections.sort(expected);
+			Integer nth = sorter.nthElement(list, n, comparator);
+			assertThat(nth, is(expected.get(n)));
+			for (int i = 0; i < list.size(); i++) {
+				int cmp = list.get(i).compareTo(nth);
+				assertThat(i < n ? cmp <= 0 : cmp >= 0, is(true));
+			}
+		}
+
+		try {
+			sorter.nthElement(list, list.size(), comparator);
+			fail();
+		} catch (IndexOutOfBoundsException e) {} // good
+	}
+
+	/**
+	 * Checks the median-of-medians fallback on its own.
+	 */
+	@Test
+	public void testSelectMedianOfMedians() {
+		for (int n: new int[] {17, 100, 12345}) {
+			Integer[] array = randomList(n).toArray(new Integer[0]);
+			Integer[] expected = array.clone();
+			Arrays.sort(expected);
+			sorter.select(array, 0, n, n / 3, comparator, true);
+			assertThat(array[n / 3], is(expected[n / 3]));
+		}
+
+		// all equal elements, and sorted input
+		Integer[] array = Collections.nCopies(1000, 7).toArray(new Integer[0]);
+		sorter.select(array, 0, 1000, 500, comparator, true);
+		assertThat(array[500], is(7));
+
+		array = new Integer[1000];
+		for (int i = 0; i < 1000; i++) {
+			array[i] = i;
+		}
+		sorter.select(array, 0, 1000, 250, comparator, true);
+		assertThat(array[250], is(250));
+	}
+
+	/**
+	 * Checks that nthElement takes linear time against McIlroy's
+	 * adversary, which decides the order of the elements while the sort
+	 * runs so that each median-of-three pivot is nearly the smallest.
+	 */
+	@Test
+	public void testNthElementAdversary() {
+		final int n = 100000;
+		final int[] values = new int[n];
+		Arrays.fill(values, n);   // n means "gas", not decided yet
+		final int[] state = {0, -1, 0};   // next value, candidate pivot, comparisons
+		Comparator<Integer> adversary = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer x, Integer y) {
+				state[2]++;
+				if (values[x] == n && values[y] == n) {
+					values[x == state[1] ? x : y] = state[0]++;
+				}
+				if (values[x] == n) {
+					state[1] = x;
+				} else if (values[y] == n) {
+					state[1] = y;
+				}
+				return Integer.compare(values[x], values[y]);
+			}
+		};
+		Integer[] array = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			array[i] = i;
+		}
+		sorter.nthElement(array, n / 2, adversary);
+		for (int i = 0; i < n; i++) {
+			int cmp = Integer.compare(values[array[i]], values[array[n / 2]]);
+			assertThat(i < n / 2 ? cmp <= 0 : cmp >= 0, is(true));
+		}
+		// about 10n; with 2 log n median-of-three rounds before switching it was over 40n
+		assertTrue(state[2] < 20 * n);
+	}
+
+	/**
+	 * Test method for {@link ListSorter#partialSort(java.util.List, int, java.util.Comparator)}.
+	 */
+	@Test
+	public void testPartialSort() {
+		for (int k: new int[] {0, 1, 10, 1000, 20000}) {
+			List<Integer> list = randomList(10000);
+			List<Integer> expected = new ArrayList<Integer>(list);
+			Collections.sort(expected);
+			sorter.partialSort(list, k, comparator);
+			int m = Math.min(k, list.size());
+			assertThat(list.subList(0, m), is(expected.subList(0, m)));
+
+			// the rest are the same elements, in some order
+			List<Integer> rest = new ArrayList<Integer>(list.subList(m, list.size()));
+			Collections.sort(rest);
+			assertThat(rest, is(expected.subList(m, expected.size())));
+		}
+	}
+
+	private static int prefix(String s) {
+		return Integer.parseInt(s.substring(0, s.indexOf(':')));
+	}
+
+	/**
+	 * Makes a list of random Integers, the same every time.
+	 * 
+	 * @param n
+	 * @return
+	 */
+	private List<Integer> randomList(int n) {
+		Random random = new Random(n);
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			list.add(random.nextInt(n));
+		}
+		return list;
+	}
+
 	/**
 	 * Test method for {@link heapSort(java.util.List, java.util.Comparator)}.
 	 */
@@ -89,6 +472,37 @@ public class ListSorterTest {
 		isSorted(list);
 	}
 
+	/**
+	 * Test method for {@link ListSorter#heapSort(java.util.List, java.util.Comparator, int)}.
+	 */
+	@Test
+	public void testHeapSortArity() {
+		for (int arity: new int[] {2, 3, 4, 8}) {
+			for (int n: new int[] {0, 1, 2, 10, 1000}) {
+				List<Integer> list = randomList(n);
+				List<Integer> expected = new ArrayList<Integer>(list);
+				Collections.sort(expected);
+				sorter.heapSort(list, comparator, arity);
+				assertThat(list, is(expected));
+
+				// LinkedList goes through an array
+				list = new LinkedList<Integer>(randomList(n));
+				sorter.heapSort(list, comparator, arity);
+				assertThat(list, is(expected));
+
+				Integer[] array = randomList(n).toArray(new Integer[0]);
+				sorter.heapSort(array, comparator.reversed(), arity);
+				Collections.reverse(expected);
+				assertThat(Arrays.asList(array), is(expected));
+			}
+		}
+
+		try {
+			sorter.heapSort(randomList(10), comparator, 1);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+	}
+
 	/**
 	 * Test method for {@link topK(int, java.util.List, java.util.Comparator)}.
 	 */
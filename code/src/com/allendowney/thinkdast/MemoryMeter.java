@@ -0,0 +1,276 @@
+package com.allendowney.thinkdast;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates how much memory an object graph occupies.
+ *
+ * MemoryMeter walks every object reachable from a root through instance
+ * fields and array elements, and adds up their sizes, computed from the
+ * field types the way HotSpot lays objects out: a header, the fields, and
+ * padding to a multiple of 8 bytes.
+ *
+ * Since Java 9, classes in java.base don't let reflection read their
+ * private fields unless the JVM is started with, for example,
+ * --add-opens java.base/java.util=ALL-UNNAMED.  Without that, MemoryMeter
+ * falls back to estimates for the library classes it can't open: Strings
+ * are assumed to store one byte per character, and other Collections and
+ * Maps are assumed to use one reference per element.  That undercounts,
+ * sometimes by a lot: a java.util.HashMap also has an entry object per
+ * element.  Our own classes are affected too when they are built on
+ * library classes, like MyLinearMap on an ArrayList, or hold Strings.
+ * isEstimated() says whether the last measureDeep used any estimates;
+ * run with --add-opens java.base/java.util=ALL-UNNAMED
+ * --add-opens java.base/java.lang=ALL-UNNAMED to avoid them.
+ *
+ */
+public class MemoryMeter {
+	private static final int ALIGNMENT = 8;
+
+	private final int referenceSize;
+	private final int objectHeaderSize;
+	private final int arrayHeaderSize;
+
+	// size and reference fields for each class we have seen
+	private final Map<Class<?>, ClassInfo> classInfo = new HashMap<Class<?>, ClassInfo>();
+
+	// whether the last measureDeep met an object it couldn't see inside
+	private boolean estimated;
+
+	/**
+	 * Makes a MemoryMeter for the layout used by the running JVM.
+	 */
+	public MemoryMeter() {
+		this(usesCompressedOops());
+	}
+
+	/**
+	 * Makes a MemoryMeter for a JVM with or without compressed references.
+	 *
+	 * @param compressedOops
+	 */
+	public MemoryMeter(boolean compressedOops) {
+		referenceSize = compressedOops ? 4 : 8;
+		objectHeaderSize = compressedOops ? 12 : 16;
+		arrayHeaderSize = compressedOops ? 16 : 24;
+	}
+
+	/**
+	 * Checks whether this JVM uses 32-bit compressed references.
+	 *
+	 * @return
+	 */
+	private static boolean usesCompressedOops() {
+		try {
+			com.sun.management.HotSpotDiagnosticMXBean bean =
+					ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+			return Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+		} catch (RuntimeException e) {
+			// not HotSpot; compressed references are the default for heaps under 32 GB
+			return true;
+		} catch (LinkageError e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the size of `obj` itself, not counting the objects it refers to.
+	 *
+	 * @param obj
+	 * @return
+	 */
+	public long measureShallow(Object obj) {
+		if (obj == null) {
+			return 0;
+		}
+		Class<?> type = obj.getClass();
+		if (type.isArray()) {
+			return arraySize(type.getComponentType(), Array.getLength(obj));
+		}
+		return info(type).shallowSize;
+	}
+
+	/**
+	 * Returns the total size of all objects reachable from `root`.
+	 *
+	 * Each object is counted once, even if it is reachable by more than one
+	 * path.  Class objects are not counted.
+	 *
+	 * @param root
+	 * @return
+	 */
+	public long measureDeep(Object root) {
+		estimated = false;
+		if (root == null) {
+			return 0;
+		}
+		IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+		MyArrayDeque<Object> stack = new MyArrayDeque<Object>();
+		stack.push(root);
+		visited.put(root, Boolean.TRUE);
+
+		long total = 0;
+		while (!stack.isEmpty()) {
+			Object obj = stack.pop();
+			total += measureShallow(obj);
+			total += visitChildren(obj, stack, visited);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns whether the last call to measureDeep had to estimate the
+	 * size of some objects, because reflection couldn't read their fields.
+	 *
+	 * @return
+	 */
+	public boolean isEstimated() {
+		return estimated;
+	}
+
+	/**
+	 * Pushes the unvisited objects `obj` refers to.
+	 *
+	 * Returns the estimated size of anything we could not visit directly.
+	 */
+	private long visitChildren(Object obj, MyArrayDeque<Object> stack, IdentityHashMap<Object, Boolean> visited) {
+		Class<?> type = obj.getClass();
+		if (type.isArray()) {
+			if (!type.getComponentType().isPrimitive()) {
+				for (Object element: (Object[]) obj) {
+					visit(element, stack, visited);
+				}
+			}
+			return 0;
+		}
+
+		ClassInfo info = info(type);
+		for (Field field: info.referenceFields) {
+			try {
+				visit(field.get(obj), stack, visited);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		if (!info.closed) {
+			return 0;
+		}
+
+		// we can't see inside this object; estimate what it holds
+		estimated = true;
+		if (obj instanceof String) {
+			return arraySize(byte.class, ((String) obj).length());
+		}
+		if (obj instanceof Collection) {
+			Collection<?> collection = (Collection<?>) obj;
+			for (Object element: collection) {
+				visit(element, stack, visited);
+			}
+			return arraySize(Object.class, collection.size());
+		}
+		if (obj instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) obj;
+			for (Map.Entry<?, ?> entry: map.entrySet()) {
+				visit(entry.getKey(), stack, visited);
+				visit(entry.getValue(), stack, visited);
+			}
+			return arraySize(Object.class, map.size());
+		}
+		return 0;
+	}
+
+	private static void visit(Object obj, MyArrayDeque<Object> stack, IdentityHashMap<Object, Boolean> visited) {
+		if (obj == null || obj instanceof Class || visited.containsKey(obj)) {
+			return;
+		}
+		visited.put(obj, Boolean.TRUE);
+		stack.push(obj);
+	}
+
+	private long arraySize(Class<?> componentType, int length) {
+		return align(arrayHeaderSize + (long) length * fieldSize(componentType));
+	}
+
+	private int fieldSize(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return referenceSize;
+		}
+		if (type == long.class || type == double.class) {
+			return 8;
+		}
+		if (type == int.class || type == float.class) {
+			return 4;
+		}
+		if (type == short.class || type == char.class) {
+			return 2;
+		}
+		return 1;    // byte and boolean
+	}
+
+	private static long align(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Size and reference fields of a class, including inherited fields.
+	 */
+	private static class ClassInfo {
+		long shallowSize;
+		Field[] referenceFields;
+		boolean closed;    // true if some reference fields can't be read
+	}
+
+	private ClassInfo info(Class<?> type) {
+		ClassInfo info = classInfo.get(type);
+		if (info != null) {
+			return info;
+		}
+		info = new ClassInfo();
+		long size = objectHeaderSize;
+		List<Field> references = new ArrayList<Field>();
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			for (Field field: c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				size += fieldSize(field.getType());
+				if (field.getType().isPrimitive()) {
+					continue;
+				}
+				try {
+					field.setAccessible(true);
+					references.add(field);
+				} catch (RuntimeException e) {
+					// InaccessibleObjectException, which doesn't exist before Java 9
+					info.closed = true;
+				}
+			}
+		}
+		info.shallowSize = align(size);
+		info.referenceFields = references.toArray(new Field[references.size()]);
+		classInfo.put(type, info);
+		return info;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		MemoryMeter meter = new MemoryMeter();
+		List<String> list = new MyArrayList<String>();
+		for (int i=0; i<1000; i++) {
+			list.add(Integer.toString(i));
+		}
+		long bytes = meter.measureDeep(list);
+		System.out.println("MyArrayList of 1000 strings: " + bytes + " bytes");
+	}
+}
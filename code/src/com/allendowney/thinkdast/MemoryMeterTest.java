@@ -0,0 +1,92 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for MemoryMeter, assuming compressed references.
+ *
+ */
+public class MemoryMeterTest {
+
+	private MemoryMeter meter;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		meter = new MemoryMeter(true);
+	}
+
+	/**
+	 * Test method for {@link MemoryMeter#measureShallow(Object)}.
+	 */
+	@Test
+	public void testMeasureShallow() {
+		// 16 byte header plus elements, padded to a multiple of 8
+		assertThat(meter.measureShallow(new Object[10]), is(56L));
+		assertThat(meter.measureShallow(new int[3]), is(32L));
+		assertThat(meter.measureShallow(new long[0]), is(16L));
+
+		// 12 byte header plus an int
+		assertThat(meter.measureShallow(Integer.valueOf(1000)), is(16L));
+		assertThat(meter.measureShallow(null), is(0L));
+	}
+
+	/**
+	 * Test method for {@link MemoryMeter#measureDeep(Object)}.
+	 */
+	@Test
+	public void testMeasureDeep() {
+		Integer shared = Integer.valueOf(1000);
+		Object[] array = {shared, shared, Integer.valueOf(1001)};
+		// the array, plus two distinct Integers
+		assertThat(meter.measureDeep(array), is(32L + 16 + 16));
+
+		// each node of a MyLinkedList costs the same amount
+		List<Integer> small = new MyLinkedList<Integer>();
+		List<Integer> big = new MyLinkedList<Integer>();
+		for (int i=0; i<100; i++) {
+			small.add(shared);
+			big.add(shared);
+			big.add(shared);
+		}
+		long perNode = (meter.measureDeep(big) - meter.measureDeep(small)) / 100;
+		assertThat(meter.measureDeep(small), is(meter.measureShallow(small) + 100 * perNode + 16));
+		assertThat(meter.isEstimated(), is(false));
+	}
+
+	/**
+	 * Test method for {@link MemoryMeter#isEstimated()}.
+	 */
+	@Test
+	public void testIsEstimated() {
+		// a library class is exact only if reflection can open java.util
+		boolean open;
+		try {
+			java.util.ArrayList.class.getDeclaredField("elementData").setAccessible(true);
+			open = true;
+		} catch (Exception e) {
+			open = false;
+		}
+		List<Integer> list = new java.util.ArrayList<Integer>();
+		list.add(1000);
+		meter.measureDeep(list);
+		assertThat(meter.isEstimated(), is(!open));
+
+		// MyLinearMap keeps its entries in an ArrayList
+		MyLinearMap<Integer, Integer> map = new MyLinearMap<Integer, Integer>();
+		map.put(1, 2);
+		meter.measureDeep(map);
+		assertThat(meter.isEstimated(), is(!open));
+
+		meter.measureDeep(new Object[] {Integer.valueOf(1000)});
+		assertThat(meter.isEstimated(), is(false));
+	}
+}
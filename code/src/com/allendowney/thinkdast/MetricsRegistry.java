@@ -0,0 +1,377 @@
+package com.allendowney.thinkdast;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters, gauges and latency histograms that the crawler,
+ * indexer and search code update as they run.
+ *
+ * Recording is cheap enough to leave on all the time: a counter is a
+ * LongAdder, and a histogram increments one slot of an AtomicLongArray
+ * and adds to a LongAdder, with no locks and no allocation.  Classes
+ * look their metrics up once, into static fields, and the lookup is the
+ * only part that touches the map.
+ *
+ * Histograms keep counts in log-linear buckets, like HdrHistogram:
+ * values below 2^SUB_BITS have a bucket each, and every power of two
+ * above that is split into 2^SUB_BITS buckets, so a percentile is off by
+ * at most 1/2^SUB_BITS (about 3%) of its value, for any value a long can
+ * hold, in a fixed 15 KB.
+ *
+ * toText and toJson read the current values; startReporter prints one
+ * of them at a fixed rate.  Values are read without stopping the
+ * threads that record them, so a report taken while they are running is
+ * not an exact snapshot, but each number in it is one that was true.
+ *
+ */
+public class MetricsRegistry {
+
+	private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+	/**
+	 * Returns the registry the crawler, indexer and search code use.
+	 *
+	 * @return
+	 */
+	public static MetricsRegistry global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * A count that only goes up, like pages fetched.
+	 */
+	public static class Counter {
+		private final LongAdder adder = new LongAdder();
+
+		public void increment() {
+			adder.increment();
+		}
+
+		public void add(long delta) {
+			adder.add(delta);
+		}
+
+		public long get() {
+			return adder.sum();
+		}
+	}
+
+	/**
+	 * A value that is read when the metrics are reported, like the length of a queue.
+	 */
+	public interface Gauge {
+		public double value();
+	}
+
+	/**
+	 * Counts values, usually latencies in nanoseconds, in log-linear buckets.
+	 */
+	public static class Histogram {
+		static final int SUB_BITS = 5;
+		static final int SUB_COUNT = 1 << SUB_BITS;
+		// enough buckets for Long.MAX_VALUE
+		static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+		private final LongAdder sum = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Records a value; negative values are recorded as 0.
+		 *
+		 * @param value
+		 */
+		public void record(long value) {
+			if (value < 0) {
+				value = 0;
+			}
+			counts.incrementAndGet(index(value));
+			sum.add(value);
+			// most values are not a new max, so read before trying to write
+			long current = max.get();
+			while (value > current && !max.compareAndSet(current, value)) {
+				current = max.get();
+			}
+		}
+
+		/**
+		 * Records the nanoseconds since `start`, a value of System.nanoTime().
+		 *
+		 * @param start
+		 */
+		public void recordSince(long start) {
+			record(System.nanoTime() - start);
+		}
+
+		/**
+		 * Returns the bucket that holds a non-negative value.
+		 */
+		static int index(long value) {
+			int magnitude = 63 - Long.numberOfLeadingZeros(value);
+			if (magnitude < SUB_BITS) {
+				return (int) value;
+			}
+			int shift = magnitude - SUB_BITS;
+			return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+		}
+
+		/**
+		 * Returns the smallest value in a bucket.
+		 */
+		static long lowerBound(int index) {
+			if (index < SUB_COUNT) {
+				return index;
+			}
+			int shift = index / SUB_COUNT - 1;
+			return (long) (index % SUB_COUNT + SUB_COUNT) << shift;
+		}
+
+		/**
+		 * Returns the largest value in a bucket.
+		 */
+		static long upperBound(int index) {
+			if (index == BUCKETS - 1) {
+				return Long.MAX_VALUE;
+			}
+			return lowerBound(index + 1) - 1;
+		}
+
+		public long count() {
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				total += counts.get(i);
+			}
+			return total;
+		}
+
+		public long max() {
+			return max.get();
+		}
+
+		/**
+		 * Returns the mean of the recorded values, or NaN if there are none.
+		 *
+		 * @return
+		 */
+		public double mean() {
+			long count = count();
+			return count == 0 ? Double.NaN : sum.sum() / (double) count;
+		}
+
+		/**
+		 * Returns the pth percentile, as the largest value in the bucket
+		 * that holds it, but no more than the max, or 0 if there are no
+		 * values.
+		 *
+		 * @param p between 0 and 100
+		 * @return
+		 */
+		public long percentile(double p) {
+			if (p < 0 || p > 100) {
+				throw new IllegalArgumentException("Illegal percentile: " + p);
+			}
+			long[] snapshot = new long[BUCKETS];
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				snapshot[i] = counts.get(i);
+				count += snapshot[i];
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += snapshot[i];
+				if (seen >= rank) {
+					return Math.min(upperBound(i), max());
+				}
+			}
+			return max();
+		}
+	}
+
+	// sorted by name when reported; values are Counter, Gauge or Histogram
+	private final Map<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * Returns the counter with the given name, making it if needed.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Counter counter(String name) {
+		return lookup(name, Counter.class, new Counter());
+	}
+
+	/**
+	 * Returns the histogram with the given name, making it if needed.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Histogram histogram(String name) {
+		return lookup(name, Histogram.class, new Histogram());
+	}
+
+	/**
+	 * Registers a gauge, replacing any gauge with the same name.
+	 *
+	 * @param name
+	 * @param gauge
+	 */
+	public void gauge(String name, Gauge gauge) {
+		Object existing = metrics.get(name);
+		if (existing != null && !(existing instanceof Gauge)) {
+			throw new IllegalArgumentException(name + " is not a gauge");
+		}
+		metrics.put(name, gauge);
+	}
+
+	private <T> T lookup(String name, Class<T> type, T metric) {
+		Object existing = metrics.get(name);
+		if (existing == null) {
+			existing = metrics.putIfAbsent(name, metric);
+		}
+		if (existing == null) {
+			return metric;
+		}
+		if (!type.isInstance(existing)) {
+			throw new IllegalArgumentException(name + " is not a " + type.getSimpleName());
+		}
+		return type.cast(existing);
+	}
+
+	private List<String> names() {
+		List<String> names = new ArrayList<String>(metrics.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * Returns one line per metric, sorted by name.
+	 *
+	 * @return
+	 */
+	public String toText() {
+		StringBuilder sb = new StringBuilder();
+		for (String name: names()) {
+			Object metric = metrics.get(name);
+			if (metric instanceof Counter) {
+				sb.append(String.format(Locale.ROOT, "%s count=%d%n", name, ((Counter) metric).get()));
+			} else if (metric instanceof Gauge) {
+				sb.append(String.format(Locale.ROOT, "%s value=%s%n", name, ((Gauge) metric).value()));
+			} else if (metric instanceof Histogram) {
+				Histogram h = (Histogram) metric;
+				sb.append(String.format(Locale.ROOT, "%s count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d%n",
+						name, h.count(), h.mean(), h.percentile(50), h.percentile(90),
+						h.percentile(99), h.max()));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the metrics as a JSON object, keyed by name.
+	 *
+	 * @return
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder("{");
+		boolean first = true;
+		for (String name: names()) {
+			Object metric = metrics.get(name);
+			if (metric == null) {
+				continue;
+			}
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("  ").append(quote(name)).append(": ");
+			if (metric instanceof Counter) {
+				sb.append("{\"type\": \"counter\", \"count\": ").append(((Counter) metric).get()).append("}");
+			} else if (metric instanceof Gauge) {
+				sb.append("{\"type\": \"gauge\", \"value\": ").append(number(((Gauge) metric).value()))
+						.append("}");
+			} else {
+				Histogram h = (Histogram) metric;
+				sb.append(String.format(Locale.ROOT,
+						"{\"type\": \"histogram\", \"count\": %d, \"mean\": %s, \"p50\": %d, \"p90\": %d, "
+						+ "\"p99\": %d, \"max\": %d}",
+						h.count(), number(h.mean()), h.percentile(50), h.percentile(90),
+						h.percentile(99), h.max()));
+			}
+		}
+		sb.append(first ? "}\n" : "\n}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Prints the metrics to `out` every `period`, on a daemon thread,
+	 * until the returned future is cancelled.
+	 *
+	 * @param period
+	 * @param unit
+	 * @param out
+	 * @param json true for toJson, false for toText
+	 * @return
+	 */
+	public ScheduledFuture<?> startReporter(long period, TimeUnit unit, final PrintStream out,
+			final boolean json) {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "metrics-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ScheduledFuture<?> future = executor.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				out.print(json ? toJson() : toText());
+				out.flush();
+			}
+		}, period, period, unit);
+		// keep reporting after shutdown, and let the thread exit once the
+		// report is cancelled
+		executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(true);
+		executor.setRemoveOnCancelPolicy(true);
+		executor.shutdown();
+		return future;
+	}
+
+	/**
+	 * Formats a number for JSON, which has no NaN or Infinity.
+	 */
+	private static String number(double x) {
+		if (Double.isNaN(x) || Double.isInfinite(x)) {
+			return "null";
+		}
+		return String.format(Locale.ROOT, "%.6g", x);
+	}
+
+	private static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c: s.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,158 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class MetricsRegistryTest {
+
+	private MetricsRegistry registry;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		registry = new MetricsRegistry();
+	}
+
+	/**
+	 * Test method for {@link MetricsRegistry#counter(String)}.
+	 */
+	@Test
+	public void testCounter() {
+		MetricsRegistry.Counter counter = registry.counter("pages");
+		counter.increment();
+		counter.add(4);
+		assertThat(counter.get(), is(5L));
+		assertThat(registry.counter("pages"), sameInstance(counter));
+
+		try {
+			registry.histogram("pages");
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MetricsRegistry.Histogram#index(long)}.
+	 */
+	@Test
+	public void testIndex() {
+		for (int i = 0; i < MetricsRegistry.Histogram.BUCKETS; i++) {
+			long low = MetricsRegistry.Histogram.lowerBound(i);
+			long high = MetricsRegistry.Histogram.upperBound(i);
+			assertThat(MetricsRegistry.Histogram.index(low), is(i));
+			assertThat(MetricsRegistry.Histogram.index(high), is(i));
+			// each bucket is at most 1/32 of its values wide
+			assertTrue(high - low <= Math.max(0, low / 32));
+		}
+		assertThat(MetricsRegistry.Histogram.index(Long.MAX_VALUE),
+				is(MetricsRegistry.Histogram.BUCKETS - 1));
+	}
+
+	/**
+	 * Test method for {@link MetricsRegistry.Histogram#percentile(double)}.
+	 */
+	@Test
+	public void testPercentile() {
+		MetricsRegistry.Histogram histogram = registry.histogram("latency");
+		assertThat(histogram.percentile(50), is(0L));
+		assertTrue(Double.isNaN(histogram.mean()));
+
+		for (int i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		assertThat(histogram.count(), is(100000L));
+		assertThat(histogram.max(), is(100000L));
+		assertEquals(50000.5, histogram.mean(), 1e-9);
+		assertEquals(50000, histogram.percentile(50), 50000 / 32);
+		assertEquals(99000, histogram.percentile(99), 99000 / 32);
+		assertThat(histogram.percentile(100), is(100000L));
+
+		histogram.record(-5);
+		assertThat(histogram.percentile(0), is(0L));
+	}
+
+	/**
+	 * Test method for {@link MetricsRegistry.Histogram#record(long)}.
+	 */
+	@Test
+	public void testConcurrentRecord() throws InterruptedException {
+		final MetricsRegistry.Histogram histogram = registry.histogram("latency");
+		final MetricsRegistry.Counter counter = registry.counter("count");
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					for (int i = 0; i < 10000; i++) {
+						histogram.record(random.nextInt(1000000));
+						counter.increment();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread: threads) {
+			thread.join();
+		}
+		assertThat(histogram.count(), is(40000L));
+		assertThat(counter.get(), is(40000L));
+	}
+
+	/**
+	 * Test method for {@link MetricsRegistry#toText()} and {@link MetricsRegistry#toJson()}.
+	 */
+	@Test
+	public void testReports() {
+		registry.counter("b.count").add(3);
+		registry.histogram("c.latency").record(100);
+		registry.gauge("a.queue", new MetricsRegistry.Gauge() {
+			public double value() {
+				return 7;
+			}
+		});
+
+		String text = registry.toText();
+		assertThat(text, is(String.format("a.queue value=7.0%n"
+				+ "b.count count=3%n"
+				+ "c.latency count=1 mean=100.0 p50=100 p90=100 p99=100 max=100%n")));
+
+		String json = registry.toJson();
+		assertThat(json, containsString("\"a.queue\": {\"type\": \"gauge\", \"value\": 7.00000}"));
+		assertThat(json, containsString("\"b.count\": {\"type\": \"counter\", \"count\": 3}"));
+		assertThat(json, containsString("\"c.latency\": {\"type\": \"histogram\", \"count\": 1,"));
+		assertThat(new MetricsRegistry().toJson(), is("{}\n"));
+	}
+
+	/**
+	 * Test method for {@link MetricsRegistry#startReporter(long, TimeUnit, PrintStream, boolean)}.
+	 */
+	@Test
+	public void testStartReporter() throws InterruptedException {
+		registry.counter("pages").increment();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		ScheduledFuture<?> future = registry.startReporter(10, TimeUnit.MILLISECONDS, out, false);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (bytes.size() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		future.cancel(false);
+		assertThat(bytes.toString(), containsString("pages count=1"));
+	}
+}
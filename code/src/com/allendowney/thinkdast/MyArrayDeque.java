@@ -0,0 +1,416 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractCollection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Double-ended queue implemented with a circular array.
+ *
+ * The elements live in one array whose length is a power of two, so
+ * wrapping an index around is a bitwise AND instead of a modulus.  Unlike
+ * LinkedList, adding an element doesn't allocate a node; the array doubles
+ * when it fills, so adding is constant time on average.
+ *
+ * Null elements are not allowed, since poll and peek use null to mean
+ * the deque is empty.
+ *
+ * @param <E>
+ */
+public class MyArrayDeque<E> extends AbstractCollection<E> implements Deque<E> {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private Object[] elements;   // length is always a power of two
+	private int head;            // index of the first element
+	private int size;            // number of elements
+	private int modCount;        // number of structural changes, for iterators
+
+	/**
+	 *
+	 */
+	public MyArrayDeque() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Makes an empty deque with room for at least `initialCapacity` elements.
+	 *
+	 * @param initialCapacity
+	 */
+	public MyArrayDeque(int initialCapacity) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		}
+		elements = new Object[powerOfTwoAtLeast(initialCapacity)];
+	}
+
+	/**
+	 * Returns the smallest power of two >= n (and at least 2).
+	 *
+	 * @param n
+	 * @return
+	 */
+	static int powerOfTwoAtLeast(int n) {
+		if (n >= MAX_CAPACITY) {
+			return MAX_CAPACITY;
+		}
+		if (n <= 2) {
+			return 2;
+		}
+		return Integer.highestOneBit(n - 1) << 1;
+	}
+
+	/**
+	 * Maps a position in the deque to an index in the array.
+	 */
+	private int index(int i) {
+		return (head + i) & (elements.length - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E elementAt(int i) {
+		return (E) elements[index(i)];
+	}
+
+	/**
+	 * Doubles the array and unwraps the elements so they start at 0.
+	 */
+	private void grow() {
+		int oldCapacity = elements.length;
+		if (oldCapacity == MAX_CAPACITY) {
+			throw new IllegalStateException("Deque too big");
+		}
+		Object[] bigger = new Object[oldCapacity * 2];
+		int front = oldCapacity - head;      // elements from head to the end of the array
+		System.arraycopy(elements, head, bigger, 0, front);
+		System.arraycopy(elements, 0, bigger, front, head);
+		elements = bigger;
+		head = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i=0; i<size; i++) {
+			elements[index(i)] = null;
+		}
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public void addFirst(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		if (size == elements.length) {
+			grow();
+		}
+		head = (head - 1) & (elements.length - 1);
+		elements[head] = element;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public void addLast(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		if (size == elements.length) {
+			grow();
+		}
+		elements[index(size)] = element;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public boolean offerFirst(E element) {
+		addFirst(element);
+		return true;
+	}
+
+	@Override
+	public boolean offerLast(E element) {
+		addLast(element);
+		return true;
+	}
+
+	@Override
+	public E pollFirst() {
+		if (size == 0) {
+			return null;
+		}
+		E element = elementAt(0);
+		// null out the slot so the element can be garbage collected
+		elements[head] = null;
+		head = (head + 1) & (elements.length - 1);
+		size--;
+		modCount++;
+		return element;
+	}
+
+	@Override
+	public E pollLast() {
+		if (size == 0) {
+			return null;
+		}
+		int last = index(size - 1);
+		@SuppressWarnings("unchecked")
+		E element = (E) elements[last];
+		elements[last] = null;
+		size--;
+		modCount++;
+		return element;
+	}
+
+	@Override
+	public E removeFirst() {
+		E element = pollFirst();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	@Override
+	public E removeLast() {
+		E element = pollLast();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	@Override
+	public E peekFirst() {
+		return size == 0 ? null : elementAt(0);
+	}
+
+	@Override
+	public E peekLast() {
+		return size == 0 ? null : elementAt(size - 1);
+	}
+
+	@Override
+	public E getFirst() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return elementAt(0);
+	}
+
+	@Override
+	public E getLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return elementAt(size - 1);
+	}
+
+	@Override
+	public boolean removeFirstOccurrence(Object target) {
+		if (target == null) {
+			return false;
+		}
+		for (int i=0; i<size; i++) {
+			if (target.equals(elementAt(i))) {
+				delete(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeLastOccurrence(Object target) {
+		if (target == null) {
+			return false;
+		}
+		for (int i=size-1; i>=0; i--) {
+			if (target.equals(elementAt(i))) {
+				delete(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the element at position `i`, shifting whichever side of the
+	 * deque is shorter.
+	 *
+	 * @param i
+	 */
+	private void delete(int i) {
+		int mask = elements.length - 1;
+		if (i < size - i - 1) {
+			// shift the front elements one slot toward the back
+			for (int j=i; j>0; j--) {
+				elements[index(j)] = elements[index(j - 1)];
+			}
+			elements[head] = null;
+			head = (head + 1) & mask;
+		} else {
+			// shift the back elements one slot toward the front
+			for (int j=i; j<size-1; j++) {
+				elements[index(j)] = elements[index(j + 1)];
+			}
+			elements[index(size - 1)] = null;
+		}
+		size--;
+		modCount++;
+	}
+
+	// Queue and Stack methods, in terms of the Deque methods above
+
+	@Override
+	public boolean add(E element) {
+		addLast(element);
+		return true;
+	}
+
+	@Override
+	public boolean offer(E element) {
+		return offerLast(element);
+	}
+
+	@Override
+	public E remove() {
+		return removeFirst();
+	}
+
+	@Override
+	public E poll() {
+		return pollFirst();
+	}
+
+	@Override
+	public E element() {
+		return getFirst();
+	}
+
+	@Override
+	public E peek() {
+		return peekFirst();
+	}
+
+	@Override
+	public void push(E element) {
+		addFirst(element);
+	}
+
+	@Override
+	public E pop() {
+		return removeFirst();
+	}
+
+	@Override
+	public boolean remove(Object target) {
+		return removeFirstOccurrence(target);
+	}
+
+	@Override
+	public boolean contains(Object target) {
+		if (target == null) {
+			return false;
+		}
+		for (int i=0; i<size; i++) {
+			if (target.equals(elementAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new DequeIterator(false);
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new DequeIterator(true);
+	}
+
+	/**
+	 * Iterates from front to back, or back to front if `descending`.
+	 */
+	private class DequeIterator implements Iterator<E> {
+		private final boolean descending;
+		private int next;                // position of the next element
+		private int remaining;           // elements not yet returned
+		private int lastReturned = -1;   // position of the last element returned
+		private int expectedModCount = modCount;
+
+		DequeIterator(boolean descending) {
+			this.descending = descending;
+			this.next = descending ? size - 1 : 0;
+			this.remaining = size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public E next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (remaining == 0) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = next;
+			next += descending ? -1 : 1;
+			remaining--;
+			return elementAt(lastReturned);
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == -1) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			delete(lastReturned);
+			// the elements after lastReturned moved up one position
+			if (!descending) {
+				next = lastReturned;
+			}
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		MyArrayDeque<Integer> deque = new MyArrayDeque<Integer>(4);
+		for (int i=0; i<5; i++) {
+			deque.addLast(i);
+			deque.addFirst(-i);
+		}
+		System.out.println(deque);
+		System.out.println(deque.pollFirst() + " " + deque.pollLast());
+		System.out.println(deque);
+	}
+}
@@ -0,0 +1,152 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for MyArrayDeque and MyBoundedDeque.
+ *
+ */
+public class MyArrayDequeTest {
+
+	private MyArrayDeque<Integer> deque;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		deque = new MyArrayDeque<Integer>(2);
+		deque.addLast(1);
+		deque.addLast(2);
+		deque.addLast(3);
+	}
+
+	/**
+	 * Test method for {@link MyArrayDeque#addFirst(Object)}.
+	 */
+	@Test
+	public void testAddFirst() {
+		deque.addFirst(0);
+		deque.addFirst(-1);
+		assertThat(deque.size(), is(5));
+		assertThat(deque.toArray(), is(new Object[] {-1, 0, 1, 2, 3}));
+
+		try {
+			deque.addFirst(null);
+			fail();
+		} catch (NullPointerException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyArrayDeque#pollFirst()} and {@link MyArrayDeque#pollLast()}.
+	 */
+	@Test
+	public void testPoll() {
+		assertThat(deque.pollFirst(), is(1));
+		assertThat(deque.pollLast(), is(3));
+		assertThat(deque.pollLast(), is(2));
+		assertThat(deque.pollFirst(), nullValue());
+		assertThat(deque.isEmpty(), is(true));
+
+		try {
+			deque.removeFirst();
+			fail();
+		} catch (NoSuchElementException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyArrayDeque#iterator()}.
+	 */
+	@Test
+	public void testIterator() {
+		// wrap around the end of the array
+		deque.pollFirst();
+		deque.addLast(4);
+		deque.addLast(5);
+
+		Iterator<Integer> iter = deque.iterator();
+		assertThat(iter.next(), is(2));
+		assertThat(iter.next(), is(3));
+		iter.remove();
+		assertThat(iter.next(), is(4));
+		assertThat(iter.next(), is(5));
+		assertThat(iter.hasNext(), is(false));
+		assertThat(deque.toArray(), is(new Object[] {2, 4, 5}));
+
+		iter = deque.descendingIterator();
+		assertThat(iter.next(), is(5));
+		assertThat(iter.next(), is(4));
+		assertThat(iter.next(), is(2));
+		assertThat(iter.hasNext(), is(false));
+	}
+
+	/**
+	 * Test method for {@link MyArrayDeque#removeFirstOccurrence(Object)}.
+	 */
+	@Test
+	public void testRemoveObject() {
+		deque.addLast(2);
+		assertThat(deque.removeFirstOccurrence(2), is(true));
+		assertThat(deque.toArray(), is(new Object[] {1, 3, 2}));
+		assertThat(deque.removeLastOccurrence(2), is(true));
+		assertThat(deque.toArray(), is(new Object[] {1, 3}));
+		assertThat(deque.remove(5), is(false));
+		assertThat(deque.contains(3), is(true));
+	}
+
+	/**
+	 * Compares a long random sequence of operations with java.util.ArrayDeque.
+	 */
+	@Test
+	public void testRandomOperations() {
+		Deque<Integer> expected = new ArrayDeque<Integer>(deque);
+		Random random = new Random(17);
+		for (int i=0; i<10000; i++) {
+			switch (random.nextInt(5)) {
+			case 0: deque.addFirst(i); expected.addFirst(i); break;
+			case 1: deque.addLast(i); expected.addLast(i); break;
+			case 2: assertThat(deque.pollFirst(), is(expected.pollFirst())); break;
+			case 3: assertThat(deque.pollLast(), is(expected.pollLast())); break;
+			default:
+				Integer target = random.nextInt(i + 1);
+				assertThat(deque.remove(target), is(expected.remove(target)));
+			}
+			assertThat(deque.size(), is(expected.size()));
+		}
+		assertThat(deque.toArray(), is(expected.toArray()));
+	}
+
+	/**
+	 * Test method for {@link MyBoundedDeque}.
+	 */
+	@Test
+	public void testBounded() {
+		MyBoundedDeque<Integer> bounded = new MyBoundedDeque<Integer>(3);
+		assertThat(bounded.offer(1), is(true));
+		assertThat(bounded.offerFirst(0), is(true));
+		assertThat(bounded.offerLast(2), is(true));
+		assertThat(bounded.remainingCapacity(), is(0));
+		assertThat(bounded.offer(3), is(false));
+		assertThat(bounded.offerFirst(3), is(false));
+
+		try {
+			bounded.add(3);
+			fail();
+		} catch (IllegalStateException e) {} // good
+
+		assertThat(bounded.poll(), is(0));
+		assertThat(bounded.offer(3), is(true));
+		assertThat(bounded.toArray(), is(new Object[] {1, 2, 3}));
+	}
+}
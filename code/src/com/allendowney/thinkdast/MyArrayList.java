@@ -1,26 +1,68 @@
 package com.allendowney.thinkdast;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * @author downey
  * @param <T>
  *
  */
-public class MyArrayList<T> implements List<T> {
+public class MyArrayList<T> implements List<T>, RandomAccess {
+	private static final int DEFAULT_CAPACITY = 10;
+	private static final double DEFAULT_GROWTH_FACTOR = 2.0;
+
+	// ranges smaller than this are not worth splitting across threads
+	static final int PARALLEL_THRESHOLD = 1 << 13;
+
 	int size;                    // keeps track of the number of elements
 	private T[] array;           // stores the elements
+	private final double growthFactor;   // how much the array grows when full
 
 	/**
 	 *
 	 */
-	@SuppressWarnings("unchecked")
 	public MyArrayList() {
+		this(DEFAULT_CAPACITY, DEFAULT_GROWTH_FACTOR);
+	}
+
+	/**
+	 * Makes an empty list with room for `initialCapacity` elements.
+	 *
+	 * @param initialCapacity
+	 */
+	public MyArrayList(int initialCapacity) {
+		this(initialCapacity, DEFAULT_GROWTH_FACTOR);
+	}
+
+	/**
+	 * Makes an empty list with room for `initialCapacity` elements.
+	 *
+	 * When the array is full, its length is multiplied by `growthFactor`.
+	 * Larger factors mean fewer copies; smaller factors waste less space.
+	 *
+	 * @param initialCapacity
+	 * @param growthFactor must be greater than 1
+	 */
+	@SuppressWarnings("unchecked")
+	public MyArrayList(int initialCapacity, double growthFactor) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		}
+		if (!(growthFactor > 1.0)) {
+			throw new IllegalArgumentException("Illegal growth factor: " + growthFactor);
+		}
 		// You can't instantiate an array of T[], but you can instantiate an
 		// array of Object and then typecast it.  Details at
 		// http://www.ibm.com/developerworks/java/library/j-jtp01255/index.html
-		array = (T[]) new Object[10];
+		array = (T[]) new Object[initialCapacity];
 		size = 0;
+		this.growthFactor = growthFactor;
 	}
 
 	/**
@@ -38,14 +80,50 @@ public class MyArrayList<T> implements List<T> {
 		System.out.println(Arrays.toString(mal.toArray()) + " size = " + mal.size);
 	}
 
+	/**
+	 * Makes sure the array can hold at least `minCapacity` elements.
+	 *
+	 * If the array has to grow, it grows by the growth factor, or to
+	 * exactly `minCapacity` if that is bigger, so adding a known number of
+	 * elements reallocates at most once.
+	 *
+	 * @param minCapacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity <= array.length) {
+			return;
+		}
+		long grown = (long) (array.length * growthFactor);
+		int newCapacity = (int) Math.min(Math.max(grown, minCapacity), Integer.MAX_VALUE - 8);
+		if (newCapacity < minCapacity) {
+			throw new OutOfMemoryError("Required array size too large");
+		}
+		// make a bigger array and copy over the elements
+		array = Arrays.copyOf(array, newCapacity);
+	}
+
+	/**
+	 * Shrinks the array so its length is the number of elements.
+	 */
+	public void trimToSize() {
+		if (size < array.length) {
+			array = Arrays.copyOf(array, size);
+		}
+	}
+
+	/**
+	 * Returns the length of the array; package-level for testing.
+	 *
+	 * @return
+	 */
+	int capacity() {
+		return array.length;
+	}
+
 	@Override
-	@SuppressWarnings("unchecked")
 	public boolean add(T element) {
 		if (size >= array.length) {
-			// make a bigger array and copy over the elements
-			T[] bigger = (T[]) new Object[array.length * 2];
-			System.arraycopy(array, 0, bigger, 0, array.length);
-			array = bigger;
+			ensureCapacity(size + 1);
 		}
 		array[size] = element;
 		size++;
@@ -57,29 +135,36 @@ public class MyArrayList<T> implements List<T> {
 		if (index < 0 || index > size) {
 			throw new IndexOutOfBoundsException();
 		}
-		// add the element to get the resizing
-		add(element);
+		ensureCapacity(size + 1);
 
-		// shift the elements
-		for (int i=size-1; i>index; i--) {
-			array[i] = array[i-1];
-		}
-		// put the new one in the right place
+		// shift the elements and put the new one in the right place
+		System.arraycopy(array, index, array, index + 1, size - index);
 		array[index] = element;
+		size++;
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends T> collection) {
-		boolean flag = true;
-		for (T element: collection) {
-			flag &= add(element);
-		}
-		return flag;
+		return addAll(size, collection);
 	}
 
 	@Override
 	public boolean addAll(int index, Collection<? extends T> collection) {
-		throw new UnsupportedOperationException();
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		// copy the collection once, then grow at most once
+		Object[] elements = collection.toArray();
+		int n = elements.length;
+		if (n == 0) {
+			return false;
+		}
+		ensureCapacity(size + n);
+
+		System.arraycopy(array, index, array, index + n, size - index);
+		System.arraycopy(elements, 0, array, index, n);
+		size += n;
+		return true;
 	}
 
 	@Override
@@ -189,14 +274,30 @@ public class MyArrayList<T> implements List<T> {
 	public T remove(int index) {
 		failIfOutOfBound(index);
 		T previous = array[index];
-		for (int i = index; i < size - 1 ; i++) {
-			array[i] = array[i + 1];
-		}
+		System.arraycopy(array, index + 1, array, index, size - index - 1);
 		size--;
+		// let the removed reference be garbage collected
+		array[size] = null;
 
 		return previous;
 	}
 
+	/**
+	 * Removes the elements from `fromIndex`, inclusive, to `toIndex`, exclusive.
+	 *
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	public void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException();
+		}
+		System.arraycopy(array, toIndex, array, fromIndex, size - toIndex);
+		int newSize = size - (toIndex - fromIndex);
+		Arrays.fill(array, newSize, size, null);
+		size = newSize;
+	}
+
 	@Override
 	public boolean removeAll(Collection<?> collection) {
 		boolean flag = true;
@@ -244,6 +345,243 @@ public class MyArrayList<T> implements List<T> {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void forEach(Consumer<? super T> action) {
+		for (int i = 0; i < size; i++) {
+			action.accept(array[i]);
+		}
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<T> operator) {
+		for (int i = 0; i < size; i++) {
+			array[i] = operator.apply(array[i]);
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		boolean[] doomed = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			doomed[i] = filter.test(array[i]);
+		}
+		return compact(doomed);
+	}
+
+	@Override
+	public void sort(Comparator<? super T> comparator) {
+		// the default implementation writes back through listIterator,
+		// which iterates over a copy
+		Arrays.sort(array, 0, size, comparator);
+	}
+
+	@Override
+	public Spliterator<T> spliterator() {
+		return new ArraySpliterator(0, -1);
+	}
+
+	/**
+	 * Splits the range [origin, fence) of the array in half each time.
+	 *
+	 * The fence is bound to the size of the list on first use.  Changing
+	 * the size of the list during a traversal is not detected.
+	 */
+	private class ArraySpliterator implements Spliterator<T> {
+		private int index;
+		private int fence;      // -1 until first use
+
+		ArraySpliterator(int origin, int fence) {
+			this.index = origin;
+			this.fence = fence;
+		}
+
+		private int getFence() {
+			if (fence < 0) {
+				fence = size;
+			}
+			return fence;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int hi = getFence();
+			int mid = (index + hi) >>> 1;
+			if (index >= mid) {
+				return null;
+			}
+			Spliterator<T> prefix = new ArraySpliterator(index, mid);
+			index = mid;
+			return prefix;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (index >= getFence()) {
+				return false;
+			}
+			action.accept(array[index++]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			T[] a = array;
+			int hi = getFence();
+			for (int i = index; i < hi; i++) {
+				action.accept(a[i]);
+			}
+			index = hi;
+		}
+
+		@Override
+		public long estimateSize() {
+			return getFence() - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+	}
+
+	/**
+	 * Performs `action` on each element, using multiple threads.
+	 *
+	 * The order in which elements are processed is unspecified, so
+	 * `action` has to be thread safe.
+	 *
+	 * @param action
+	 */
+	public void parallelForEach(final Consumer<? super T> action) {
+		final T[] a = array;
+		forEachRange(0, size, new RangeOperation() {
+			public void apply(int from, int to) {
+				for (int i = from; i < to; i++) {
+					action.accept(a[i]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Replaces each element with the result of `operator`, using multiple threads.
+	 *
+	 * @param operator
+	 */
+	public void parallelReplaceAll(final UnaryOperator<T> operator) {
+		final T[] a = array;
+		forEachRange(0, size, new RangeOperation() {
+			public void apply(int from, int to) {
+				for (int i = from; i < to; i++) {
+					a[i] = operator.apply(a[i]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes the elements that satisfy `filter`, testing them in parallel.
+	 *
+	 * The survivors are then compacted in a single sequential pass, so
+	 * they keep their order.
+	 *
+	 * @param filter
+	 * @return whether any elements were removed
+	 */
+	public boolean parallelRemoveIf(final Predicate<? super T> filter) {
+		final T[] a = array;
+		final boolean[] doomed = new boolean[size];
+		forEachRange(0, size, new RangeOperation() {
+			public void apply(int from, int to) {
+				for (int i = from; i < to; i++) {
+					doomed[i] = filter.test(a[i]);
+				}
+			}
+		});
+		return compact(doomed);
+	}
+
+	/**
+	 * Sorts the list using multiple threads.
+	 *
+	 * Uses Arrays.parallelSort, which is a fork/join merge sort, so it is
+	 * stable like sort.
+	 *
+	 * @param comparator
+	 */
+	public void parallelSort(Comparator<? super T> comparator) {
+		Arrays.parallelSort(array, 0, size, comparator);
+	}
+
+	/**
+	 * Removes the elements whose flag in `doomed` is set.
+	 *
+	 * @param doomed
+	 * @return whether any elements were removed
+	 */
+	private boolean compact(boolean[] doomed) {
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			if (!doomed[i]) {
+				array[j++] = array[i];
+			}
+		}
+		if (j == size) {
+			return false;
+		}
+		Arrays.fill(array, j, size, null);
+		size = j;
+		return true;
+	}
+
+	/**
+	 * An operation on a range of indices [from, to).
+	 */
+	private interface RangeOperation {
+		void apply(int from, int to);
+	}
+
+	/**
+	 * Applies `op` to [from, to), split into pieces that run in the
+	 * common ForkJoinPool, or in the current pool if called from inside one.
+	 */
+	private static void forEachRange(int from, int to, RangeOperation op) {
+		if (to - from <= PARALLEL_THRESHOLD) {
+			op.apply(from, to);
+			return;
+		}
+		RangeTask task = new RangeTask(from, to, op);
+		if (ForkJoinTask.inForkJoinPool()) {
+			task.invoke();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+	}
+
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final RangeOperation op;
+
+		RangeTask(int from, int to, RangeOperation op) {
+			this.from = from;
+			this.to = to;
+			this.op = op;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				op.apply(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeTask(from, mid, op), new RangeTask(mid, to, op));
+		}
+	}
+
 	private void failIfOutOfBound(int index) {
 		if (index < 0 || index >= size) {
 			throw new IndexOutOfBoundsException();
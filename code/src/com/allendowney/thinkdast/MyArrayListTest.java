@@ -6,8 +6,11 @@ import static org.junit.Assert.fail;
 import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -97,6 +100,135 @@ public class MyArrayListTest {
 		assertThat(mylist.get(5), is(new Integer(3)));
 	}
 
+	/**
+	 * Test method for {@link MyArrayList#addAll(int, java.util.Collection)}.
+	 */
+	@Test
+	public void testAddAllIntCollection() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>(0);
+		mal.addAll(list);
+		// grows once, to the size needed
+		assertThat(mal.capacity(), is(3));
+
+		mal.addAll(1, list);
+		assertThat(mal.size(), is(6));
+		assertThat(mal.toArray(), is(new Object[] {1, 1, 2, 3, 2, 3}));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#ensureCapacity(int)}.
+	 */
+	@Test
+	public void testEnsureCapacity() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>(10, 1.5);
+		mal.ensureCapacity(5);
+		assertThat(mal.capacity(), is(10));
+
+		for (int i = 0; i < 11; i++) {
+			mal.add(i);
+		}
+		assertThat(mal.capacity(), is(15));
+
+		mal.ensureCapacity(1000);
+		assertThat(mal.capacity(), is(1000));
+		assertThat(mal.get(10), is(10));
+
+		try {
+			new MyArrayList<Integer>(10, 1.0);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#trimToSize()}.
+	 */
+	@Test
+	public void testTrimToSize() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>();
+		mal.addAll(list);
+		mal.trimToSize();
+		assertThat(mal.capacity(), is(3));
+
+		mal.add(4);
+		assertThat(mal.size(), is(4));
+		assertThat(mal.get(3), is(4));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#removeRange(int, int)}.
+	 */
+	@Test
+	public void testRemoveRange() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>();
+		for (int i = 0; i < 10; i++) {
+			mal.add(i);
+		}
+		mal.removeRange(2, 5);
+		assertThat(mal.size(), is(7));
+		assertThat(mal.toArray(), is(new Object[] {0, 1, 5, 6, 7, 8, 9}));
+
+		try {
+			mal.removeRange(5, 8);
+			fail();
+		} catch (IndexOutOfBoundsException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#spliterator()}.
+	 */
+	@Test
+	public void testParallelStream() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			mal.add(i);
+		}
+		long sum = mal.parallelStream().mapToLong(x -> x).sum();
+		assertThat(sum, is(4999950000L));
+		assertThat(mal.spliterator().hasCharacteristics(Spliterator.SUBSIZED), is(true));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#parallelReplaceAll(java.util.function.UnaryOperator)}
+	 * and {@link MyArrayList#parallelRemoveIf(java.util.function.Predicate)}.
+	 */
+	@Test
+	public void testParallelBulkOperations() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			mal.add(i);
+		}
+		mal.parallelReplaceAll(x -> x * 2);
+		assertThat(mal.get(99999), is(199998));
+
+		boolean removed = mal.parallelRemoveIf(x -> x % 4 == 0);
+		assertThat(removed, is(true));
+		assertThat(mal.size(), is(50000));
+		assertThat(mal.get(0), is(2));
+		assertThat(mal.get(1), is(6));
+
+		AtomicLong total = new AtomicLong();
+		mal.parallelForEach(x -> total.addAndGet(x));
+		assertThat(total.get(), is(5000000000L));
+	}
+
+	/**
+	 * Test method for {@link MyArrayList#parallelSort(java.util.Comparator)}.
+	 */
+	@Test
+	public void testParallelSort() {
+		MyArrayList<Integer> mal = new MyArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			mal.add((i * 7919) % 100000);
+		}
+		mal.parallelSort(Comparator.<Integer>naturalOrder());
+		for (int i = 0; i < 100000; i++) {
+			assertThat(mal.get(i), is(i));
+		}
+
+		mal.sort(Comparator.<Integer>reverseOrder());
+		assertThat(mal.get(0), is(99999));
+	}
+
 	/**
 	 * Test method for {@link MyArrayList#clear()}.
 	 */
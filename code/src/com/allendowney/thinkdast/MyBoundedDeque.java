@@ -0,0 +1,82 @@
+package com.allendowney.thinkdast;
+
+/**
+ * MyArrayDeque that holds at most a fixed number of elements.
+ *
+ * When the deque is full, offer methods return false and add methods
+ * throw IllegalStateException, so a producer can tell it should slow
+ * down or drop work instead of letting the deque grow without limit.
+ *
+ * @param <E>
+ */
+public class MyBoundedDeque<E> extends MyArrayDeque<E> {
+	private final int capacity;
+
+	/**
+	 * Makes an empty deque that holds at most `capacity` elements.
+	 *
+	 * The array starts small and grows as needed, so a large bound
+	 * doesn't cost anything until it is used.
+	 *
+	 * @param capacity
+	 */
+	public MyBoundedDeque(int capacity) {
+		super(Math.min(capacity, 16));
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the maximum number of elements.
+	 *
+	 * @return
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of elements that can be added before the deque is full.
+	 *
+	 * @return
+	 */
+	public int remainingCapacity() {
+		return capacity - size();
+	}
+
+	@Override
+	public void addFirst(E element) {
+		if (size() >= capacity) {
+			throw new IllegalStateException("Deque full");
+		}
+		super.addFirst(element);
+	}
+
+	@Override
+	public void addLast(E element) {
+		if (size() >= capacity) {
+			throw new IllegalStateException("Deque full");
+		}
+		super.addLast(element);
+	}
+
+	@Override
+	public boolean offerFirst(E element) {
+		if (size() >= capacity) {
+			return false;
+		}
+		super.addFirst(element);
+		return true;
+	}
+
+	@Override
+	public boolean offerLast(E element) {
+		if (size() >= capacity) {
+			return false;
+		}
+		super.addLast(element);
+		return true;
+	}
+}
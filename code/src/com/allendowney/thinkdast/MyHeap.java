@@ -2,114 +2,154 @@ package com.allendowney.thinkdast;
 
 import java.util.*;
 
-public class MyHeap<E>{
-    private List<E> values;
+/**
+ * Priority queue implemented with an array-based heap.
+ *
+ * Each node has `arity` children: the children of the node at index i are
+ * at indexes arity*i + 1 through arity*i + arity.  A binary heap does the
+ * fewest comparisons per poll, but a 4-ary or 8-ary heap is shallower and
+ * keeps siblings in the same cache line, which is often faster.
+ *
+ * Elements are ordered by a Comparator, or by their natural ordering if
+ * the Comparator is null.  The smallest element is at the root.
+ */
+public class MyHeap<E> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] values;
+    private int size;
+    private final Comparator<? super E> comparator;
+    private final int arity;
 
     public MyHeap() {
-        values = new ArrayList<>();
+        this(null);
     }
 
     /**
-     * Push new value to the heap
+     * Makes a binary heap ordered by `comparator`.
      */
-    public void push(E value) {
-        // Add value to the end
-        values.add(value);
+    public MyHeap(Comparator<? super E> comparator) {
+        this(comparator, 2);
+    }
 
-        int index = values.size();
-        while (index > 1) {
-            int prev = index >> 1;
-            if (((Comparable<E>) values.get(index - 1)).compareTo(values.get(prev - 1)) >= 0) {
-                break;
-            }
+    /**
+     * Makes a heap where each node has `arity` children.
+     *
+     * @param comparator null to use the natural ordering
+     * @param arity usually 2, 4 or 8
+     */
+    public MyHeap(Comparator<? super E> comparator, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+        }
+        this.values = new Object[DEFAULT_CAPACITY];
+        this.comparator = comparator;
+        this.arity = arity;
+    }
 
-            Collections.swap(values, index - 1, prev - 1);
-            index = prev;
+    /**
+     * Push new value to the heap
+     */
+    public void push(E value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
         }
+        siftUp(size++, value);
     }
 
+    /**
+     * Get and remove the smallest one, or return null if the heap is empty
+     */
     public E poll() {
-        E result = values.get(0);
+        if (size == 0) {
+            return null;
+        }
+        E result = elementAt(0);
+
+        // move the last element into the hole at the root
+        size--;
+        E last = elementAt(size);
+        values[size] = null;
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return result;
+    }
 
-        // make the last element the root
-        values.set(0, values.get(values.size() - 1));
-        values.remove(values.size() - 1);
+    public E peek() {
+        return size == 0 ? null : elementAt(0);
+    }
 
-        // rebalance
-        int index = 0;
-        int nextIndex;
-        while (true) {
-            nextIndex = (index + 1) * 2 - 1;
+    public int size() {
+        return size;
+    }
 
-            // If right node is not missing and less than right, than this is the candidate for future comparison
-            if (nextIndex + 1 < size() && ((Comparable<E>) values.get(nextIndex)).compareTo(values.get(nextIndex + 1)) > 0) {
-                nextIndex++;
-            }
+    public boolean isEmpty() {
+        return size == 0;
+    }
 
-            if (nextIndex < size() && ((Comparable<E>) values.get(index)).compareTo(values.get(nextIndex)) > 0) {
-                Collections.swap(values, index, nextIndex);
-                index = nextIndex;
-                continue;
-            }
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
 
-            break;
-        }
+    @SuppressWarnings("unchecked")
+    private E elementAt(int i) {
+        return (E) values[i];
+    }
 
-        return result;
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        return comparator == null ? ((Comparable<? super E>) a).compareTo(b) : comparator.compare(a, b);
     }
 
     /**
-     * Get and remove the smallest one
+     * Puts `value` into the hole at `index`, moving bigger parents down
+     * into the hole until it fits.
      */
-    public E pollWithNulls() {
-        int index = 0;
-        int nextIndex;
-        E result = values.get(index);
-
-        while (true) {
-            nextIndex = (index + 1)*2 - 1;
-
-            // If left out of bound -> set null and exit
-            if (nextIndex >= values.size()) {
-                values.set(index, null);
+    private void siftUp(int index, E value) {
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            E p = elementAt(parent);
+            if (compare(value, p) >= 0) {
                 break;
-            } else if (nextIndex + 1 >= values.size()) {
-                // if left is ok, but right is out of bound -> do nothing
-            } else {
-                E valueLeft = values.get(nextIndex);
-                E valueRight = values.get(nextIndex + 1);
-                if (valueLeft == null & valueRight == null) {
-                    values.set(index, null);
-                    break;
-                }
-                if (valueLeft == null) {
-                    nextIndex++;
-                } else if (valueRight == null) {
-                    // nothing
-                } else {
-                    if (((Comparable<E>) valueLeft).compareTo(valueRight) > 0) {
-                        nextIndex++;
-                    }
-                }
             }
-
-            values.set(index, values.get(nextIndex));
-            index = nextIndex;
+            values[index] = p;
+            index = parent;
         }
-
-        return result;
+        values[index] = value;
     }
 
-    public E peek() {
-        if (size() == 0) {
-            return null;
+    /**
+     * Puts `value` into the hole at `index`, moving the smallest child up
+     * into the hole until it fits.
+     */
+    private void siftDown(int index, E value) {
+        while (true) {
+            int first = arity * index + 1;
+            if (first >= size) {
+                break;
+            }
+            int smallest = first;
+            E child = elementAt(first);
+            int end = Math.min(first + arity, size);
+            for (int i = first + 1; i < end; i++) {
+                E other = elementAt(i);
+                if (compare(other, child) < 0) {
+                    smallest = i;
+                    child = other;
+                }
+            }
+            if (compare(value, child) <= 0) {
+                break;
+            }
+            values[index] = child;
+            index = smallest;
         }
-
-        return values.get(0);
-    }
-
-    public int size() {
-        return values.size();
+        values[index] = value;
     }
 
     public static void main(String[] args) {
@@ -122,7 +162,7 @@ public class MyHeap<E>{
         heap.push(4);
         heap.push(2);
         heap.push(7);
-        System.out.println(heap.values);
+        System.out.println(Arrays.toString(Arrays.copyOf(heap.values, heap.size)));
 
         for (int i = 0; i < 8; i++) {
             System.out.println(heap.poll());
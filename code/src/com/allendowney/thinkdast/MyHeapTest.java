@@ -0,0 +1,89 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class MyHeapTest {
+
+	private MyHeap<Integer> heap;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		heap = new MyHeap<Integer>();
+		for (int i: Arrays.asList(6, 3, 5, 8, 1, 4, 2, 7)) {
+			heap.push(i);
+		}
+	}
+
+	/**
+	 * Test method for {@link MyHeap#poll()}.
+	 */
+	@Test
+	public void testPoll() {
+		assertThat(heap.size(), is(8));
+		assertThat(heap.peek(), is(1));
+		for (int i = 1; i <= 8; i++) {
+			assertThat(heap.poll(), is(i));
+		}
+		assertThat(heap.isEmpty(), is(true));
+		assertThat(heap.poll(), nullValue());
+		assertThat(heap.peek(), nullValue());
+	}
+
+	/**
+	 * Test method for {@link MyHeap#MyHeap(java.util.Comparator, int)}.
+	 */
+	@Test
+	public void testArityAndComparator() {
+		for (int arity: new int[] {2, 4, 8}) {
+			MyHeap<Integer> dheap = new MyHeap<Integer>(Comparator.<Integer>reverseOrder(), arity);
+			Random random = new Random(arity);
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i < 1000; i++) {
+				int x = random.nextInt(500);
+				expected.add(x);
+				dheap.push(x);
+			}
+			Collections.sort(expected, Collections.reverseOrder());
+
+			List<Integer> actual = new ArrayList<Integer>();
+			while (!dheap.isEmpty()) {
+				actual.add(dheap.poll());
+			}
+			assertThat(actual, is(expected));
+		}
+
+		try {
+			new MyHeap<Integer>(null, 1);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyHeap#clear()}.
+	 */
+	@Test
+	public void testClear() {
+		heap.clear();
+		assertThat(heap.size(), is(0));
+		heap.push(9);
+		assertThat(heap.poll(), is(9));
+	}
+}
@@ -0,0 +1,276 @@
+package com.allendowney.thinkdast;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue whose elements can be changed or removed after they
+ * are added.
+ *
+ * push returns a Handle, which remembers where its element is in the
+ * heap.  With the handle, decreaseKey moves an element up when its
+ * priority improves, and remove takes out an element from the middle,
+ * both in O(log n) time.  That is what Dijkstra's algorithm needs, and
+ * what a crawler needs to promote a URL that is already in its queue.
+ *
+ * Like MyHeap, each node has `arity` children and the smallest element
+ * is at the root.
+ *
+ * @param <E>
+ */
+public class MyIndexedHeap<E> {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Refers to one element in a heap.
+	 *
+	 * @param <E>
+	 */
+	public static final class Handle<E> {
+		private E value;
+		private int index;    // position in the heap, or -1 if removed
+
+		private Handle(E value) {
+			this.value = value;
+		}
+
+		public E value() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(value);
+		}
+	}
+
+	private Handle<E>[] nodes;
+	private int size;
+	private final Comparator<? super E> comparator;
+	private final int arity;
+
+	/**
+	 * Makes a binary heap that uses the natural ordering.
+	 */
+	public MyIndexedHeap() {
+		this(null, 2);
+	}
+
+	/**
+	 * Makes a heap where each node has `arity` children.
+	 *
+	 * @param comparator null to use the natural ordering
+	 * @param arity usually 2, 4 or 8
+	 */
+	public MyIndexedHeap(Comparator<? super E> comparator, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Illegal arity: " + arity);
+		}
+		@SuppressWarnings("unchecked")
+		Handle<E>[] nodes = (Handle<E>[]) new Handle<?>[DEFAULT_CAPACITY];
+		this.nodes = nodes;
+		this.comparator = comparator;
+		this.arity = arity;
+	}
+
+	/**
+	 * Adds an element.
+	 *
+	 * @param value
+	 * @return a handle for changing or removing the element later
+	 */
+	public Handle<E> push(E value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, size * 2);
+		}
+		Handle<E> handle = new Handle<E>(value);
+		siftUp(size++, handle);
+		return handle;
+	}
+
+	/**
+	 * Removes and returns the smallest element, or null if the heap is empty.
+	 *
+	 * @return
+	 */
+	public E poll() {
+		if (size == 0) {
+			return null;
+		}
+		Handle<E> root = nodes[0];
+		removeAt(0);
+		return root.value;
+	}
+
+	/**
+	 * Returns the handle of the smallest element, or null if the heap is empty.
+	 *
+	 * @return
+	 */
+	public Handle<E> peek() {
+		return size == 0 ? null : nodes[0];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Checks whether the element for `handle` is still in this heap.
+	 *
+	 * @param handle
+	 * @return
+	 */
+	public boolean contains(Handle<E> handle) {
+		int i = handle.index;
+		return i >= 0 && i < size && nodes[i] == handle;
+	}
+
+	/**
+	 * Replaces an element with one that is no bigger.
+	 *
+	 * @param handle
+	 * @param value
+	 * @throws IllegalArgumentException if the new value is bigger
+	 */
+	public void decreaseKey(Handle<E> handle, E value) {
+		checkHandle(handle);
+		if (compare(value, handle.value) > 0) {
+			throw new IllegalArgumentException("New value is bigger: " + value);
+		}
+		handle.value = value;
+		siftUp(handle.index, handle);
+	}
+
+	/**
+	 * Replaces an element with any other value.
+	 *
+	 * @param handle
+	 * @param value
+	 */
+	public void update(Handle<E> handle, E value) {
+		checkHandle(handle);
+		// compare before changing anything, in case the comparator throws
+		boolean smaller = compare(value, handle.value) < 0;
+		handle.value = value;
+		if (smaller) {
+			siftUp(handle.index, handle);
+		} else {
+			siftDown(handle.index, handle);
+		}
+	}
+
+	/**
+	 * Removes an element from anywhere in the heap.
+	 *
+	 * @param handle
+	 * @return the element's value
+	 */
+	public E remove(Handle<E> handle) {
+		checkHandle(handle);
+		removeAt(handle.index);
+		return handle.value;
+	}
+
+	private void checkHandle(Handle<E> handle) {
+		if (!contains(handle)) {
+			throw new NoSuchElementException("Handle is not in this heap: " + handle);
+		}
+	}
+
+	/**
+	 * Removes the node at `i`, filling the hole with the last node.
+	 */
+	private void removeAt(int i) {
+		Handle<E> removed = nodes[i];
+		size--;
+		Handle<E> last = nodes[size];
+		nodes[size] = null;
+		removed.index = -1;
+		if (i == size) {
+			return;
+		}
+		// the last node might belong above the hole or below it
+		if (i > 0 && compare(last.value, nodes[(i - 1) / arity].value) < 0) {
+			siftUp(i, last);
+		} else {
+			siftDown(i, last);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(E a, E b) {
+		return comparator == null ? ((Comparable<? super E>) a).compareTo(b) : comparator.compare(a, b);
+	}
+
+	/**
+	 * Puts `node` into the hole at `i`, moving bigger parents down until it fits.
+	 */
+	private void siftUp(int i, Handle<E> node) {
+		while (i > 0) {
+			int parent = (i - 1) / arity;
+			Handle<E> p = nodes[parent];
+			if (compare(node.value, p.value) >= 0) {
+				break;
+			}
+			place(i, p);
+			i = parent;
+		}
+		place(i, node);
+	}
+
+	/**
+	 * Puts `node` into the hole at `i`, moving the smallest child up until it fits.
+	 */
+	private void siftDown(int i, Handle<E> node) {
+		while (true) {
+			int first = arity * i + 1;
+			if (first >= size) {
+				break;
+			}
+			int smallest = first;
+			int end = Math.min(first + arity, size);
+			for (int j = first + 1; j < end; j++) {
+				if (compare(nodes[j].value, nodes[smallest].value) < 0) {
+					smallest = j;
+				}
+			}
+			Handle<E> child = nodes[smallest];
+			if (compare(node.value, child.value) <= 0) {
+				break;
+			}
+			place(i, child);
+			i = smallest;
+		}
+		place(i, node);
+	}
+
+	private void place(int i, Handle<E> node) {
+		nodes[i] = node;
+		node.index = i;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		MyIndexedHeap<Integer> heap = new MyIndexedHeap<Integer>(null, 4);
+		heap.push(6);
+		Handle<Integer> eight = heap.push(8);
+		Handle<Integer> three = heap.push(3);
+		heap.push(5);
+		heap.decreaseKey(eight, 1);
+		heap.remove(three);
+		while (!heap.isEmpty()) {
+			System.out.println(heap.poll());
+		}
+	}
+}
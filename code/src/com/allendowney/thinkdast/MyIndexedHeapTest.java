@@ -0,0 +1,170 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.allendowney.thinkdast.MyIndexedHeap.Handle;
+
+/**
+ * @author downey
+ *
+ */
+public class MyIndexedHeapTest {
+
+	private MyIndexedHeap<Integer> heap;
+	private List<Handle<Integer>> handles;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		heap = new MyIndexedHeap<Integer>();
+		handles = new ArrayList<Handle<Integer>>();
+		for (int i: Arrays.asList(6, 3, 5, 8, 1, 4, 2, 7)) {
+			handles.add(heap.push(i));
+		}
+	}
+
+	/**
+	 * Test method for {@link MyIndexedHeap#decreaseKey(Handle, java.lang.Object)}.
+	 */
+	@Test
+	public void testDecreaseKey() {
+		Handle<Integer> eight = handles.get(3);
+		heap.decreaseKey(eight, 0);
+		assertThat(heap.peek(), is(eight));
+		assertThat(heap.poll(), is(0));
+		assertThat(heap.contains(eight), is(false));
+
+		try {
+			heap.decreaseKey(handles.get(0), 10);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+
+		try {
+			heap.decreaseKey(eight, -1);
+			fail();
+		} catch (NoSuchElementException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link MyIndexedHeap#update(Handle, java.lang.Object)}.
+	 */
+	@Test
+	public void testUpdate() {
+		heap.update(handles.get(4), 9);
+		heap.update(handles.get(3), 0);
+
+		// a value the comparator can't handle leaves the heap as it was
+		try {
+			heap.update(handles.get(0), null);
+			fail();
+		} catch (NullPointerException e) {} // good
+		assertThat(handles.get(0).value(), is(6));
+
+		List<Integer> actual = new ArrayList<Integer>();
+		while (!heap.isEmpty()) {
+			actual.add(heap.poll());
+		}
+		assertThat(actual, is(Arrays.asList(0, 2, 3, 4, 5, 6, 7, 9)));
+	}
+
+	/**
+	 * Test method for {@link MyIndexedHeap#remove(Handle)}.
+	 */
+	@Test
+	public void testRemove() {
+		assertThat(heap.remove(handles.get(0)), is(6));
+		assertThat(heap.remove(handles.get(4)), is(1));
+		assertThat(heap.size(), is(6));
+
+		List<Integer> actual = new ArrayList<Integer>();
+		while (!heap.isEmpty()) {
+			actual.add(heap.poll());
+		}
+		assertThat(actual, is(Arrays.asList(2, 3, 4, 5, 7, 8)));
+	}
+
+	/**
+	 * Applies random updates and removals and checks the heap against a sorted list.
+	 */
+	@Test
+	public void testRandomOperations() {
+		for (int arity: new int[] {2, 4, 8}) {
+			MyIndexedHeap<Integer> dheap = new MyIndexedHeap<Integer>(Comparator.<Integer>naturalOrder(), arity);
+			List<Handle<Integer>> live = new ArrayList<Handle<Integer>>();
+			Random random = new Random(arity);
+			for (int i = 0; i < 2000; i++) {
+				live.add(dheap.push(random.nextInt(1000)));
+			}
+			for (int i = 0; i < 1000; i++) {
+				Handle<Integer> handle = live.get(random.nextInt(live.size()));
+				switch (random.nextInt(3)) {
+				case 0:
+					dheap.decreaseKey(handle, handle.value() - random.nextInt(100));
+					break;
+				case 1:
+					dheap.update(handle, random.nextInt(1000));
+					break;
+				default:
+					dheap.remove(handle);
+					live.remove(handle);
+				}
+			}
+
+			List<Integer> expected = new ArrayList<Integer>();
+			for (Handle<Integer> handle: live) {
+				expected.add(handle.value());
+			}
+			Collections.sort(expected);
+			List<Integer> actual = new ArrayList<Integer>();
+			while (!dheap.isEmpty()) {
+				actual.add(dheap.poll());
+			}
+			assertThat(actual, is(expected));
+		}
+	}
+
+	/**
+	 * Finds shortest distances in a small graph with Dijkstra's algorithm.
+	 */
+	@Test
+	public void testDijkstra() {
+		// edges[i] = {from, to, weight}
+		int[][] edges = {{0, 1, 4}, {0, 2, 1}, {2, 1, 2}, {1, 3, 1}, {2, 3, 5}, {3, 4, 3}};
+		final int[] dist = {0, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+
+		MyIndexedHeap<int[]> queue = new MyIndexedHeap<int[]>(new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return Integer.compare(a[1], b[1]);
+			}
+		}, 4);
+		List<Handle<int[]>> nodes = new ArrayList<Handle<int[]>>();
+		for (int v = 0; v < dist.length; v++) {
+			nodes.add(queue.push(new int[] {v, dist[v]}));
+		}
+		while (!queue.isEmpty()) {
+			int[] node = queue.poll();
+			for (int[] edge: edges) {
+				if (edge[0] == node[0] && node[1] != Integer.MAX_VALUE && node[1] + edge[2] < dist[edge[1]]) {
+					dist[edge[1]] = node[1] + edge[2];
+					queue.decreaseKey(nodes.get(edge[1]), new int[] {edge[1], dist[edge[1]]});
+				}
+			}
+		}
+		assertThat(dist, is(new int[] {0, 3, 1, 4, 7}));
+	}
+}
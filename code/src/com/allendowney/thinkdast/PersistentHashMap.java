@@ -0,0 +1,613 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map implemented as a hash array mapped trie (HAMT).
+ *
+ * Each level of the trie consumes 5 bits of the hash code.  A node stores
+ * a 32-bit bitmap of which children are present and a packed array with
+ * only those children, so sparse nodes stay small.  Keys whose hash codes
+ * are identical end up together in a collision node.
+ *
+ * Like PersistentVector, plus and minus return a new map that shares all
+ * untouched nodes with the old one, and a Builder can be used for fast
+ * bulk construction.  Keys can't be null; values can.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	private static final Object NOT_FOUND = new Object();
+
+	private static final PersistentHashMap<Object, Object> EMPTY =
+			new PersistentHashMap<Object, Object>(0, null);
+
+	private final int size;
+	private final Node root;      // null when the map is empty
+
+	private PersistentHashMap(int size, Node root) {
+		this.size = size;
+		this.root = root;
+	}
+
+	/**
+	 * Returns the empty map.
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> empty() {
+		return (PersistentHashMap<K, V>) EMPTY;
+	}
+
+	/**
+	 * Makes a map with the same entries as `map`.
+	 *
+	 * @param map
+	 * @return
+	 */
+	public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+		Builder<K, V> builder = builder();
+		for (Map.Entry<? extends K, ? extends V> entry: map.entrySet()) {
+			builder.put(entry.getKey(), entry.getValue());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns a Builder that starts out empty.
+	 *
+	 * @return
+	 */
+	public static <K, V> Builder<K, V> builder() {
+		return new Builder<K, V>(PersistentHashMap.<K, V>empty());
+	}
+
+	/**
+	 * Returns a Builder that starts out with the entries of this map.
+	 *
+	 * This map is not affected by changes to the Builder.
+	 *
+	 * @return
+	 */
+	public Builder<K, V> toBuilder() {
+		return new Builder<K, V>(this);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(key) != NOT_FOUND;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		Object value = find(key);
+		return value == NOT_FOUND ? null : (V) value;
+	}
+
+	private Object find(Object key) {
+		if (root == null || key == null) {
+			return NOT_FOUND;
+		}
+		return root.find(0, hash(key), key);
+	}
+
+	/**
+	 * Returns a new map where `key` maps to `value`.
+	 *
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	public PersistentHashMap<K, V> plus(K key, V value) {
+		checkKey(key);
+		Box addedLeaf = new Box();
+		Node start = root == null ? BitmapIndexedNode.EMPTY : root;
+		Node newRoot = start.assoc(null, 0, hash(key), key, value, addedLeaf);
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentHashMap<K, V>(addedLeaf.value ? size + 1 : size, newRoot);
+	}
+
+	/**
+	 * Returns a new map without `key`.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public PersistentHashMap<K, V> minus(Object key) {
+		if (root == null || key == null) {
+			return this;
+		}
+		Box removedLeaf = new Box();
+		Node newRoot = root.without(null, 0, hash(key), key, removedLeaf);
+		if (!removedLeaf.value) {
+			return this;
+		}
+		if (newRoot == null) {
+			return empty();
+		}
+		return new PersistentHashMap<K, V>(size - 1, newRoot);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator<K, V>(root);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Spreads the high bits of the hash code into the low bits, which
+	 * select the child at the top levels of the trie.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static void checkKey(Object key) {
+		if (key == null) {
+			throw new NullPointerException("PersistentHashMap does not allow null keys");
+		}
+	}
+
+	/**
+	 * Mutable flag used to report whether an entry was added or removed.
+	 */
+	private static class Box {
+		boolean value;
+	}
+
+	/**
+	 * Node of the trie.
+	 *
+	 * The first 2*count() elements of `array` are key/value pairs; a null
+	 * key means the value slot holds a child Node.
+	 */
+	private static abstract class Node {
+		final Object owner;
+		final Object[] array;
+
+		Node(Object owner, Object[] array) {
+			this.owner = owner;
+			this.array = array;
+		}
+
+		abstract int count();
+
+		abstract Object find(int shift, int hash, Object key);
+
+		abstract Node assoc(Object owner, int shift, int hash, Object key, Object value, Box addedLeaf);
+
+		abstract Node without(Object owner, int shift, int hash, Object key, Box removedLeaf);
+	}
+
+	private static class BitmapIndexedNode extends Node {
+		static final BitmapIndexedNode EMPTY = new BitmapIndexedNode(null, 0, new Object[0]);
+
+		int bitmap;
+
+		BitmapIndexedNode(Object owner, int bitmap, Object[] array) {
+			super(owner, array);
+			this.bitmap = bitmap;
+		}
+
+		@Override
+		int count() {
+			return Integer.bitCount(bitmap);
+		}
+
+		/**
+		 * Returns the position in the packed array of the child for `bit`.
+		 */
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			int bit = bitpos(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return NOT_FOUND;
+			}
+			int idx = index(bit);
+			Object keyOrNull = array[2*idx];
+			Object valueOrNode = array[2*idx+1];
+			if (keyOrNull == null) {
+				return ((Node) valueOrNode).find(shift + BITS, hash, key);
+			}
+			if (key.equals(keyOrNull)) {
+				return valueOrNode;
+			}
+			return NOT_FOUND;
+		}
+
+		@Override
+		Node assoc(Object owner, int shift, int hash, Object key, Object value, Box addedLeaf) {
+			int bit = bitpos(hash, shift);
+			int idx = index(bit);
+			if ((bitmap & bit) != 0) {
+				Object keyOrNull = array[2*idx];
+				Object valueOrNode = array[2*idx+1];
+				if (keyOrNull == null) {
+					Node child = (Node) valueOrNode;
+					Node newChild = child.assoc(owner, shift + BITS, hash, key, value, addedLeaf);
+					if (newChild == child) {
+						return this;
+					}
+					return editAndSet(owner, 2*idx+1, newChild);
+				}
+				if (key.equals(keyOrNull)) {
+					if (valueOrNode == value) {
+						return this;
+					}
+					return editAndSet(owner, 2*idx+1, value);
+				}
+				// two different keys in the same slot: push both down a level
+				addedLeaf.value = true;
+				Node child = createNode(owner, shift + BITS, keyOrNull, valueOrNode, hash, key, value);
+				BitmapIndexedNode editable = editable(owner);
+				editable.array[2*idx] = null;
+				editable.array[2*idx+1] = child;
+				return editable;
+			}
+
+			// the slot is empty: insert a new pair at idx
+			addedLeaf.value = true;
+			int n = count();
+			if (owner != null && this.owner == owner && array.length >= 2*(n+1)) {
+				System.arraycopy(array, 2*idx, array, 2*(idx+1), 2*(n-idx));
+				array[2*idx] = key;
+				array[2*idx+1] = value;
+				bitmap |= bit;
+				return this;
+			}
+			// a Builder leaves room for a few more pairs
+			int capacity = owner == null ? n+1 : n+4;
+			Object[] newArray = new Object[2 * Math.min(capacity, 1 << BITS)];
+			System.arraycopy(array, 0, newArray, 0, 2*idx);
+			newArray[2*idx] = key;
+			newArray[2*idx+1] = value;
+			System.arraycopy(array, 2*idx, newArray, 2*(idx+1), 2*(n-idx));
+			return new BitmapIndexedNode(owner, bitmap | bit, newArray);
+		}
+
+		@Override
+		Node without(Object owner, int shift, int hash, Object key, Box removedLeaf) {
+			int bit = bitpos(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+			int idx = index(bit);
+			Object keyOrNull = array[2*idx];
+			Object valueOrNode = array[2*idx+1];
+			if (keyOrNull == null) {
+				Node child = (Node) valueOrNode;
+				Node newChild = child.without(owner, shift + BITS, hash, key, removedLeaf);
+				if (newChild == child) {
+					return this;
+				}
+				if (newChild != null) {
+					return editAndSet(owner, 2*idx+1, newChild);
+				}
+			} else if (!key.equals(keyOrNull)) {
+				return this;
+			} else {
+				removedLeaf.value = true;
+			}
+
+			// remove the pair at idx
+			if (bitmap == bit) {
+				return null;
+			}
+			int n = count();
+			if (owner != null && this.owner == owner) {
+				System.arraycopy(array, 2*(idx+1), array, 2*idx, 2*(n-idx-1));
+				array[2*(n-1)] = null;
+				array[2*n-1] = null;
+				bitmap ^= bit;
+				return this;
+			}
+			Object[] newArray = new Object[2*(n-1)];
+			System.arraycopy(array, 0, newArray, 0, 2*idx);
+			System.arraycopy(array, 2*(idx+1), newArray, 2*idx, 2*(n-idx-1));
+			return new BitmapIndexedNode(owner, bitmap ^ bit, newArray);
+		}
+
+		private BitmapIndexedNode editable(Object owner) {
+			if (owner != null && this.owner == owner) {
+				return this;
+			}
+			return new BitmapIndexedNode(owner, bitmap, array.clone());
+		}
+
+		private BitmapIndexedNode editAndSet(Object owner, int i, Object x) {
+			BitmapIndexedNode editable = editable(owner);
+			editable.array[i] = x;
+			return editable;
+		}
+	}
+
+	/**
+	 * Node that holds keys whose hash codes are identical.
+	 */
+	private static class CollisionNode extends Node {
+		final int hash;
+		int count;
+
+		CollisionNode(Object owner, int hash, int count, Object[] array) {
+			super(owner, array);
+			this.hash = hash;
+			this.count = count;
+		}
+
+		@Override
+		int count() {
+			return count;
+		}
+
+		private int indexOf(Object key) {
+			for (int i=0; i<count; i++) {
+				if (key.equals(array[2*i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			int idx = indexOf(key);
+			return idx == -1 ? NOT_FOUND : array[2*idx+1];
+		}
+
+		@Override
+		Node assoc(Object owner, int shift, int hash, Object key, Object value, Box addedLeaf) {
+			if (hash != this.hash) {
+				// nest this node inside a bitmap node and add the new key there
+				BitmapIndexedNode parent = new BitmapIndexedNode(owner, bitpos(this.hash, shift),
+						new Object[] {null, this});
+				return parent.assoc(owner, shift, hash, key, value, addedLeaf);
+			}
+			int idx = indexOf(key);
+			if (idx != -1) {
+				if (array[2*idx+1] == value) {
+					return this;
+				}
+				CollisionNode editable = editable(owner, count);
+				editable.array[2*idx+1] = value;
+				return editable;
+			}
+			addedLeaf.value = true;
+			CollisionNode editable = editable(owner, count + 1);
+			editable.array[2*count] = key;
+			editable.array[2*count+1] = value;
+			editable.count = count + 1;
+			return editable;
+		}
+
+		@Override
+		Node without(Object owner, int shift, int hash, Object key, Box removedLeaf) {
+			int idx = indexOf(key);
+			if (idx == -1) {
+				return this;
+			}
+			removedLeaf.value = true;
+			if (count == 1) {
+				return null;
+			}
+			CollisionNode editable = editable(owner, count);
+			Object[] a = editable.array;
+			// move the last pair into the hole
+			a[2*idx] = a[2*(count-1)];
+			a[2*idx+1] = a[2*count-1];
+			a[2*(count-1)] = null;
+			a[2*count-1] = null;
+			editable.count = count - 1;
+			return editable;
+		}
+
+		private CollisionNode editable(Object owner, int capacity) {
+			if (owner != null && this.owner == owner && array.length >= 2*capacity) {
+				return this;
+			}
+			return new CollisionNode(owner, hash, count, Arrays.copyOf(array, 2*capacity));
+		}
+	}
+
+	/**
+	 * Makes a node that contains two keys that collide at `shift - BITS`.
+	 */
+	private static Node createNode(Object owner, int shift, Object key1, Object value1,
+			int key2hash, Object key2, Object value2) {
+		int key1hash = hash(key1);
+		if (key1hash == key2hash) {
+			return new CollisionNode(owner, key1hash, 2, new Object[] {key1, value1, key2, value2});
+		}
+		Box addedLeaf = new Box();
+		return BitmapIndexedNode.EMPTY
+				.assoc(owner, shift, key1hash, key1, value1, addedLeaf)
+				.assoc(owner, shift, key2hash, key2, value2, addedLeaf);
+	}
+
+	private static int bitpos(int hash, int shift) {
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	/**
+	 * Depth-first iterator over the entries of a trie.
+	 */
+	private static class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+		// a trie is at most 7 levels deep, plus one for a collision node
+		private final Node[] nodes = new Node[8];
+		private final int[] positions = new int[8];
+		private int depth = -1;
+		private Map.Entry<K, V> next;
+
+		EntryIterator(Node root) {
+			if (root != null) {
+				push(root);
+			}
+			advance();
+		}
+
+		private void push(Node node) {
+			depth++;
+			nodes[depth] = node;
+			positions[depth] = 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			next = null;
+			while (depth >= 0) {
+				Node node = nodes[depth];
+				int i = positions[depth];
+				if (i >= node.count()) {
+					nodes[depth] = null;
+					depth--;
+					continue;
+				}
+				positions[depth] = i + 1;
+				Object key = node.array[2*i];
+				Object valueOrNode = node.array[2*i+1];
+				if (key == null) {
+					push((Node) valueOrNode);
+				} else {
+					next = new AbstractMap.SimpleImmutableEntry<K, V>((K) key, (V) valueOrNode);
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<K, V> result = next;
+			advance();
+			return result;
+		}
+	}
+
+	/**
+	 * Mutable builder for PersistentHashMap.
+	 *
+	 * See PersistentVector.Builder; the same ownership rules apply.
+	 *
+	 * @param <K>
+	 * @param <V>
+	 */
+	public static class Builder<K, V> {
+		private Object owner = new Object();
+		private int size;
+		private Node root;
+
+		private Builder(PersistentHashMap<K, V> map) {
+			this.size = map.size;
+			this.root = map.root;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Maps `key` to `value`.
+		 *
+		 * @param key
+		 * @param value
+		 * @return this Builder
+		 */
+		public Builder<K, V> put(K key, V value) {
+			checkKey(key);
+			Box addedLeaf = new Box();
+			Node start = root == null ? BitmapIndexedNode.EMPTY : root;
+			root = start.assoc(owner, 0, hash(key), key, value, addedLeaf);
+			if (addedLeaf.value) {
+				size++;
+			}
+			return this;
+		}
+
+		/**
+		 * Removes `key`, if present.
+		 *
+		 * @param key
+		 * @return this Builder
+		 */
+		public Builder<K, V> remove(Object key) {
+			if (root == null || key == null) {
+				return this;
+			}
+			Box removedLeaf = new Box();
+			root = root.without(owner, 0, hash(key), key, removedLeaf);
+			if (removedLeaf.value) {
+				size--;
+			}
+			return this;
+		}
+
+		/**
+		 * Makes a PersistentHashMap with the current contents.
+		 *
+		 * @return
+		 */
+		public PersistentHashMap<K, V> build() {
+			if (root == null) {
+				return empty();
+			}
+			PersistentHashMap<K, V> result = new PersistentHashMap<K, V>(size, root);
+
+			// give up ownership of the nodes we just published
+			owner = new Object();
+			return result;
+		}
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		PersistentHashMap<String, Integer> m1 = PersistentHashMap.empty();
+		m1 = m1.plus("one", 1).plus("two", 2).plus("three", 3);
+		PersistentHashMap<String, Integer> m2 = m1.plus("four", 4).minus("one");
+		System.out.println(m1);
+		System.out.println(m2);
+	}
+}
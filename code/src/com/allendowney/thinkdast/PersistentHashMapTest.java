@@ -0,0 +1,136 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for PersistentHashMap.
+ *
+ */
+public class PersistentHashMapTest {
+
+	private PersistentHashMap<String, Integer> map;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = PersistentHashMap.empty();
+		map = map.plus("One", 1).plus("Two", 2).plus("Three", 3);
+	}
+
+	/**
+	 * Test method for {@link PersistentHashMap#plus(Object, Object)}.
+	 */
+	@Test
+	public void testPlus() {
+		PersistentHashMap<String, Integer> m = map.plus("Four", 4).plus("One", 11);
+		assertThat(m.size(), is(4));
+		assertThat(m.get("One"), is(11));
+		assertThat(m.get("Four"), is(4));
+
+		// the original is unchanged
+		assertThat(map.size(), is(3));
+		assertThat(map.get("One"), is(1));
+		assertThat(map.containsKey("Four"), is(false));
+
+		try {
+			map.plus(null, 0);
+			fail();
+		} catch (NullPointerException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link PersistentHashMap#minus(Object)}.
+	 */
+	@Test
+	public void testMinus() {
+		PersistentHashMap<String, Integer> m = map.minus("Two");
+		assertThat(m.size(), is(2));
+		assertThat(m.containsKey("Two"), is(false));
+		assertThat(map.get("Two"), is(2));
+		assertThat(m.minus("Five"), sameInstance(m));
+		assertThat(m.minus("One").minus("Three").isEmpty(), is(true));
+	}
+
+	/**
+	 * Tests a large map against java.util.HashMap.
+	 */
+	@Test
+	public void testMany() {
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		PersistentHashMap<String, Integer> m = PersistentHashMap.empty();
+		for (int i=0; i<20000; i++) {
+			expected.put("key" + i, i);
+			m = m.plus("key" + i, i);
+		}
+		assertThat(m.size(), is(20000));
+		assertThat(m.equals(expected), is(true));
+
+		for (int i=0; i<20000; i+=2) {
+			expected.remove("key" + i);
+			m = m.minus("key" + i);
+		}
+		assertThat(m.size(), is(10000));
+		assertThat(m.equals(expected), is(true));
+		assertThat(m.entrySet().size(), is(10000));
+	}
+
+	/**
+	 * Tests keys whose hash codes are identical.
+	 */
+	@Test
+	public void testCollisions() {
+		// "Aa" and "BB" have the same hash code
+		PersistentHashMap<String, Integer> m = map.plus("Aa", 1).plus("BB", 2).plus("AaBB", 3).plus("BBAa", 4);
+		assertThat(m.size(), is(7));
+		assertThat(m.get("Aa"), is(1));
+		assertThat(m.get("BB"), is(2));
+		assertThat(m.get("AaBB"), is(3));
+		assertThat(m.get("BBAa"), is(4));
+
+		m = m.minus("Aa").minus("AaBB");
+		assertThat(m.size(), is(5));
+		assertThat(m.get("BB"), is(2));
+		assertThat(m.get("BBAa"), is(4));
+		assertThat(m.containsKey("Aa"), is(false));
+	}
+
+	/**
+	 * Test method for {@link PersistentHashMap.Builder}.
+	 */
+	@Test
+	public void testBuilder() {
+		Map<String, Integer> expected = new HashMap<String, Integer>(map);
+		PersistentHashMap.Builder<String, Integer> builder = map.toBuilder();
+		for (int i=0; i<5000; i++) {
+			builder.put("key" + i, i);
+			expected.put("key" + i, i);
+		}
+		builder.remove("One");
+		expected.remove("One");
+		PersistentHashMap<String, Integer> m1 = builder.build();
+
+		// changes after build don't affect the built map
+		builder.put("Two", 22);
+		builder.remove("key7");
+		PersistentHashMap<String, Integer> m2 = builder.build();
+
+		assertThat(m1.equals(expected), is(true));
+		assertThat(m1.get("Two"), is(2));
+		assertThat(m1.get("key7"), is(7));
+		assertThat(m2.get("Two"), is(22));
+		assertThat(m2.containsKey("key7"), is(false));
+		assertThat(m2.size(), is(m1.size() - 1));
+		assertThat(map.size(), is(3));
+		assertThat(map.get("One"), is(1));
+	}
+}
@@ -0,0 +1,466 @@
+package com.allendowney.thinkdast;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable vector implemented as a bit-partitioned trie with a branching
+ * factor of 32.
+ *
+ * Every "update" returns a new vector that shares all untouched nodes with
+ * the old one, so old versions stay valid and can be handed to other
+ * threads without copying.  Updates and lookups are O(log32 n).
+ *
+ * The mutators inherited from List throw UnsupportedOperationException;
+ * use plus, with and pop instead, or a Builder for bulk construction.
+ *
+ * @param <T>
+ */
+public class PersistentVector<T> extends AbstractList<T> implements RandomAccess {
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	/**
+	 * Interior node of the trie.
+	 *
+	 * `owner` identifies the Builder that created the node; only that
+	 * Builder may modify it in place.
+	 */
+	private static class Node {
+		final Object owner;
+		final Object[] array;
+
+		Node(Object owner, Object[] array) {
+			this.owner = owner;
+			this.array = array;
+		}
+
+		Node(Object owner) {
+			this(owner, new Object[WIDTH]);
+		}
+	}
+
+	private static final Node EMPTY_NODE = new Node(null);
+
+	private static final PersistentVector<Object> EMPTY =
+			new PersistentVector<Object>(0, BITS, EMPTY_NODE, new Object[0]);
+
+	private final int size;
+	private final int shift;        // height of the trie times BITS
+	private final Node root;
+	private final Object[] tail;    // the last 1-32 elements, kept out of the trie
+
+	private PersistentVector(int size, int shift, Node root, Object[] tail) {
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	/**
+	 * Returns the empty vector.
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> PersistentVector<T> empty() {
+		return (PersistentVector<T>) EMPTY;
+	}
+
+	/**
+	 * Makes a vector that contains the elements of `elements`, in order.
+	 *
+	 * @param elements
+	 * @return
+	 */
+	public static <T> PersistentVector<T> copyOf(Iterable<? extends T> elements) {
+		Builder<T> builder = builder();
+		for (T element: elements) {
+			builder.add(element);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns a Builder that starts out empty.
+	 *
+	 * @return
+	 */
+	public static <T> Builder<T> builder() {
+		return new Builder<T>(PersistentVector.<T>empty());
+	}
+
+	/**
+	 * Returns a Builder that starts out with the elements of this vector.
+	 *
+	 * This vector is not affected by changes to the Builder.
+	 *
+	 * @return
+	 */
+	public Builder<T> toBuilder() {
+		return new Builder<T>(this);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return (T) arrayFor(index)[index & MASK];
+	}
+
+	/**
+	 * Returns a new vector with `element` appended.
+	 *
+	 * @param element
+	 * @return
+	 */
+	public PersistentVector<T> plus(T element) {
+		// room in the tail: copy the tail only
+		if (size - tailOffset(size) < WIDTH) {
+			Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+			newTail[tail.length] = element;
+			return new PersistentVector<T>(size + 1, shift, root, newTail);
+		}
+
+		// otherwise push the full tail into the trie
+		Node tailNode = new Node(null, tail);
+		Node newRoot;
+		int newShift = shift;
+		if ((size >>> BITS) > (1 << shift)) {
+			// the trie is full; add a level on top
+			newRoot = new Node(null);
+			newRoot.array[0] = root;
+			newRoot.array[1] = newPath(null, shift, tailNode);
+			newShift += BITS;
+		} else {
+			newRoot = pushTail(null, size, shift, root, tailNode);
+		}
+		return new PersistentVector<T>(size + 1, newShift, newRoot, new Object[] {element});
+	}
+
+	/**
+	 * Returns a new vector with the element at `index` replaced by `element`.
+	 *
+	 * @param index
+	 * @param element
+	 * @return
+	 */
+	public PersistentVector<T> with(int index, T element) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (index >= tailOffset(size)) {
+			Object[] newTail = tail.clone();
+			newTail[index & MASK] = element;
+			return new PersistentVector<T>(size, shift, root, newTail);
+		}
+		return new PersistentVector<T>(size, shift, assoc(shift, root, index, element), tail);
+	}
+
+	/**
+	 * Returns a new vector without the last element.
+	 *
+	 * @return
+	 */
+	public PersistentVector<T> pop() {
+		if (size == 0) {
+			throw new IllegalStateException("Can't pop an empty vector");
+		}
+		if (size == 1) {
+			return empty();
+		}
+		if (size - tailOffset(size) > 1) {
+			Object[] newTail = Arrays.copyOf(tail, tail.length - 1);
+			return new PersistentVector<T>(size - 1, shift, root, newTail);
+		}
+
+		// the tail becomes empty, so the rightmost leaf becomes the new tail
+		Object[] newTail = arrayFor(size - 2);
+		Node newRoot = popTail(shift, root);
+		int newShift = shift;
+		if (newRoot == null) {
+			newRoot = EMPTY_NODE;
+		}
+		if (shift > BITS && newRoot.array[1] == null) {
+			// the root has only one child; drop a level
+			newRoot = (Node) newRoot.array[0];
+			newShift -= BITS;
+		}
+		return new PersistentVector<T>(size - 1, newShift, newRoot, newTail);
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int index = 0;
+			private Object[] leaf = size > 0 ? arrayFor(0) : null;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				// only walk the trie once per leaf
+				if (index > 0 && (index & MASK) == 0) {
+					leaf = arrayFor(index);
+				}
+				return (T) leaf[index++ & MASK];
+			}
+		};
+	}
+
+	/**
+	 * Returns the index of the first element stored in the tail.
+	 *
+	 * @param count
+	 * @return
+	 */
+	private static int tailOffset(int count) {
+		if (count < WIDTH) {
+			return 0;
+		}
+		return ((count - 1) >>> BITS) << BITS;
+	}
+
+	/**
+	 * Returns the leaf array that contains `index`.
+	 *
+	 * @param index
+	 * @return
+	 */
+	private Object[] arrayFor(int index) {
+		if (index >= tailOffset(size)) {
+			return tail;
+		}
+		Node node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Node) node.array[(index >>> level) & MASK];
+		}
+		return node.array;
+	}
+
+	/**
+	 * Builds a chain of nodes from `level` down to `node`.
+	 */
+	private static Node newPath(Object owner, int level, Node node) {
+		if (level == 0) {
+			return node;
+		}
+		Node result = new Node(owner);
+		result.array[0] = newPath(owner, level - BITS, node);
+		return result;
+	}
+
+	/**
+	 * Copies the path to the rightmost leaf and attaches `tailNode` to it.
+	 *
+	 * `count` is the number of elements before the tail was pushed.
+	 */
+	private static Node pushTail(Object owner, int count, int level, Node parent, Node tailNode) {
+		int subidx = ((count - 1) >>> level) & MASK;
+		Node result = new Node(owner, parent.array.clone());
+		Node nodeToInsert;
+		if (level == BITS) {
+			nodeToInsert = tailNode;
+		} else {
+			Node child = (Node) parent.array[subidx];
+			nodeToInsert = child != null
+					? pushTail(owner, count, level - BITS, child, tailNode)
+					: newPath(owner, level - BITS, tailNode);
+		}
+		result.array[subidx] = nodeToInsert;
+		return result;
+	}
+
+	private static Node assoc(int level, Node node, int index, Object element) {
+		Node result = new Node(null, node.array.clone());
+		if (level == 0) {
+			result.array[index & MASK] = element;
+		} else {
+			int subidx = (index >>> level) & MASK;
+			result.array[subidx] = assoc(level - BITS, (Node) node.array[subidx], index, element);
+		}
+		return result;
+	}
+
+	/**
+	 * Copies the path to the rightmost leaf, leaving that leaf out.
+	 *
+	 * Returns null if the resulting node would be empty.
+	 */
+	private Node popTail(int level, Node node) {
+		int subidx = ((size - 2) >>> level) & MASK;
+		if (level > BITS) {
+			Node newChild = popTail(level - BITS, (Node) node.array[subidx]);
+			if (newChild == null && subidx == 0) {
+				return null;
+			}
+			Node result = new Node(null, node.array.clone());
+			result.array[subidx] = newChild;
+			return result;
+		}
+		if (subidx == 0) {
+			return null;
+		}
+		Node result = new Node(null, node.array.clone());
+		result.array[subidx] = null;
+		return result;
+	}
+
+	/**
+	 * Mutable builder for PersistentVector.
+	 *
+	 * A Builder modifies the nodes it created in place and copies any node
+	 * it shares with a published vector, so bulk construction allocates
+	 * about one array per 32 elements.  A Builder is not thread safe, but
+	 * the vectors it builds are.
+	 *
+	 * @param <T>
+	 */
+	public static class Builder<T> {
+		private Object owner = new Object();
+		private int size;
+		private int shift;
+		private Node root;
+		private Object[] tail;
+
+		private Builder(PersistentVector<T> vector) {
+			this.size = vector.size;
+			this.shift = vector.shift;
+			this.root = vector.root;
+			this.tail = Arrays.copyOf(vector.tail, WIDTH);
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Appends `element`.
+		 *
+		 * @param element
+		 * @return this Builder
+		 */
+		public Builder<T> add(T element) {
+			if (size - tailOffset(size) < WIDTH) {
+				tail[size & MASK] = element;
+				size++;
+				return this;
+			}
+
+			Node tailNode = new Node(owner, tail);
+			tail = new Object[WIDTH];
+			tail[0] = element;
+			if ((size >>> BITS) > (1 << shift)) {
+				Node newRoot = new Node(owner);
+				newRoot.array[0] = root;
+				newRoot.array[1] = newPath(owner, shift, tailNode);
+				root = newRoot;
+				shift += BITS;
+			} else {
+				root = pushTail(size, shift, editable(root), tailNode);
+			}
+			size++;
+			return this;
+		}
+
+		/**
+		 * Replaces the element at `index`.
+		 *
+		 * @param index
+		 * @param element
+		 * @return this Builder
+		 */
+		public Builder<T> set(int index, T element) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException();
+			}
+			if (index >= tailOffset(size)) {
+				tail[index & MASK] = element;
+				return this;
+			}
+			root = editable(root);
+			Node node = root;
+			for (int level = shift; level > 0; level -= BITS) {
+				int subidx = (index >>> level) & MASK;
+				Node child = editable((Node) node.array[subidx]);
+				node.array[subidx] = child;
+				node = child;
+			}
+			node.array[index & MASK] = element;
+			return this;
+		}
+
+		/**
+		 * Makes a PersistentVector with the current contents.
+		 *
+		 * The Builder can still be used afterward; it will copy any node
+		 * it shares with the vector before changing it.
+		 *
+		 * @return
+		 */
+		public PersistentVector<T> build() {
+			if (size == 0) {
+				return empty();
+			}
+			Object[] trimmed = Arrays.copyOf(tail, size - tailOffset(size));
+			PersistentVector<T> result = new PersistentVector<T>(size, shift, root, trimmed);
+
+			// give up ownership of the nodes we just published
+			owner = new Object();
+			return result;
+		}
+
+		private Node editable(Node node) {
+			if (node.owner == owner) {
+				return node;
+			}
+			return new Node(owner, node.array.clone());
+		}
+
+		private Node pushTail(int count, int level, Node parent, Node tailNode) {
+			int subidx = ((count - 1) >>> level) & MASK;
+			Node nodeToInsert;
+			if (level == BITS) {
+				nodeToInsert = tailNode;
+			} else {
+				Node child = (Node) parent.array[subidx];
+				nodeToInsert = child != null
+						? pushTail(count, level - BITS, editable(child), tailNode)
+						: newPath(owner, level - BITS, tailNode);
+			}
+			parent.array[subidx] = nodeToInsert;
+			return parent;
+		}
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		PersistentVector<Integer> v1 = PersistentVector.empty();
+		for (int i=0; i<5; i++) {
+			v1 = v1.plus(i);
+		}
+		PersistentVector<Integer> v2 = v1.with(2, 42).pop();
+		System.out.println(v1);
+		System.out.println(v2);
+	}
+}
@@ -0,0 +1,147 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for PersistentVector.
+ *
+ */
+public class PersistentVectorTest {
+
+	private PersistentVector<Integer> vector;
+	private List<Integer> list;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		// big enough to need a trie three levels deep
+		list = new ArrayList<Integer>();
+		for (int i=0; i<40000; i++) {
+			list.add(i);
+		}
+		vector = PersistentVector.copyOf(list);
+	}
+
+	/**
+	 * Test method for {@link PersistentVector#plus(Object)}.
+	 */
+	@Test
+	public void testPlus() {
+		PersistentVector<Integer> v = PersistentVector.empty();
+		for (int i=0; i<list.size(); i++) {
+			v = v.plus(i);
+		}
+		assertThat(v, is(vector));
+
+		PersistentVector<Integer> bigger = v.plus(-1);
+		assertThat(bigger.size(), is(40001));
+		assertThat(bigger.get(40000), is(-1));
+		assertThat(v.size(), is(40000));
+	}
+
+	/**
+	 * Test method for {@link PersistentVector#get(int)}.
+	 */
+	@Test
+	public void testGet() {
+		for (int i=0; i<list.size(); i++) {
+			assertThat(vector.get(i), is(i));
+		}
+		try {
+			vector.get(40000);
+			fail();
+		} catch (IndexOutOfBoundsException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link PersistentVector#with(int, Object)}.
+	 */
+	@Test
+	public void testWith() {
+		PersistentVector<Integer> v = vector.with(17, -17).with(39999, -1);
+		assertThat(v.get(17), is(-17));
+		assertThat(v.get(39999), is(-1));
+		assertThat(v.size(), is(40000));
+
+		// the original is unchanged
+		assertThat(vector.get(17), is(17));
+		assertThat(vector.get(39999), is(39999));
+	}
+
+	/**
+	 * Test method for {@link PersistentVector#pop()}.
+	 */
+	@Test
+	public void testPop() {
+		PersistentVector<Integer> v = vector;
+		for (int i=list.size()-1; i>=0; i--) {
+			assertThat(v.get(i), is(i));
+			v = v.pop();
+			assertThat(v.size(), is(i));
+		}
+		assertThat(v.isEmpty(), is(true));
+		assertThat(vector.size(), is(40000));
+
+		try {
+			v.pop();
+			fail();
+		} catch (IllegalStateException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link PersistentVector#iterator()}.
+	 */
+	@Test
+	public void testIterator() {
+		int i = 0;
+		for (Integer element: vector) {
+			assertThat(element, is(i++));
+		}
+		assertThat(i, is(40000));
+	}
+
+	/**
+	 * Test method for {@link PersistentVector.Builder}.
+	 */
+	@Test
+	public void testBuilder() {
+		PersistentVector.Builder<Integer> builder = vector.toBuilder();
+		builder.set(5, -5);
+		builder.add(40000);
+		PersistentVector<Integer> v1 = builder.build();
+
+		// changes after build don't affect the built vector
+		builder.set(5, 5);
+		builder.set(6, -6);
+		PersistentVector<Integer> v2 = builder.build();
+
+		assertThat(v1.get(5), is(-5));
+		assertThat(v1.get(6), is(6));
+		assertThat(v1.size(), is(40001));
+		assertThat(v2.get(5), is(5));
+		assertThat(v2.get(6), is(-6));
+		assertThat(vector.get(5), is(5));
+		assertThat(vector.size(), is(40000));
+	}
+
+	/**
+	 * Test method for {@link PersistentVector#add(Object)}.
+	 */
+	@Test
+	public void testImmutable() {
+		try {
+			vector.add(1);
+			fail();
+		} catch (UnsupportedOperationException e) {} // good
+	}
+}
@@ -0,0 +1,664 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.jfree.data.xy.XYSeries;
+
+import com.allendowney.thinkdast.Profiler.Fit;
+import com.allendowney.thinkdast.Profiler.Timeable;
+
+/**
+ * Profiles every Map and List implementation on the same operations and
+ * writes one report, with a table of fitted exponents and a log-log chart
+ * of all the implementations for each operation.
+ *
+ * The report is HTML, with the charts as inline SVG so it is a single
+ * file, or Markdown, which has only the tables.
+ *
+ * Usage: ProfileComparison [report.html | report.md]
+ *
+ */
+public class ProfileComparison {
+
+	// points faster than this are mostly noise, so they are plotted but not fitted
+	static final double MIN_MILLIS = 0.1;
+
+	private static final String[] COLORS = {
+		"#1f77b4", "#ff7f0e", "#2ca02c", "#d62728", "#9467bd", "#8c564b", "#e377c2", "#7f7f7f"
+	};
+
+	/**
+	 * The results for one implementation doing one operation.
+	 */
+	public static class Curve {
+		final String implementation;
+		final ProfileResult result;
+		final Fit fit;    // null if there weren't enough points
+
+		Curve(String implementation, ProfileResult result) {
+			this.implementation = implementation;
+			this.result = result;
+			this.fit = fit(result);
+		}
+	}
+
+	private final Map<String, List<Curve>> sections = new LinkedHashMap<String, List<Curve>>();
+	private int endMillis = 250;
+
+	/**
+	 * Sets how long the runs for one n can take before a curve stops.
+	 *
+	 * @param endMillis
+	 */
+	public void setEndMillis(int endMillis) {
+		this.endMillis = endMillis;
+	}
+
+	/**
+	 * Profiles `timeable` and adds the result to the section for an operation.
+	 *
+	 * @param section the operation, like "Map put"
+	 * @param implementation
+	 * @param timeable
+	 * @param startN
+	 * @param maxN largest n to try, since setup isn't timed but can still be slow
+	 */
+	public void profile(String section, String implementation, Timeable timeable, int startN, int maxN) {
+		System.out.println(section + ": " + implementation);
+		Profiler profiler = new Profiler(implementation, timeable);
+		profiler.setWarmups(1);
+		profiler.setIterations(5);
+		profiler.setMaxN(maxN);
+		add(section, implementation, profiler.timingRun(startN, endMillis));
+	}
+
+	/**
+	 * Adds a result that was already measured.
+	 *
+	 * @param section
+	 * @param implementation
+	 * @param result
+	 */
+	public void add(String section, String implementation, ProfileResult result) {
+		List<Curve> curves = sections.get(section);
+		if (curves == null) {
+			curves = new ArrayList<Curve>();
+			sections.put(section, curves);
+		}
+		curves.add(new Curve(implementation, result));
+	}
+
+	/**
+	 * Fits the points that take at least MIN_MILLIS.
+	 *
+	 * @param result
+	 * @return the fit, or null if fewer than two points are left
+	 */
+	static Fit fit(ProfileResult result) {
+		XYSeries series = new XYSeries(result.getTitle());
+		for (ProfileResult.Point point: result.getPoints()) {
+			if (point.median() / 1e6 >= MIN_MILLIS) {
+				series.add(point.getN(), point.median() / 1e6);
+			}
+		}
+		return series.getItemCount() < 2 ? null : Profiler.fit(series);
+	}
+
+	/**
+	 * Returns the largest n that every curve in the section measured, or -1.
+	 *
+	 * @param curves
+	 * @return
+	 */
+	static int commonN(List<Curve> curves) {
+		int best = -1;
+		for (ProfileResult.Point point: curves.get(0).result.getPoints()) {
+			if (point.getN() > best && medianAt(curves, point.getN()) != null) {
+				best = point.getN();
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the median time in ms of each curve at `n`, or null if some
+	 * curve didn't get to `n`.
+	 */
+	private static double[] medianAt(List<Curve> curves, int n) {
+		double[] times = new double[curves.size()];
+		for (int i = 0; i < curves.size(); i++) {
+			ProfileResult.Point found = null;
+			for (ProfileResult.Point point: curves.get(i).result.getPoints()) {
+				if (point.getN() == n) {
+					found = point;
+				}
+			}
+			if (found == null) {
+				return null;
+			}
+			times[i] = found.median() / 1e6;
+		}
+		return times;
+	}
+
+	private static final String TITLE = "Map and List implementations";
+	private static final String EXPLANATION =
+			"The exponent is the slope of log(time) versus log(n) for n operations, "
+			+ "so 1 means constant time per operation and 2 means linear time per operation.";
+
+	/**
+	 * Returns the table for one operation: a header row, then one row
+	 * per implementation.
+	 */
+	static List<String[]> table(List<Curve> curves) {
+		int n = commonN(curves);
+		double[] times = n < 0 ? null : medianAt(curves, n);
+
+		List<String[]> rows = new ArrayList<String[]>();
+		rows.add(new String[] {"implementation", "exponent", "R^2", "largest n", "ms at largest n",
+				n < 0 ? "ms at common n" : "ms at n = " + n});
+		for (int i = 0; i < curves.size(); i++) {
+			Curve curve = curves.get(i);
+			List<ProfileResult.Point> points = curve.result.getPoints();
+			ProfileResult.Point last = points.get(points.size() - 1);
+			rows.add(new String[] {
+				curve.implementation,
+				curve.fit == null ? "-" : String.format(Locale.ROOT, "%.2f", curve.fit.getSlope()),
+				curve.fit == null ? "-" : String.format(Locale.ROOT, "%.3f", curve.fit.getRSquare()),
+				Integer.toString(last.getN()),
+				String.format(Locale.ROOT, "%.3f", last.median() / 1e6),
+				times == null ? "-" : String.format(Locale.ROOT, "%.3f", times[i])
+			});
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns one table per operation, as Markdown.
+	 *
+	 * @return
+	 */
+	public String toMarkdown() {
+		StringBuilder sb = new StringBuilder("# " + TITLE + "\n\n");
+		sb.append(EXPLANATION).append('\n');
+		for (Map.Entry<String, List<Curve>> entry: sections.entrySet()) {
+			sb.append("\n## ").append(entry.getKey()).append("\n\n");
+			List<String[]> rows = table(entry.getValue());
+			for (int i = 0; i < rows.size(); i++) {
+				sb.append('|');
+				for (String cell: rows.get(i)) {
+					// a | in a name would end the cell
+					sb.append(' ').append(cell.replace("|", "\\|")).append(" |");
+				}
+				sb.append('\n');
+				if (i == 0) {
+					sb.append("|---|---:|---:|---:|---:|---:|\n");
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the tables and a chart for each operation, as a single HTML page.
+	 *
+	 * @return
+	 */
+	public String toHtml() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n");
+		sb.append("<title>").append(TITLE).append("</title>\n<style>\n");
+		sb.append("body { font-family: sans-serif; max-width: 60em; margin: auto; }\n");
+		sb.append("table { border-collapse: collapse; } td, th { padding: 0.2em 0.8em; text-align: right; }\n");
+		sb.append("td:first-child, th:first-child { text-align: left; }\n</style>\n</head>\n<body>\n");
+		sb.append("<h1>").append(TITLE).append("</h1>\n");
+		sb.append("<p>").append(EXPLANATION).append("</p>\n");
+		for (Map.Entry<String, List<Curve>> entry: sections.entrySet()) {
+			sb.append("<h2>").append(escape(entry.getKey())).append("</h2>\n");
+			sb.append("<table>\n");
+			List<String[]> rows = table(entry.getValue());
+			for (int i = 0; i < rows.size(); i++) {
+				String tag = i == 0 ? "th" : "td";
+				sb.append("<tr>");
+				for (String cell: rows.get(i)) {
+					sb.append('<').append(tag).append('>').append(escape(cell))
+					  .append("</").append(tag).append('>');
+				}
+				sb.append("</tr>\n");
+			}
+			sb.append("</table>\n");
+			sb.append(toSvg(entry.getValue()));
+		}
+		sb.append("</body>\n</html>\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Draws the curves on log-log axes, with one polyline per implementation.
+	 */
+	static String toSvg(List<Curve> curves) {
+		final int width = 640, height = 400, left = 70, right = 180, top = 20, bottom = 50;
+		double minX = Double.MAX_VALUE, maxX = 0, minY = Double.MAX_VALUE, maxY = 0;
+		for (Curve curve: curves) {
+			for (ProfileResult.Point point: curve.result.getPoints()) {
+				double ms = point.median() / 1e6;
+				if (ms <= 0) {
+					continue;
+				}
+				minX = Math.min(minX, point.getN());
+				maxX = Math.max(maxX, point.getN());
+				minY = Math.min(minY, ms);
+				maxY = Math.max(maxY, ms);
+			}
+		}
+		if (maxX == 0) {
+			return "";
+		}
+		// round the ranges out to powers of 10
+		double x0 = Math.floor(Math.log10(minX)), x1 = Math.max(Math.ceil(Math.log10(maxX)), x0 + 1);
+		double y0 = Math.floor(Math.log10(minY)), y1 = Math.max(Math.ceil(Math.log10(maxY)), y0 + 1);
+		double plotWidth = width - left - right, plotHeight = height - top - bottom;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT,
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-size=\"12\">\n",
+				width, height));
+		sb.append(String.format(Locale.ROOT,
+				"<rect x=\"%d\" y=\"%d\" width=\"%.0f\" height=\"%.0f\" fill=\"none\" stroke=\"black\"/>\n",
+				left, top, plotWidth, plotHeight));
+		for (int d = (int) x0; d <= x1; d++) {
+			double x = left + (d - x0) / (x1 - x0) * plotWidth;
+			sb.append(String.format(Locale.ROOT,
+					"<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%.0f\" stroke=\"#ddd\"/>"
+					+ "<text x=\"%.1f\" y=\"%.0f\" text-anchor=\"middle\">1e%d</text>\n",
+					x, top, x, top + plotHeight, x, top + plotHeight + 16, d));
+		}
+		for (int d = (int) y0; d <= y1; d++) {
+			double y = top + plotHeight - (d - y0) / (y1 - y0) * plotHeight;
+			sb.append(String.format(Locale.ROOT,
+					"<line x1=\"%d\" y1=\"%.1f\" x2=\"%.0f\" y2=\"%.1f\" stroke=\"#ddd\"/>"
+					+ "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">1e%d</text>\n",
+					left, y, left + plotWidth, y, left - 6, y + 4, d));
+		}
+		sb.append(String.format(Locale.ROOT,
+				"<text x=\"%.0f\" y=\"%d\" text-anchor=\"middle\">n</text>\n",
+				left + plotWidth / 2, height - 10));
+		sb.append(String.format(Locale.ROOT,
+				"<text x=\"16\" y=\"%.0f\" text-anchor=\"middle\" transform=\"rotate(-90 16 %.0f)\">median time (ms)</text>\n",
+				top + plotHeight / 2, top + plotHeight / 2));
+
+		for (int i = 0; i < curves.size(); i++) {
+			Curve curve = curves.get(i);
+			String color = COLORS[i % COLORS.length];
+			sb.append("<polyline fill=\"none\" stroke=\"").append(color).append("\" stroke-width=\"2\" points=\"");
+			for (ProfileResult.Point point: curve.result.getPoints()) {
+				double ms = point.median() / 1e6;
+				if (ms <= 0) {
+					continue;
+				}
+				double x = left + (Math.log10(point.getN()) - x0) / (x1 - x0) * plotWidth;
+				double y = top + plotHeight - (Math.log10(ms) - y0) / (y1 - y0) * plotHeight;
+				sb.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+			}
+			sb.append("\"/>\n");
+			double legendY = top + 10 + 18 * i;
+			sb.append(String.format(Locale.ROOT,
+					"<line x1=\"%.0f\" y1=\"%.0f\" x2=\"%.0f\" y2=\"%.0f\" stroke=\"%s\" stroke-width=\"2\"/>"
+					+ "<text x=\"%.0f\" y=\"%.0f\">%s%s</text>\n",
+					left + plotWidth + 10, legendY, left + plotWidth + 30, legendY, color,
+					left + plotWidth + 36, legendY + 4, escape(curve.implementation),
+					curve.fit == null ? "" : String.format(Locale.ROOT, " (%.2f)", curve.fit.getSlope())));
+		}
+		sb.append("</svg>\n");
+		return sb.toString();
+	}
+
+	private static String escape(String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	// random keys, shared by all the Timeables so every map sees the same ones
+	private static String[] keys = new String[0];
+
+	/**
+	 * Returns at least `n` distinct random keys.
+	 */
+	static String[] keys(int n) {
+		if (keys.length < n) {
+			Random random = new Random(17);
+			Map<String, Boolean> seen = new HashMap<String, Boolean>();
+			String[] more = new String[Math.max(n, 2 * keys.length)];
+			int i = 0;
+			while (i < more.length) {
+				String key = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+				if (seen.put(key, true) == null) {
+					more[i++] = key;
+				}
+			}
+			keys = more;
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns a map from `factory` with the first n keys.
+	 */
+	private static Map<String, Integer> fill(Supplier<Map<String, Integer>> factory, int n) {
+		Map<String, Integer> map = factory.get();
+		String[] keys = keys(n);
+		for (int i = 0; i < n; i++) {
+			map.put(keys[i], i);
+		}
+		return map;
+	}
+
+	/**
+	 * Returns a Timeable that puts n keys in an empty map.
+	 */
+	public static Timeable mapPut(final Supplier<Map<String, Integer>> factory) {
+		return new Timeable() {
+			Map<String, Integer> map;
+			String[] keys;
+
+			public void setup(int n) {
+				map = factory.get();
+				keys = keys(n);
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					map.put(keys[i], i);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that gets each of the n keys in a map.
+	 */
+	public static Timeable mapGet(final Supplier<Map<String, Integer>> factory) {
+		return new Timeable() {
+			Map<String, Integer> map;
+			String[] keys;
+			long total;
+
+			public void setup(int n) {
+				map = fill(factory, n);
+				keys = keys(n);
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					total += map.get(keys[i]);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that removes each of the n keys in a map.
+	 */
+	public static Timeable mapRemove(final Supplier<Map<String, Integer>> factory) {
+		return new Timeable() {
+			Map<String, Integer> map;
+			String[] keys;
+
+			public void setup(int n) {
+				map = fill(factory, n);
+				keys = keys(n);
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					map.remove(keys[i]);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that iterates the keys of a map with n keys.
+	 */
+	public static Timeable mapIterate(final Supplier<Map<String, Integer>> factory) {
+		return new Timeable() {
+			Map<String, Integer> map;
+			long total;
+
+			public void setup(int n) {
+				map = fill(factory, n);
+			}
+
+			public void timeMe(int n) {
+				for (String key: map.keySet()) {
+					total += key.length();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that adds n elements to the end of an empty list.
+	 */
+	public static Timeable listAdd(final Supplier<List<String>> factory) {
+		return new Timeable() {
+			List<String> list;
+
+			public void setup(int n) {
+				list = factory.get();
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.add("a string");
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that gets n elements at random indices from a list of n.
+	 */
+	public static Timeable listGet(final Supplier<List<String>> factory) {
+		return new Timeable() {
+			List<String> list;
+			int[] indices;
+			long total;
+
+			public void setup(int n) {
+				list = factory.get();
+				indices = new int[n];
+				Random random = new Random(17);
+				for (int i=0; i<n; i++) {
+					list.add("a string");
+					indices[i] = random.nextInt(n);
+				}
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					total += list.get(indices[i]).length();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that inserts n elements in the middle of a list.
+	 */
+	public static Timeable listInsert(final Supplier<List<String>> factory) {
+		return new Timeable() {
+			List<String> list;
+
+			public void setup(int n) {
+				list = factory.get();
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.add(list.size() / 2, "a string");
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that removes the first element of a list of n, n times.
+	 */
+	public static Timeable listRemove(final Supplier<List<String>> factory) {
+		return new Timeable() {
+			List<String> list;
+
+			public void setup(int n) {
+				list = factory.get();
+				for (int i=0; i<n; i++) {
+					list.add("a string");
+				}
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					list.remove(0);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Profiles all of the Maps.
+	 */
+	public void profileMaps() {
+		Map<String, Supplier<Map<String, Integer>>> maps = new LinkedHashMap<String, Supplier<Map<String, Integer>>>();
+		maps.put("MyLinearMap", new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new MyLinearMap<String, Integer>();
+			}
+		});
+		maps.put("MyBetterMap", new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new MyBetterMap<String, Integer>();
+			}
+		});
+		maps.put("MyHashMap", new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new MyHashMap<String, Integer>();
+			}
+		});
+		maps.put("MyFixedHashMap", new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new MyFixedHashMap<String, Integer>();
+			}
+		});
+		maps.put("MyTreeMap", new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new MyTreeMap<String, Integer>();
+			}
+		});
+		maps.put("HashMap", new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new HashMap<String, Integer>();
+			}
+		});
+
+		for (Map.Entry<String, Supplier<Map<String, Integer>>> entry: maps.entrySet()) {
+			String name = entry.getKey();
+			Supplier<Map<String, Integer>> factory = entry.getValue();
+			// put takes linear time in these (MyHashMap.put adds up the sizes
+			// of the sub-maps), so filling them is quadratic and they stay small
+			boolean linear = name.equals("MyLinearMap") || name.equals("MyBetterMap")
+					|| name.equals("MyHashMap");
+			int startN = linear ? 250 : 1000;
+			int maxN = linear ? 16000 : 1 << 18;
+			profile("Map put", name, mapPut(factory), startN, maxN);
+			profile("Map get", name, mapGet(factory), startN, maxN);
+			profile("Map remove", name, mapRemove(factory), startN, maxN);
+			profile("Map iterate", name, mapIterate(factory), startN, maxN);
+		}
+	}
+
+	/**
+	 * Profiles all of the Lists.
+	 */
+	public void profileLists() {
+		Map<String, Supplier<List<String>>> lists = new LinkedHashMap<String, Supplier<List<String>>>();
+		lists.put("MyArrayList", new Supplier<List<String>>() {
+			public List<String> get() {
+				return new MyArrayList<String>();
+			}
+		});
+		lists.put("MyLinkedList", new Supplier<List<String>>() {
+			public List<String> get() {
+				return new MyLinkedList<String>();
+			}
+		});
+		lists.put("ArrayList", new Supplier<List<String>>() {
+			public List<String> get() {
+				return new ArrayList<String>();
+			}
+		});
+		lists.put("LinkedList", new Supplier<List<String>>() {
+			public List<String> get() {
+				return new LinkedList<String>();
+			}
+		});
+
+		for (Map.Entry<String, Supplier<List<String>>> entry: lists.entrySet()) {
+			String name = entry.getKey();
+			Supplier<List<String>> factory = entry.getValue();
+			// MyLinkedList.add walks to the end of the list, so filling it is quadratic
+			int maxN = name.equals("MyLinkedList") ? 16000 : 1 << 18;
+			profile("List add", name, listAdd(factory), 1000, maxN);
+			profile("List get", name, listGet(factory), 250, maxN);
+			profile("List insert", name, listInsert(factory), 250, maxN);
+			profile("List remove", name, listRemove(factory), 250, maxN);
+		}
+	}
+
+	/**
+	 * Adds the throughput of every curve to a benchmark run, with names
+	 * like "Map put/MyHashMap".
+	 *
+	 * @param run
+	 */
+	public void record(BenchmarkHistory.Run run) {
+		for (Map.Entry<String, List<Curve>> entry: sections.entrySet()) {
+			for (Curve curve: entry.getValue()) {
+				run.addProfileResult(entry.getKey() + "/" + curve.implementation, curve.result);
+			}
+		}
+	}
+
+	/**
+	 * Writes the report, and saves the results in the benchmark history.
+	 *
+	 * @param args the report file; .md for Markdown, otherwise HTML
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		Path path = Paths.get(args.length > 0 ? args[0] : "comparison.html");
+		ProfileComparison comparison = new ProfileComparison();
+		comparison.profileMaps();
+		comparison.profileLists();
+
+		String report = path.toString().endsWith(".md") ? comparison.toMarkdown() : comparison.toHtml();
+		Files.write(path, report.getBytes(StandardCharsets.UTF_8));
+		System.out.println("Wrote " + path);
+
+		BenchmarkHistory.Run run = BenchmarkHistory.Run.current();
+		comparison.record(run);
+		BenchmarkHistory history = new BenchmarkHistory(Paths.get(BenchmarkHistory.DEFAULT_DIRECTORY));
+		System.out.println("Recorded in " + history.save(run));
+	}
+}
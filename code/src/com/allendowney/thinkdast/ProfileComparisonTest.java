@@ -0,0 +1,104 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class ProfileComparisonTest {
+
+	private ProfileComparison comparison;
+
+	/**
+	 * Makes a result whose median time is `a` * n^`k` milliseconds.
+	 */
+	private static ProfileResult powerLaw(String title, double a, double k, int startN, int endN) {
+		ProfileResult result = new ProfileResult(title);
+		for (int n = startN; n <= endN; n *= 2) {
+			long nanos = (long) (a * Math.pow(n, k) * 1e6);
+			result.add(new ProfileResult.Point(n, new long[] {nanos}));
+		}
+		return result;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		comparison = new ProfileComparison();
+		comparison.add("Map put", "Linear", powerLaw("Linear", 1e-4, 2, 1000, 8000));
+		comparison.add("Map put", "Hash", powerLaw("Hash", 1e-4, 1, 1000, 64000));
+		comparison.add("Map get", "Hash", powerLaw("Hash", 1e-9, 1, 1000, 2000));
+	}
+
+	/**
+	 * Test method for {@link ProfileComparison#toMarkdown()}.
+	 */
+	@Test
+	public void testToMarkdown() {
+		String markdown = comparison.toMarkdown();
+		assertThat(markdown, containsString("## Map put\n"));
+		assertThat(markdown, containsString("| ms at n = 8000 |"));
+		assertThat(markdown, containsString("| Linear | 2.00 | 1.000 | 8000 | 6400.000 | 6400.000 |"));
+		assertThat(markdown, containsString("| Hash | 1.00 | 1.000 | 64000 | 6.400 | 0.800 |"));
+
+		// too fast to fit
+		assertThat(markdown, containsString("| Hash | - | - | 2000 | 0.000 | 0.000 |"));
+	}
+
+	/**
+	 * Test method for {@link ProfileComparison#toHtml()}.
+	 */
+	@Test
+	public void testToHtml() {
+		String html = comparison.toHtml();
+		assertThat(html, containsString("<h2>Map put</h2>"));
+		assertThat(html, containsString("<th>implementation</th>"));
+		assertThat(html, containsString("<td>Linear</td><td>2.00</td>"));
+
+		// one chart per section, one curve per implementation
+		assertThat(html.split("<svg").length - 1, is(2));
+		assertThat(html.split("<polyline").length - 1, is(3));
+		assertThat(html, containsString(">Linear (2.00)</text>"));
+	}
+
+	/**
+	 * Checks that names with characters special to Markdown or HTML stay in their cells.
+	 */
+	@Test
+	public void testSpecialNames() {
+		comparison = new ProfileComparison();
+		comparison.add("Map <put>", "A|B", powerLaw("A|B", 1e-4, 1, 1000, 8000));
+		comparison.add("Map <put>", "C&D", powerLaw("C&D", 1e-4, 1, 1000, 8000));
+
+		String markdown = comparison.toMarkdown();
+		assertThat(markdown, containsString("| A\\|B | 1.00 |"));
+		assertThat(markdown.contains("\r"), is(false));
+
+		String html = comparison.toHtml();
+		assertThat(html, containsString("<h2>Map &lt;put&gt;</h2>"));
+		assertThat(html, containsString("<tr><td>A|B</td><td>1.00</td>"));
+		assertThat(html, containsString("<tr><td>C&amp;D</td><td>1.00</td>"));
+		assertThat(html.contains("\r"), is(false));
+	}
+
+	/**
+	 * Test method for {@link ProfileComparison#keys(int)}.
+	 */
+	@Test
+	public void testKeys() {
+		String[] keys = ProfileComparison.keys(1000);
+		assertThat(keys.length >= 1000, is(true));
+		assertThat(new HashSet<String>(Arrays.asList(keys)).size(), is(keys.length));
+		assertThat(ProfileComparison.keys(10)[0], is(keys[0]));
+	}
+}
@@ -0,0 +1,109 @@
+package com.allendowney.thinkdast;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of concurrent priority queues.
+ *
+ * Each thread alternates offer and poll on a shared queue that starts
+ * with PREFILL elements, for a fixed time.  The results are in thousands
+ * of operations per second.
+ */
+public class ProfileConcurrentQueue {
+
+	private static final int PREFILL = 100000;
+	private static final long MILLIS = 1000;
+
+	/**
+	 * The operations we time, so that different queues can be compared.
+	 */
+	interface Operations {
+		void offer(Integer x);
+		Integer poll();
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("threads\tMultiQueue\tPriorityBlockingQueue\t(thousand ops/s)");
+		for (int threads: new int[] {1, 4, 8, 16}) {
+			final ConcurrentMultiQueue<Integer> multi = new ConcurrentMultiQueue<Integer>(2 * threads, null);
+			double multiRate = throughput(threads, new Operations() {
+				@Override
+				public void offer(Integer x) {
+					multi.offer(x);
+				}
+
+				@Override
+				public Integer poll() {
+					return multi.poll();
+				}
+			});
+
+			final PriorityBlockingQueue<Integer> blocking = new PriorityBlockingQueue<Integer>();
+			double blockingRate = throughput(threads, new Operations() {
+				@Override
+				public void offer(Integer x) {
+					blocking.offer(x);
+				}
+
+				@Override
+				public Integer poll() {
+					return blocking.poll();
+				}
+			});
+			System.out.printf("%d\t%.0f\t\t%.0f%n", threads, multiRate, blockingRate);
+		}
+	}
+
+	/**
+	 * Runs `threads` threads against a queue for MILLIS milliseconds.
+	 *
+	 * @return thousands of operations per second
+	 */
+	public static double throughput(int threads, final Operations queue) throws InterruptedException {
+		for (int i = 0; i < PREFILL; i++) {
+			queue.offer(ThreadLocalRandom.current().nextInt());
+		}
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final LongAdder operations = new LongAdder();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread() {
+				@Override
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					long count = 0;
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					while (running.get()) {
+						queue.offer(random.nextInt());
+						queue.poll();
+						count += 2;
+					}
+					operations.add(count);
+				}
+			};
+			workers[t].start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep(MILLIS);
+		running.set(false);
+		for (Thread worker: workers) {
+			worker.join();
+		}
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		return operations.sum() / seconds / 1000;
+	}
+}
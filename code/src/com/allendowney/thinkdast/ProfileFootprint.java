@@ -0,0 +1,132 @@
+package com.allendowney.thinkdast;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jfree.data.xy.XYSeries;
+
+import com.allendowney.thinkdast.Profiler.Measurable;
+
+public class ProfileFootprint {
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int n = 100000;
+		if (args.length > 0) {
+			n = Integer.parseInt(args[0]);
+		}
+		printReport(n);
+
+//		profileFootprint("MyArrayList footprint", arrayList(), 1000, 1000000);
+//		profileFootprint("MyLinkedList footprint", linkedList(), 1000, 1000000);
+//		profileFootprint("MyHashMap footprint", myHashMap(), 1000, 200000);
+//		profileFootprint("MyTreeMap footprint", myTreeMap(), 1000, 200000);
+	}
+
+	/**
+	 * Prints the retained bytes and bytes per element of each structure
+	 * with `n` elements.
+	 *
+	 * The lists all hold the same String, so their numbers are the cost of
+	 * the structure alone.  The map numbers include the keys and values,
+	 * which are distinct.  The last column says whether MemoryMeter had to
+	 * estimate library objects it couldn't open; see MemoryMeter for the
+	 * JVM options that make every row exact.
+	 *
+	 * @param n
+	 */
+	public static void printReport(int n) {
+		Map<String, Measurable> measurables = new LinkedHashMap<String, Measurable>();
+		measurables.put("MyArrayList", arrayList());
+		measurables.put("MyLinkedList", linkedList());
+		measurables.put("MyHashMap", myHashMap());
+		measurables.put("MyTreeMap", myTreeMap());
+		measurables.put("java.util.HashMap", hashMap());
+
+		MemoryMeter meter = new MemoryMeter();
+		System.out.println("structure, n, bytes, bytes per element, accuracy");
+		for (Map.Entry<String, Measurable> entry: measurables.entrySet()) {
+			long bytes = meter.measureDeep(entry.getValue().build(n));
+			System.out.printf("%s, %d, %d, %.1f, %s%n", entry.getKey(), n, bytes, (double) bytes / n,
+					meter.isEstimated() ? "estimated" : "exact");
+		}
+	}
+
+	public static Measurable arrayList() {
+		return new Measurable() {
+			public Object build(int n) {
+				List<String> list = new MyArrayList<String>();
+				for (int i=0; i<n; i++) {
+					list.add("a string");
+				}
+				return list;
+			}
+		};
+	}
+
+	public static Measurable linkedList() {
+		return new Measurable() {
+			public Object build(int n) {
+				List<String> list = new MyLinkedList<String>();
+				for (int i=0; i<n; i++) {
+					list.add(0, "a string");
+				}
+				return list;
+			}
+		};
+	}
+
+	public static Measurable myHashMap() {
+		return new Measurable() {
+			public Object build(int n) {
+				Map<String, Integer> map = new MyHashMap<String, Integer>();
+				for (int i=0; i<n; i++) {
+					map.put(String.format("%10d", i), i);
+				}
+				return map;
+			}
+		};
+	}
+
+	public static Measurable myTreeMap() {
+		return new Measurable() {
+			public Object build(int n) {
+				Map<String, Integer> map = new MyTreeMap<String, Integer>();
+				for (int i=0; i<n; i++) {
+					map.put(String.format("%10d", i), i);
+				}
+				return map;
+			}
+		};
+	}
+
+	public static Measurable hashMap() {
+		return new Measurable() {
+			public Object build(int n) {
+				Map<String, Integer> map = new HashMap<String, Integer>();
+				for (int i=0; i<n; i++) {
+					map.put(String.format("%10d", i), i);
+				}
+				return map;
+			}
+		};
+	}
+
+	/**
+	 * Measures the footprint for a range of `n` and plots the results.
+	 *
+	 * @param title
+	 * @param measurable
+	 * @param startN
+	 * @param endN
+	 */
+	private static void profileFootprint(String title, Measurable measurable, int startN, int endN) {
+		Profiler profiler = new Profiler(title, measurable);
+		XYSeries series = profiler.memoryLoop(startN, endN);
+		profiler.plotResults(series, "Memory (bytes)");
+	}
+}
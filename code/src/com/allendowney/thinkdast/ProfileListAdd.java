@@ -4,8 +4,6 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.jfree.data.xy.XYSeries;
-
 import com.allendowney.thinkdast.Profiler.Timeable;
 
 public class ProfileListAdd {
@@ -24,7 +22,14 @@ public class ProfileListAdd {
 	 * Characterize the run time of adding to the end of an ArrayList
 	 */
 	public static void profileArrayListAddEnd() {
-		Timeable timeable = new Timeable() {
+		runProfiler("ArrayList add end", arrayListAddEnd(), 4000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that adds n elements to the end of a MyArrayList.
+	 */
+	public static Timeable arrayListAddEnd() {
+		return new Timeable() {
 			List<String> list;
 
 			public void setup(int n) {
@@ -37,16 +42,20 @@ public class ProfileListAdd {
 				}
 			}
 		};
-		int startN = 4000;
-		int endMillis = 1000;
-		runProfiler("ArrayList add end", timeable, startN, endMillis);
 	}
 	
 	/**
 	 * Characterize the run time of adding to the beginning of an ArrayList
 	 */
 	public static void profileArrayListAddBeginning() {
-		Timeable timeable = new Timeable() {
+		runProfiler("ArrayList add beginning", arrayListAddBeginning(), 4000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that adds n elements to the beginning of a MyArrayList.
+	 */
+	public static Timeable arrayListAddBeginning() {
+		return new Timeable() {
 			List<String> list;
 
 			public void setup(int n) {
@@ -59,16 +68,20 @@ public class ProfileListAdd {
 				}
 			}
 		};
-		int startN = 4000;
-		int endMillis = 1000;
-		runProfiler("ArrayList add beginning", timeable, startN, endMillis);
 	}
 
 	/**
 	 * Characterize the run time of adding to the beginning of a LinkedList
 	 */
 	public static void profileLinkedListAddBeginning() {
-		Timeable timeable = new Timeable() {
+		runProfiler("LinkedList add beginning", linkedListAddBeginning(), 4000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that adds n elements to the beginning of a MyLinkedList.
+	 */
+	public static Timeable linkedListAddBeginning() {
+		return new Timeable() {
 			List<String> list;
 
 			public void setup(int n) {
@@ -81,16 +94,20 @@ public class ProfileListAdd {
 				}
 			}
 		};
-		int startN = 4000;
-		int endMillis = 1000;
-		runProfiler("LinkedList add beginning", timeable, startN, endMillis);
 	}
 
 	/**
 	 * Characterize the run time of adding to the end of a LinkedList
 	 */
 	public static void profileLinkedListAddEnd() {
-		Timeable timeable = new Timeable() {
+		runProfiler("LinkedList add end", linkedListAddEnd(), 4000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that adds n elements to the end of a MyLinkedList.
+	 */
+	public static Timeable linkedListAddEnd() {
+		return new Timeable() {
 			List<String> list;
 
 			public void setup(int n) {
@@ -103,9 +120,6 @@ public class ProfileListAdd {
 				}
 			}
 		};
-		int startN = 4000;
-		int endMillis = 1000;
-		runProfiler("LinkedList add end", timeable, startN, endMillis);
 	}
 
 	/**
@@ -117,7 +131,8 @@ public class ProfileListAdd {
 	 */
 	private static void runProfiler(String title, Timeable timeable, int startN, int endMillis) {
 		Profiler profiler = new Profiler(title, timeable);
-		XYSeries series = profiler.timingLoop(startN, endMillis);
-		profiler.plotResults(series);
+		ProfileResult result = profiler.timingRun(startN, endMillis);
+		System.out.print(result.toCsv());
+		profiler.plotResults(result);
 	}
 }
\ No newline at end of file
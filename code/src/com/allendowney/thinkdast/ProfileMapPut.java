@@ -1,9 +1,9 @@
 package com.allendowney.thinkdast;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-
-import org.jfree.data.xy.XYSeries;
+import java.util.function.Supplier;
 
 import com.allendowney.thinkdast.Profiler.Timeable;
 
@@ -11,18 +11,27 @@ public class ProfileMapPut {
 	
 	/**
 	 * @param args
+	 * @throws IOException
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 //		profileHashMapPut();
 //		profileMyHashMapPut();
 		profileMyFixedHashMapPut();
+//		profileTermCount();
 	}
 
 	/**
 	 * Characterize the run time of putting a key in java.util.HashMap
 	 */
 	public static void profileHashMapPut() {
-		Timeable timeable = new Timeable() {
+		runProfiler("HashMap put", hashMapPut(), 8000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that puts n keys in a java.util.HashMap.
+	 */
+	public static Timeable hashMapPut() {
+		return new Timeable() {
 			Map<String, Integer> map;
 
 			public void setup(int n) {
@@ -35,16 +44,20 @@ public class ProfileMapPut {
 				}
 			}
 		};
-		int startN = 8000;
-		int endMillis = 1000;
-		runProfiler("HashMap put", timeable, startN, endMillis);
 	}
 	
 	/**
 	 * Characterize the run time of putting a key in MyHashMap
 	 */
 	public static void profileMyHashMapPut() {
-		Timeable timeable = new Timeable() {
+		runProfiler("MyHashMap put", myHashMapPut(), 1000, 5000);
+	}
+
+	/**
+	 * Returns a Timeable that puts n keys in a MyHashMap.
+	 */
+	public static Timeable myHashMapPut() {
+		return new Timeable() {
 			Map<String, Integer> map;
 
 			public void setup(int n) {
@@ -57,9 +70,6 @@ public class ProfileMapPut {
 				}
 			}
 		};
-		int startN = 1000;
-		int endMillis = 5000;
-		runProfiler("MyHashMap put", timeable, startN, endMillis);
 	}
 	
 
@@ -67,7 +77,14 @@ public class ProfileMapPut {
 	 * Characterize the run time of putting a key in MyFixedHashMap
 	 */
 	public static void profileMyFixedHashMapPut() {
-		Timeable timeable = new Timeable() {
+		runProfiler("MyFixedHashMap put", myFixedHashMapPut(), 8000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that puts n keys in a MyFixedHashMap.
+	 */
+	public static Timeable myFixedHashMapPut() {
+		return new Timeable() {
 			Map<String, Integer> map;
 
 			public void setup(int n) {
@@ -80,11 +97,57 @@ public class ProfileMapPut {
 				}
 			}
 		};
-		int startN = 8000;
-		int endMillis = 1000;
-		runProfiler("MyFixedHashMap put", timeable, startN, endMillis);
 	}
 	
+	/**
+	 * Characterize the run time of counting real terms from the Wikipedia
+	 * pages in src/resources, the way TermCounter does, with each map.
+	 *
+	 * @throws IOException
+	 */
+	public static void profileTermCount() throws IOException {
+		// long enough that no run uses up the sample
+		String[] terms = TermWorkload.fromResources().sample(1 << 22, 17);
+		runProfiler("HashMap term count", termCount(terms, new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new HashMap<String, Integer>();
+			}
+		}), 8000, 1000);
+		runProfiler("MyHashMap term count", termCount(terms, new Supplier<Map<String, Integer>>() {
+			public Map<String, Integer> get() {
+				return new MyHashMap<String, Integer>();
+			}
+		}), 8000, 1000);
+	}
+
+	/**
+	 * Returns a Timeable that counts the first n of `terms` in a new map
+	 * from `factory`.
+	 *
+	 * @param terms
+	 * @param factory
+	 * @return
+	 */
+	public static Timeable termCount(final String[] terms, final Supplier<Map<String, Integer>> factory) {
+		return new Timeable() {
+			Map<String, Integer> map;
+
+			public void setup(int n) {
+				if (n > terms.length) {
+					throw new IllegalArgumentException("Only " + terms.length + " terms");
+				}
+				map = factory.get();
+			}
+
+			public void timeMe(int n) {
+				for (int i=0; i<n; i++) {
+					Integer count = map.get(terms[i]);
+					map.put(terms[i], count == null ? 1 : count + 1);
+				}
+			}
+		};
+	}
+
 	/**
 	 * Runs the profiles and displays results.
 	 * 
@@ -94,7 +157,8 @@ public class ProfileMapPut {
 	 */
 	private static void runProfiler(String title, Timeable timeable, int startN, int endMillis) {
 		Profiler profiler = new Profiler(title, timeable);
-		XYSeries series = profiler.timingLoop(startN, endMillis);
-		profiler.plotResults(series);
+		ProfileResult result = profiler.timingRun(startN, endMillis);
+		System.out.print(result.toCsv());
+		profiler.plotResults(result);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.math3.distribution.TDistribution;
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * Run times measured by Profiler, for a range of problem sizes.
+ *
+ * For each n there is a set of samples in nanoseconds, one per timed
+ * run.  ProfileResult summarizes them with order statistics, which are
+ * not thrown off by the occasional run that is interrupted by GC or JIT
+ * compilation, and with the mean and a 95% confidence interval.  If the
+ * Profiler measured them, there are also the bytes allocated by each run
+ * and the GCs that happened during the runs.
+ *
+ */
+public class ProfileResult {
+
+	/**
+	 * The samples for one problem size.
+	 */
+	public static class Point {
+		private final int n;
+		private final long[] samples;    // sorted
+		private final long[] allocated;  // sorted, or null if not measured
+		private final long gcCount;
+		private final long gcMillis;
+
+		public Point(int n, long[] samples) {
+			this(n, samples, null, -1, -1);
+		}
+
+		/**
+		 * @param n
+		 * @param samples run times in nanoseconds
+		 * @param allocated bytes allocated by each run, or null if unknown
+		 * @param gcCount collections during the runs, or -1 if unknown
+		 * @param gcMillis time spent in those collections
+		 */
+		public Point(int n, long[] samples, long[] allocated, long gcCount, long gcMillis) {
+			if (samples.length == 0) {
+				throw new IllegalArgumentException("No samples for n = " + n);
+			}
+			this.n = n;
+			this.samples = samples.clone();
+			Arrays.sort(this.samples);
+			if (allocated != null) {
+				this.allocated = allocated.clone();
+				Arrays.sort(this.allocated);
+			} else {
+				this.allocated = null;
+			}
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+		}
+
+		public int getN() {
+			return n;
+		}
+
+		public int count() {
+			return samples.length;
+		}
+
+		public long min() {
+			return samples[0];
+		}
+
+		public long max() {
+			return samples[samples.length - 1];
+		}
+
+		public double median() {
+			return percentile(50);
+		}
+
+		/**
+		 * Returns the `p`th percentile, interpolating between samples.
+		 *
+		 * @param p between 0 and 100
+		 * @return
+		 */
+		public double percentile(double p) {
+			if (p < 0 || p > 100) {
+				throw new IllegalArgumentException("Illegal percentile: " + p);
+			}
+			double rank = p / 100 * (samples.length - 1);
+			int lo = (int) Math.floor(rank);
+			int hi = (int) Math.ceil(rank);
+			return samples[lo] + (rank - lo) * (samples[hi] - samples[lo]);
+		}
+
+		public double mean() {
+			double total = 0;
+			for (long sample: samples) {
+				total += sample;
+			}
+			return total / samples.length;
+		}
+
+		/**
+		 * Returns the sample standard deviation, or 0 if there is only one sample.
+		 *
+		 * @return
+		 */
+		public double stddev() {
+			if (samples.length < 2) {
+				return 0;
+			}
+			double mean = mean();
+			double total = 0;
+			for (long sample: samples) {
+				total += (sample - mean) * (sample - mean);
+			}
+			return Math.sqrt(total / (samples.length - 1));
+		}
+
+		/**
+		 * Returns the half width of a 95% confidence interval for the mean,
+		 * using Student's t distribution since there are usually few samples.
+		 *
+		 * @return
+		 */
+		public double confidence95() {
+			int k = samples.length;
+			if (k < 2) {
+				return Double.NaN;
+			}
+			double t = new TDistribution(k - 1).inverseCumulativeProbability(0.975);
+			return t * stddev() / Math.sqrt(k);
+		}
+
+		public boolean hasAllocation() {
+			return allocated != null && allocated.length > 0;
+		}
+
+		/**
+		 * Returns the median bytes allocated per run, or NaN if unknown.
+		 *
+		 * @return
+		 */
+		public double allocatedBytes() {
+			if (!hasAllocation()) {
+				return Double.NaN;
+			}
+			int k = allocated.length;
+			return (allocated[(k - 1) / 2] + allocated[k / 2]) / 2.0;
+		}
+
+		/**
+		 * Returns the median bytes allocated per run, divided by n.
+		 *
+		 * @return
+		 */
+		public double bytesPerOp() {
+			return allocatedBytes() / n;
+		}
+
+		/**
+		 * Returns the number of GCs during the timed runs, or -1 if unknown.
+		 */
+		public long gcCount() {
+			return gcCount;
+		}
+
+		/**
+		 * Returns the time spent in GC during the timed runs, in
+		 * milliseconds, or -1 if unknown.
+		 */
+		public long gcMillis() {
+			return gcMillis;
+		}
+	}
+
+	private final String title;
+	private final List<Point> points = new ArrayList<Point>();
+
+	public ProfileResult(String title) {
+		this.title = title;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void add(Point point) {
+		points.add(point);
+	}
+
+	public List<Point> getPoints() {
+		return Collections.unmodifiableList(points);
+	}
+
+	/**
+	 * Returns the median run time in milliseconds for each n.
+	 *
+	 * @return
+	 */
+	public XYSeries toSeries() {
+		XYSeries series = new XYSeries("Median time (ms)");
+		for (Point point: points) {
+			series.add(point.getN(), point.median() / 1e6);
+		}
+		return series;
+	}
+
+	/**
+	 * Returns the median bytes allocated per run for each n.
+	 *
+	 * Points that allocated nothing, or weren't measured, are left out,
+	 * since the series is meant for a log-log plot.
+	 *
+	 * @return
+	 */
+	public XYSeries toAllocationSeries() {
+		XYSeries series = new XYSeries("Median allocated (bytes)");
+		for (Point point: points) {
+			if (point.allocatedBytes() > 0) {
+				series.add(point.getN(), point.allocatedBytes());
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Fits a line to log(median time) versus log(n).
+	 *
+	 * The slope estimates the order of growth: about 1 for linear, 2 for
+	 * quadratic.
+	 *
+	 * @return
+	 */
+	public Profiler.Fit fit() {
+		return Profiler.fit(toSeries());
+	}
+
+	/**
+	 * Returns the results as CSV, one row per n, times in nanoseconds.
+	 *
+	 * The allocation and GC columns are empty if they weren't measured.
+	 *
+	 * @return
+	 */
+	public String toCsv() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("n,count,min,median,p90,p99,max,mean,stddev,ci95,bytes,bytes_per_op,gc_count,gc_ms\n");
+		for (Point point: points) {
+			sb.append(String.format(Locale.ROOT, "%d,%d,%d,%.1f,%.1f,%.1f,%d,%.1f,%.1f,%.1f,",
+					point.getN(), point.count(), point.min(), point.median(),
+					point.percentile(90), point.percentile(99), point.max(),
+					point.mean(), point.stddev(), point.confidence95()));
+			if (point.hasAllocation()) {
+				sb.append(String.format(Locale.ROOT, "%.0f,%.2f", point.allocatedBytes(), point.bytesPerOp()));
+			} else {
+				sb.append(",");
+			}
+			sb.append(',');
+			if (point.gcCount() >= 0) {
+				sb.append(point.gcCount()).append(',').append(point.gcMillis());
+			} else {
+				sb.append(",");
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the results as JSON, including the raw samples and the fit.
+	 *
+	 * @return
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n  \"title\": ").append(quote(title)).append(",\n");
+		sb.append("  \"unit\": \"ns\",\n");
+		if (points.size() >= 2) {
+			Profiler.Fit fit = fit();
+			sb.append(String.format(Locale.ROOT,
+					"  \"fit\": {\"slope\": %s, \"intercept\": %s, \"rSquare\": %s, \"slopeStdErr\": %s},\n",
+					number(fit.getSlope()), number(fit.getIntercept()),
+					number(fit.getRSquare()), number(fit.getSlopeStdErr())));
+		}
+		sb.append("  \"points\": [");
+		for (int i = 0; i < points.size(); i++) {
+			Point point = points.get(i);
+			sb.append(i == 0 ? "\n" : ",\n");
+			sb.append(String.format(Locale.ROOT,
+					"    {\"n\": %d, \"median\": %s, \"p90\": %s, \"p99\": %s, \"mean\": %s, \"ci95\": %s, "
+					+ "\"bytes\": %s, \"bytesPerOp\": %s, \"gcCount\": %s, \"gcMillis\": %s, \"samples\": %s}",
+					point.getN(), number(point.median()), number(point.percentile(90)),
+					number(point.percentile(99)), number(point.mean()),
+					number(point.confidence95()), number(point.allocatedBytes()),
+					number(point.bytesPerOp()),
+					point.gcCount() >= 0 ? point.gcCount() : "null",
+					point.gcCount() >= 0 ? point.gcMillis() : "null",
+					Arrays.toString(point.samples)));
+		}
+		sb.append("\n  ]\n}\n");
+		return sb.toString();
+	}
+
+	public void writeCsv(Path path) throws IOException {
+		Files.write(path, toCsv().getBytes(StandardCharsets.UTF_8));
+	}
+
+	public void writeJson(Path path) throws IOException {
+		Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Formats a number for JSON, which has no NaN or Infinity.
+	 */
+	private static String number(double x) {
+		if (Double.isNaN(x) || Double.isInfinite(x)) {
+			return "null";
+		}
+		return String.format(Locale.ROOT, "%.6g", x);
+	}
+
+	private static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c: s.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,106 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class ProfileResultTest {
+
+	private ProfileResult result;
+	private ProfileResult.Point point;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		// samples 10, 20, ..., 100, out of order
+		point = new ProfileResult.Point(1000, new long[] {50, 10, 100, 30, 20, 90, 40, 80, 60, 70});
+		result = new ProfileResult("test \"quoted\"");
+		result.add(point);
+		result.add(new ProfileResult.Point(2000, new long[] {200, 220, 180}));
+	}
+
+	/**
+	 * Test method for {@link ProfileResult.Point#percentile(double)}.
+	 */
+	@Test
+	public void testPercentile() {
+		assertThat(point.min(), is(10L));
+		assertThat(point.max(), is(100L));
+		assertThat(point.median(), is(55.0));
+		assertThat(point.percentile(0), is(10.0));
+		assertThat(point.percentile(100), is(100.0));
+		assertThat(Math.abs(point.percentile(90) - 91) < 1e-9, is(true));
+		assertThat(Math.abs(point.percentile(99) - 99.1) < 1e-9, is(true));
+	}
+
+	/**
+	 * Test method for {@link ProfileResult.Point#confidence95()}.
+	 */
+	@Test
+	public void testConfidence() {
+		assertThat(point.mean(), is(55.0));
+		assertThat(Math.abs(point.stddev() - 30.2765) < 1e-4, is(true));
+		// t(9, 0.975) = 2.2622
+		assertThat(Math.abs(point.confidence95() - 2.2622 * 30.2765 / Math.sqrt(10)) < 1e-2, is(true));
+		assertThat(Double.isNaN(new ProfileResult.Point(1, new long[] {5}).confidence95()), is(true));
+	}
+
+	/**
+	 * Test method for {@link ProfileResult#toCsv()}.
+	 */
+	@Test
+	public void testToCsv() {
+		String[] lines = result.toCsv().split("\n");
+		assertThat(lines.length, is(3));
+		assertThat(lines[0], is("n,count,min,median,p90,p99,max,mean,stddev,ci95,bytes,bytes_per_op,gc_count,gc_ms"));
+		assertThat(lines[1].startsWith("1000,10,10,55.0,91.0,99.1,100,55.0,"), is(true));
+		assertThat(lines[1].endsWith(",,,,"), is(true));
+		assertThat(lines[2].startsWith("2000,3,180,200.0,"), is(true));
+	}
+
+	/**
+	 * Test method for {@link ProfileResult.Point#allocatedBytes()}.
+	 */
+	@Test
+	public void testAllocation() {
+		assertThat(point.hasAllocation(), is(false));
+		assertThat(Double.isNaN(point.allocatedBytes()), is(true));
+
+		ProfileResult.Point measured = new ProfileResult.Point(4000, new long[] {1, 2, 3},
+				new long[] {16000, 8000, 9000}, 2, 5);
+		assertThat(measured.allocatedBytes(), is(9000.0));
+		assertThat(measured.bytesPerOp(), is(2.25));
+		assertThat(measured.gcCount(), is(2L));
+		assertThat(measured.gcMillis(), is(5L));
+
+		result.add(measured);
+		String[] lines = result.toCsv().split("\n");
+		assertThat(lines[3].endsWith(",9000,2.25,2,5"), is(true));
+		assertThat(result.toJson(), containsString("\"bytes\": 9000.00, \"bytesPerOp\": 2.25000, \"gcCount\": 2, \"gcMillis\": 5"));
+
+		// only the measured point goes in the allocation series
+		assertThat(result.toAllocationSeries().getItemCount(), is(1));
+		assertThat(result.toAllocationSeries().getY(0).doubleValue(), is(9000.0));
+	}
+
+	/**
+	 * Test method for {@link ProfileResult#toJson()}.
+	 */
+	@Test
+	public void testToJson() {
+		String json = result.toJson();
+		assertThat(json, containsString("\"title\": \"test \\\"quoted\\\"\""));
+		assertThat(json, containsString("\"fit\": {\"slope\": "));
+		assertThat(json, containsString("\"n\": 1000, \"median\": 55.0000"));
+		assertThat(json, containsString("\"samples\": [180, 200, 220]"));
+		assertThat(json.contains("\r"), is(false));
+	}
+}
@@ -0,0 +1,113 @@
+package com.allendowney.thinkdast;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.allendowney.thinkdast.Profiler.Timeable;
+import com.allendowney.thinkdast.ScalabilityProfiler.Mode;
+
+/**
+ * Profiles concurrent maps and the parallel merge sort with 1 to 2 * CPUs threads.
+ */
+public class ProfileScalability {
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int maxThreads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+		runProfiler("ConcurrentHashMap put", concurrentHashMapPut(), Mode.SHARED, 100000, maxThreads);
+		runProfiler("synchronized HashMap put", synchronizedMapPut(), Mode.SHARED, 100000, maxThreads);
+		runProfiler("parallel merge sort", parallelMergeSort(), Mode.POOL, 1000000, maxThreads);
+	}
+
+	/**
+	 * Returns a Timeable where each thread puts n random keys in a shared ConcurrentHashMap.
+	 */
+	public static Timeable concurrentHashMapPut() {
+		return new Timeable() {
+			Map<Integer, Integer> map;
+
+			public void setup(int n) {
+				map = new ConcurrentHashMap<Integer, Integer>();
+			}
+
+			public void timeMe(int n) {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i=0; i<n; i++) {
+					map.put(random.nextInt(), i);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable where each thread puts n random keys in a shared
+	 * HashMap wrapped by Collections.synchronizedMap.
+	 */
+	public static Timeable synchronizedMapPut() {
+		return new Timeable() {
+			Map<Integer, Integer> map;
+
+			public void setup(int n) {
+				map = Collections.synchronizedMap(new HashMap<Integer, Integer>());
+			}
+
+			public void timeMe(int n) {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i=0; i<n; i++) {
+					map.put(random.nextInt(), i);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a Timeable that sorts n random Integers with ListSorter.parallelMergeSort.
+	 */
+	public static Timeable parallelMergeSort() {
+		return new Timeable() {
+			final ListSorter<Integer> sorter = new ListSorter<Integer>();
+			final Comparator<Integer> comparator = new Comparator<Integer>() {
+				@Override
+				public int compare(Integer n, Integer m) {
+					return n.compareTo(m);
+				}
+			};
+			Integer[] array;
+
+			public void setup(int n) {
+				Random random = new Random(17);
+				array = new Integer[n];
+				for (int i=0; i<n; i++) {
+					array[i] = random.nextInt();
+				}
+			}
+
+			public void timeMe(int n) {
+				sorter.parallelMergeSort(array, comparator, ListSorter.PARALLEL_THRESHOLD);
+			}
+		};
+	}
+
+	/**
+	 * Runs the profile and displays results.
+	 *
+	 * @param title
+	 * @param timeable
+	 * @param mode
+	 * @param n
+	 * @param maxThreads
+	 */
+	private static void runProfiler(String title, Timeable timeable, Mode mode, int n, int maxThreads) {
+		ScalabilityProfiler profiler = new ScalabilityProfiler(title, timeable, mode);
+		ScalabilityResult result = profiler.run(n, maxThreads);
+		System.out.print(result.toCsv());
+		profiler.plotResults(result);
+	}
+}
@@ -3,32 +3,25 @@
  */
 package com.allendowney.thinkdast;
 
-import java.awt.Color;
+import java.awt.GraphicsEnvironment;
+import java.util.Locale;
 
 import org.apache.commons.math3.stat.regression.SimpleRegression;
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartPanel;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.axis.LogarithmicAxis;
-import org.jfree.chart.axis.NumberAxis;
-import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.chart.plot.XYPlot;
 import org.jfree.data.xy.XYDataItem;
 import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
-import org.jfree.ui.ApplicationFrame;
-import org.jfree.ui.RefineryUtilities;
 
 /**
+ * Measures how run time (or memory) grows with problem size.
+ *
+ * Profiler itself doesn't need a display, so it works on servers; the
+ * results can be saved as CSV or JSON (see ProfileResult), and
+ * plotResults only draws a chart, with ChartRenderer, when there is a
+ * screen to draw it on.
+ *
  * @author downey
  *
  */
-public class Profiler extends ApplicationFrame {
-
-	/**
-	 * This is here because extending ApplicationFrame requires it.
-	 */
-	private static final long serialVersionUID = 1L;
+public class Profiler {
 
 	/**
 	 * Timeable defines the methods an object must provide to work with Profiler
@@ -46,102 +39,280 @@ public class Profiler extends ApplicationFrame {
 		public void timeMe(int n);
 	}
 
+	/**
+	 * Measurable defines the method an object must provide to work with memoryLoop
+	 *
+	 */
+	public interface Measurable {
+		/*
+		 * build makes the data structure we are measuring, with `n` elements.
+		 */
+		public Object build(int n);
+	}
+
+	/**
+	 * A straight line fit to log(y) versus log(x), with its goodness of fit.
+	 */
+	public static class Fit {
+		private final double slope;
+		private final double intercept;
+		private final double rSquare;
+		private final double slopeStdErr;
+
+		public Fit(double slope, double intercept, double rSquare, double slopeStdErr) {
+			this.slope = slope;
+			this.intercept = intercept;
+			this.rSquare = rSquare;
+			this.slopeStdErr = slopeStdErr;
+		}
+
+		public double getSlope() {
+			return slope;
+		}
+
+		public double getIntercept() {
+			return intercept;
+		}
+
+		/**
+		 * Returns the fraction of the variance the line explains; close to 1
+		 * means the data really do follow a power law.
+		 */
+		public double getRSquare() {
+			return rSquare;
+		}
+
+		public double getSlopeStdErr() {
+			return slopeStdErr;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "slope = %.3f +/- %.3f, R^2 = %.4f", slope, slopeStdErr, rSquare);
+		}
+	}
+
+	private final String title;
 	private Timeable timeable;
+	private Measurable measurable;
+	private int warmups = 1;
+	private int iterations = 10;
+	private int maxN = Integer.MAX_VALUE;
+	private final AllocationMeter meter = new AllocationMeter();
 
 	public Profiler(String title, Timeable timeable) {
-		super(title);
+		this.title = title;
 		this.timeable = timeable;
 	}
 
+	public Profiler(String title, Measurable measurable) {
+		this.title = title;
+		this.measurable = measurable;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
 	/**
-	 * Invokes timeIt with a range of `n` from `startN` until runtime exceeds `endMillis`.
+	 * Sets the number of untimed runs before the timed runs, for each n.
 	 *
-	 * @param data.timeable
-	 * @param n
+	 * @param warmups
+	 */
+	public void setWarmups(int warmups) {
+		if (warmups < 0) {
+			throw new IllegalArgumentException("Illegal warmups: " + warmups);
+		}
+		this.warmups = warmups;
+	}
+
+	/**
+	 * Sets the number of timed runs for each n.
+	 *
+	 * @param iterations
+	 */
+	public void setIterations(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Illegal iterations: " + iterations);
+		}
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Sets the largest n timingRun will try, for Timeables whose setup
+	 * gets slow long before timeMe does.
+	 *
+	 * @param maxN
+	 */
+	public void setMaxN(int maxN) {
+		if (maxN < 1) {
+			throw new IllegalArgumentException("Illegal maxN: " + maxN);
+		}
+		this.maxN = maxN;
+	}
+
+	/**
+	 * Times the embedded Timeable with `n` doubling from `startN` until
+	 * the timed runs for one n take more than `endMillis` in total, or n
+	 * would be more than maxN.
+	 *
+	 * For each n, the Timeable runs `warmups` times untimed, then
+	 * `iterations` times timed.  Each timed run also records the bytes
+	 * timeMe allocates, and the GCs that happen while timeMe runs, not
+	 * setup, are counted (see AllocationMeter).
+	 *
+	 * @param startN
+	 * @param endMillis
 	 * @return
 	 */
-	public XYSeries timingLoop(int startN, int endMillis) {
-        final XYSeries series = new XYSeries("Time (ms)");
+	public ProfileResult timingRun(int startN, int endMillis) {
+		ProfileResult result = new ProfileResult(title);
+		long endNanos = endMillis * 1000000L;
 
 		int n = startN;
 		for (int i=0; i<20; i++) {
-			// run it once to warm up
-			timeIt(n);
-
-			// then start timing
-			long total = 0;
-
-			// run 10 times and add up total runtime
-			for (int j=0; j<10; j++) {
-				total += timeIt(n);
+			for (int j=0; j<warmups; j++) {
+				timeNanos(n);
 			}
-			System.out.println(n + ", " + total);
 
-			// don't store data until we get to 4ms
-			if (total > 4) {
-				series.add(n, total);
+			long[] samples = new long[iterations];
+			long[] allocated = new long[iterations];
+			long gcCount = 0;
+			long gcMillis = 0;
+			long total = 0;
+			for (int j=0; j<iterations; j++) {
+				timeable.setup(n);
+				// read the GC counters outside the allocation window,
+				// since reading them allocates
+				long gcCountBefore = meter.gcCount();
+				long gcMillisBefore = meter.gcMillis();
+				long bytes = meter.allocatedBytes();
+				final long startTime = System.nanoTime();
+				timeable.timeMe(n);
+				samples[j] = System.nanoTime() - startTime;
+				allocated[j] = meter.allocatedSince(bytes);
+				gcCount += meter.gcCount() - gcCountBefore;
+				gcMillis += meter.gcMillis() - gcMillisBefore;
+				total += samples[j];
 			}
+			ProfileResult.Point point = new ProfileResult.Point(n, samples,
+					meter.isSupported() ? allocated : null, gcCount, gcMillis);
+			result.add(point);
+			System.out.println(n + ", " + point.median() / 1e6 + " ms");
 
 			// stop when the runtime exceeds the end threshold
-			if (total > endMillis) {
+			if (total > endNanos || n > maxN / 2) {
 				break;
 			}
 			// otherwise double the size and continue
 			n *= 2;
 		}
-		return series;
+		return result;
+	}
+
+	/**
+	 * Invokes timeIt with a range of `n` from `startN` until runtime exceeds `endMillis`.
+	 *
+	 * @param startN
+	 * @param endMillis
+	 * @return the median run time in milliseconds for each n
+	 */
+	public XYSeries timingLoop(int startN, int endMillis) {
+		return timingRun(startN, endMillis).toSeries();
 	}
 
 	/**
 	 * Invokes setup and timeMe on the embedded Timeable.
 	 *
 	 * @param n
-	 * @return
+	 * @return run time in milliseconds
 	 */
 	public long timeIt(int n) {
+		return timeNanos(n) / 1000000;
+	}
+
+	/**
+	 * Invokes setup and timeMe on the embedded Timeable.
+	 *
+	 * @param n
+	 * @return run time in nanoseconds
+	 */
+	public long timeNanos(int n) {
 		timeable.setup(n);
-		final long startTime = System.currentTimeMillis();
+		final long startTime = System.nanoTime();
 		timeable.timeMe(n);
-		final long endTime = System.currentTimeMillis();
+		final long endTime = System.nanoTime();
 		return endTime - startTime;
 	}
 
+	/**
+	 * Measures the footprint of the embedded Measurable with `n` doubling
+	 * from `startN` until it exceeds `endN`.
+	 *
+	 * @param startN
+	 * @param endN
+	 * @return
+	 */
+	public XYSeries memoryLoop(int startN, int endN) {
+		final XYSeries series = new XYSeries("Memory (bytes)");
+		MemoryMeter meter = new MemoryMeter();
+
+		for (int n = startN; n <= endN; n *= 2) {
+			long bytes = meter.measureDeep(measurable.build(n));
+			System.out.println(n + ", " + bytes + ", " + (double) bytes / n);
+			series.add(n, bytes);
+		}
+		return series;
+	}
+
+	/**
+	 * Prints the fit and plots the median run times, and the bytes
+	 * allocated on a second axis if there are enough nonzero counts.
+	 *
+	 * @param result
+	 */
+	public void plotResults(ProfileResult result) {
+		XYSeries allocation = result.toAllocationSeries();
+		if (allocation.getItemCount() < 2) {
+			plotResults(result.toSeries(), "Median runtime (ms)");
+			return;
+		}
+		XYSeries series = result.toSeries();
+		System.out.println("Estimated " + fit(series));
+		System.out.println("Allocation " + fit(allocation));
+
+		if (GraphicsEnvironment.isHeadless()) {
+			System.out.println("No display, so no chart.");
+			return;
+		}
+		new ChartRenderer(title).plot(series, "Median runtime (ms)",
+				allocation, "Median allocated (bytes)");
+	}
+
 	/**
 	 * Plots the results.
 	 *
 	 * @param series
 	 */
 	public void plotResults(XYSeries series) {
-		double slope = estimateSlope(series);
-		System.out.println("Estimated slope= " + slope);
-
-		final XYSeriesCollection dataset = new XYSeriesCollection();
-        dataset.addSeries(series);
-
-        final JFreeChart chart = ChartFactory.createXYLineChart(
-            "",          // chart title
-            "",               // domain axis label
-            "",                  // range axis label
-            dataset,                  // data
-            PlotOrientation.VERTICAL,
-            false,                     // include legend
-            true,
-            false
-        );
-
-        final XYPlot plot = chart.getXYPlot();
-        final NumberAxis domainAxis = new LogarithmicAxis("Problem size (n)");
-        final NumberAxis rangeAxis = new LogarithmicAxis("Runtime (ms)");
-        plot.setDomainAxis(domainAxis);
-        plot.setRangeAxis(rangeAxis);
-        chart.setBackgroundPaint(Color.white);
-        plot.setOutlinePaint(Color.black);
-        final ChartPanel chartPanel = new ChartPanel(chart);
-        chartPanel.setPreferredSize(new java.awt.Dimension(1000, 600));
-        setContentPane(chartPanel);
-        pack();
-        RefineryUtilities.centerFrameOnScreen(this);
-        setVisible(true);
+		plotResults(series, "Runtime (ms)");
+	}
+
+	/**
+	 * Prints the fit and, if there is a display, plots the results with
+	 * `rangeLabel` on the y axis.
+	 *
+	 * @param series
+	 * @param rangeLabel
+	 */
+	public void plotResults(XYSeries series, String rangeLabel) {
+		System.out.println("Estimated " + fit(series));
+
+		if (GraphicsEnvironment.isHeadless()) {
+			System.out.println("No display, so no chart.");
+			return;
+		}
+		new ChartRenderer(title).plot(series, rangeLabel);
 	}
 
 	/**
@@ -151,12 +322,23 @@ public class Profiler extends ApplicationFrame {
 	 * @return
 	 */
 	public double estimateSlope(XYSeries series) {
+		return fit(series).getSlope();
+	}
+
+	/**
+	 * Fits a line to the series on a log-log scale.
+	 *
+	 * @param series
+	 * @return
+	 */
+	public static Fit fit(XYSeries series) {
 		SimpleRegression regression = new SimpleRegression();
 
 		for (Object item: series.getItems()) {
 			XYDataItem xy = (XYDataItem) item;
 			regression.addData(Math.log(xy.getXValue()), Math.log(xy.getYValue()));
 		}
-		return regression.getSlope();
+		return new Fit(regression.getSlope(), regression.getIntercept(),
+				regression.getRSquare(), regression.getSlopeStdErr());
 	}
 }
@@ -0,0 +1,126 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.jfree.data.xy.XYSeries;
+import org.junit.Test;
+
+import com.allendowney.thinkdast.Profiler.Timeable;
+
+/**
+ * @author downey
+ *
+ */
+public class ProfilerTest {
+
+	/**
+	 * Test method for {@link Profiler#fit(org.jfree.data.xy.XYSeries)}.
+	 */
+	@Test
+	public void testFit() {
+		XYSeries series = new XYSeries("quadratic");
+		for (int n = 1000; n <= 64000; n *= 2) {
+			series.add(n, 3.0 * n * n);
+		}
+		Profiler.Fit fit = Profiler.fit(series);
+		assertThat(Math.abs(fit.getSlope() - 2) < 1e-9, is(true));
+		assertThat(Math.abs(fit.getIntercept() - Math.log(3)) < 1e-6, is(true));
+		assertThat(Math.abs(fit.getRSquare() - 1) < 1e-9, is(true));
+
+		// noise makes the fit worse
+		series = new XYSeries("noisy");
+		double[] noise = {1, 5, 0.5, 3, 0.2, 4};
+		for (int i = 0; i < noise.length; i++) {
+			int n = 1000 << i;
+			series.add(n, n * noise[i]);
+		}
+		fit = Profiler.fit(series);
+		assertThat(fit.getRSquare() < 0.9, is(true));
+		assertThat(fit.getSlopeStdErr() > 0.1, is(true));
+	}
+
+	/**
+	 * Test method for {@link Profiler#timingRun(int, int)}.
+	 */
+	@Test
+	public void testTimingRun() {
+		final int[] setups = new int[1];
+		Timeable timeable = new Timeable() {
+			long total;
+
+			public void setup(int n) {
+				setups[0]++;
+			}
+
+			public void timeMe(int n) {
+				for (int i = 0; i < n; i++) {
+					total += i;
+				}
+			}
+		};
+		Profiler profiler = new Profiler("test", timeable);
+		profiler.setWarmups(2);
+		profiler.setIterations(5);
+
+		// with endMillis = 0, the first n is the last
+		ProfileResult result = profiler.timingRun(1000, 0);
+		assertThat(result.getPoints().size(), is(1));
+		assertThat(result.getPoints().get(0).count(), is(5));
+		assertThat(setups[0], is(7));
+
+		result = profiler.timingRun(1000, 1);
+		assertThat(result.getPoints().get(0).getN(), is(1000));
+		assertThat(result.getPoints().size() > 1, is(true));
+		assertThat(result.getPoints().get(1).getN(), is(2000));
+
+		try {
+			profiler.setIterations(0);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link Profiler#timingRun(int, int)}.
+	 */
+	@Test
+	public void testAllocation() {
+		Timeable timeable = new Timeable() {
+			long[] array;
+
+			public void setup(int n) {}
+
+			public void timeMe(int n) {
+				array = new long[n];
+			}
+		};
+		Profiler profiler = new Profiler("test", timeable);
+		profiler.setIterations(3);
+		ProfileResult.Point point = profiler.timingRun(100000, 0).getPoints().get(0);
+		assertThat(point.gcCount() >= 0, is(true));
+		if (!new AllocationMeter().isSupported()) {
+			return;
+		}
+		// a long[] takes 8 bytes per element, plus a header
+		assertThat(point.allocatedBytes() >= 800000, is(true));
+		assertThat(point.allocatedBytes() < 800100, is(true));
+	}
+
+	/**
+	 * Checks that GCs during setup are not counted against timeMe.
+	 */
+	@Test
+	public void testGcInSetup() {
+		Timeable timeable = new Timeable() {
+			public void setup(int n) {
+				System.gc();
+			}
+
+			public void timeMe(int n) {}
+		};
+		Profiler profiler = new Profiler("test", timeable);
+		profiler.setIterations(3);
+		ProfileResult.Point point = profiler.timingRun(1000, 0).getPoints().get(0);
+		assertThat(point.gcCount(), is(0L));
+	}
+}
@@ -0,0 +1,203 @@
+package com.allendowney.thinkdast;
+
+import java.util.Arrays;
+
+/**
+ * Sorts primitive arrays and Strings without comparing elements.
+ *
+ * The int and long versions are least-significant-digit radix sorts that
+ * use one counting sort per byte of the key; the String version is a
+ * most-significant-digit radix sort.  All of them take time proportional
+ * to the total size of the keys rather than n log n.
+ *
+ */
+public class RadixSort {
+
+	private static final int BITS_PER_DIGIT = 8;
+	private static final int RADIX = 1 << BITS_PER_DIGIT;
+	private static final int DIGIT_MASK = RADIX - 1;
+
+	// subarrays this short are finished with insertion sort
+	private static final int STRING_CUTOFF = 16;
+
+	/**
+	 * Sorts an array of ints in ascending order.
+	 *
+	 * @param array
+	 */
+	public static void sort(int[] array) {
+		int n = array.length;
+		int[] aux = new int[n];
+		int[] src = array;
+		int[] dest = aux;
+
+		for (int shift = 0; shift < Integer.SIZE; shift += BITS_PER_DIGIT) {
+			int[] count = new int[RADIX + 1];
+			for (int i = 0; i < n; i++) {
+				count[digit(src[i], shift) + 1]++;
+			}
+			// if every key has the same digit, this pass wouldn't move anything
+			if (n == 0 || count[digit(src[0], shift) + 1] == n) {
+				continue;
+			}
+			for (int r = 0; r < RADIX; r++) {
+				count[r+1] += count[r];
+			}
+			for (int i = 0; i < n; i++) {
+				dest[count[digit(src[i], shift)]++] = src[i];
+			}
+			int[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+		if (src != array) {
+			System.arraycopy(src, 0, array, 0, n);
+		}
+	}
+
+	/**
+	 * Sorts an array of longs in ascending order.
+	 *
+	 * @param array
+	 */
+	public static void sort(long[] array) {
+		int n = array.length;
+		long[] aux = new long[n];
+		long[] src = array;
+		long[] dest = aux;
+
+		for (int shift = 0; shift < Long.SIZE; shift += BITS_PER_DIGIT) {
+			int[] count = new int[RADIX + 1];
+			for (int i = 0; i < n; i++) {
+				count[digit(src[i], shift) + 1]++;
+			}
+			if (n == 0 || count[digit(src[0], shift) + 1] == n) {
+				continue;
+			}
+			for (int r = 0; r < RADIX; r++) {
+				count[r+1] += count[r];
+			}
+			for (int i = 0; i < n; i++) {
+				dest[count[digit(src[i], shift)]++] = src[i];
+			}
+			long[] temp = src;
+			src = dest;
+			dest = temp;
+		}
+		if (src != array) {
+			System.arraycopy(src, 0, array, 0, n);
+		}
+	}
+
+	/**
+	 * Returns the digit of `key` that starts at bit `shift`.
+	 *
+	 * The sign bit is flipped so negative numbers sort before positive ones.
+	 */
+	static int digit(int key, int shift) {
+		return ((key ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK;
+	}
+
+	private static int digit(long key, int shift) {
+		return (int) ((key ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK;
+	}
+
+	/**
+	 * Sorts an array of Strings in the same order as String.compareTo.
+	 *
+	 * Each char is treated as two 8-bit digits, high byte first, so the
+	 * count arrays stay small.  The sort is stable.
+	 *
+	 * @param array
+	 */
+	public static void sort(String[] array) {
+		String[] aux = new String[array.length];
+		sort(array, aux, 0, array.length, 0);
+	}
+
+	/**
+	 * Sorts array[lo, hi), given that the strings agree on their first `d` digits.
+	 */
+	private static void sort(String[] array, String[] aux, int lo, int hi, int d) {
+		if (hi - lo <= STRING_CUTOFF) {
+			insertionSort(array, lo, hi, d / 2);
+			return;
+		}
+
+		// count[r+2] is the number of strings with digit r; strings that
+		// have run out of digits get r = -1
+		int[] count = new int[RADIX + 2];
+		for (int i = lo; i < hi; i++) {
+			count[digitAt(array[i], d) + 2]++;
+		}
+		for (int r = 0; r < RADIX + 1; r++) {
+			count[r+1] += count[r];
+		}
+		for (int i = lo; i < hi; i++) {
+			aux[count[digitAt(array[i], d) + 1]++] = array[i];
+		}
+		System.arraycopy(aux, 0, array, lo, hi - lo);
+
+		// sort the strings that share each digit, by the next digit;
+		// strings that ran out (count[0]) are equal and already done
+		for (int r = 0; r < RADIX; r++) {
+			int start = lo + count[r];
+			int end = lo + count[r+1];
+			if (end - start > 1) {
+				sort(array, aux, start, end, d + 1);
+			}
+		}
+	}
+
+	/**
+	 * Returns digit `d` of `s`, or -1 if `s` is too short.
+	 */
+	private static int digitAt(String s, int d) {
+		int index = d >>> 1;
+		if (index >= s.length()) {
+			return -1;
+		}
+		char c = s.charAt(index);
+		return (d & 1) == 0 ? c >>> BITS_PER_DIGIT : c & DIGIT_MASK;
+	}
+
+	/**
+	 * Sorts array[lo, hi) with insertion sort, comparing from char `from` on.
+	 */
+	private static void insertionSort(String[] array, int lo, int hi, int from) {
+		for (int i = lo + 1; i < hi; i++) {
+			String s = array[i];
+			int j = i;
+			while (j > lo && less(s, array[j-1], from)) {
+				array[j] = array[j-1];
+				j--;
+			}
+			array[j] = s;
+		}
+	}
+
+	private static boolean less(String s, String t, int from) {
+		int n = Math.min(s.length(), t.length());
+		for (int i = from; i < n; i++) {
+			char c1 = s.charAt(i);
+			char c2 = t.charAt(i);
+			if (c1 != c2) {
+				return c1 < c2;
+			}
+		}
+		return s.length() < t.length();
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int[] array = {2, -5, 6, 1, 3, Integer.MIN_VALUE, 0};
+		sort(array);
+		System.out.println(Arrays.toString(array));
+
+		String[] strings = {"she", "sells", "seashells", "by", "the", "sea", "shore"};
+		sort(strings);
+		System.out.println(Arrays.toString(strings));
+	}
+}
@@ -0,0 +1,87 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class RadixSortTest {
+
+	/**
+	 * Test method for {@link RadixSort#sort(int[])}.
+	 */
+	@Test
+	public void testSortInts() {
+		int[] array = {2, -5, 6, 1, 3, Integer.MIN_VALUE, 0, Integer.MAX_VALUE};
+		int[] expected = array.clone();
+		Arrays.sort(expected);
+		RadixSort.sort(array);
+		assertThat(array, is(expected));
+
+		Random random = new Random(42);
+		array = new int[10000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = random.nextInt();
+		}
+		expected = array.clone();
+		Arrays.sort(expected);
+		RadixSort.sort(array);
+		assertThat(array, is(expected));
+
+		RadixSort.sort(new int[0]);
+	}
+
+	/**
+	 * Test method for {@link RadixSort#sort(long[])}.
+	 */
+	@Test
+	public void testSortLongs() {
+		Random random = new Random(42);
+		long[] array = new long[10000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = random.nextInt(3) == 0 ? random.nextInt(100) - 50 : random.nextLong();
+		}
+		array[0] = Long.MIN_VALUE;
+		array[1] = Long.MAX_VALUE;
+		long[] expected = array.clone();
+		Arrays.sort(expected);
+		RadixSort.sort(array);
+		assertThat(array, is(expected));
+	}
+
+	/**
+	 * Test method for {@link RadixSort#sort(java.lang.String[])}.
+	 */
+	@Test
+	public void testSortStrings() {
+		String[] array = {"she", "sells", "seashells", "by", "the", "sea", "shore", "", "se"};
+		String[] expected = array.clone();
+		Arrays.sort(expected);
+		RadixSort.sort(array);
+		assertThat(array, is(expected));
+
+		// lots of shared prefixes and a few chars outside of ASCII
+		Random random = new Random(42);
+		String alphabet = "abc\u00e9\u4e2d";
+		array = new String[5000];
+		for (int i = 0; i < array.length; i++) {
+			StringBuilder sb = new StringBuilder("prefix");
+			int length = random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			array[i] = sb.toString();
+		}
+		expected = array.clone();
+		Arrays.sort(expected);
+		RadixSort.sort(array);
+		assertThat(array, is(expected));
+	}
+}
@@ -0,0 +1,237 @@
+package com.allendowney.thinkdast;
+
+import java.awt.GraphicsEnvironment;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.allendowney.thinkdast.Profiler.Timeable;
+
+/**
+ * Measures how throughput changes with the number of threads.
+ *
+ * In SHARED mode, setup(n) runs once, then every thread runs timeMe(n)
+ * at the same time, so the threads share whatever setup built; this is
+ * for concurrent data structures.  Each run does threads * n operations.
+ *
+ * In POOL mode, timeMe(n) runs once, in a ForkJoinPool with the given
+ * parallelism, so fork/join code like ListSorter.parallelMergeSort uses
+ * that many threads; each run does n operations.
+ *
+ * In SHARED mode, the JVM's thread contention monitoring reports how
+ * long each thread was blocked on a monitor or waiting for a lock while
+ * running timeMe.  Time a thread spends runnable but not scheduled,
+ * which happens when there are more threads than CPUs, is not counted.
+ *
+ */
+public class ScalabilityProfiler {
+
+	public enum Mode { SHARED, POOL }
+
+	private final String title;
+	private final Timeable timeable;
+	private final Mode mode;
+	private int warmups = 1;
+	private int iterations = 5;
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	public ScalabilityProfiler(String title, Timeable timeable, Mode mode) {
+		this.title = title;
+		this.timeable = timeable;
+		this.mode = mode;
+		if (threadBean.isThreadContentionMonitoringSupported()) {
+			threadBean.setThreadContentionMonitoringEnabled(true);
+		}
+	}
+
+	/**
+	 * Sets the number of untimed runs before the timed runs, for each thread count.
+	 *
+	 * @param warmups
+	 */
+	public void setWarmups(int warmups) {
+		if (warmups < 0) {
+			throw new IllegalArgumentException("Illegal warmups: " + warmups);
+		}
+		this.warmups = warmups;
+	}
+
+	/**
+	 * Sets the number of timed runs for each thread count.
+	 *
+	 * @param iterations
+	 */
+	public void setIterations(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Illegal iterations: " + iterations);
+		}
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Returns 1, 2, 4, ... up to `maxThreads`, and `maxThreads` itself.
+	 *
+	 * @param maxThreads
+	 * @return
+	 */
+	static List<Integer> threadCounts(int maxThreads) {
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("Illegal maxThreads: " + maxThreads);
+		}
+		List<Integer> counts = new ArrayList<Integer>();
+		for (int t = 1; t < maxThreads; t *= 2) {
+			counts.add(t);
+		}
+		counts.add(maxThreads);
+		return counts;
+	}
+
+	/**
+	 * Times the embedded Timeable with problem size `n`, using from 1 to
+	 * `maxThreads` threads.
+	 *
+	 * @param n
+	 * @param maxThreads
+	 * @return
+	 */
+	public ScalabilityResult run(int n, int maxThreads) {
+		int processors = Runtime.getRuntime().availableProcessors();
+		ScalabilityResult result = new ScalabilityResult(title, processors);
+
+		for (int threads: threadCounts(maxThreads)) {
+			ForkJoinPool pool = mode == Mode.POOL ? new ForkJoinPool(threads) : null;
+			try {
+				for (int j = 0; j < warmups; j++) {
+					runOnce(n, threads, pool, null);
+				}
+				long[] samples = new long[iterations];
+				long[] contended = new long[1];
+				for (int j = 0; j < iterations; j++) {
+					samples[j] = runOnce(n, threads, pool, contended);
+				}
+				long operations = mode == Mode.SHARED ? (long) threads * n : n;
+				double contention = Double.NaN;
+				if (mode == Mode.SHARED && threadBean.isThreadContentionMonitoringEnabled()) {
+					long total = 0;
+					for (long sample: samples) {
+						total += sample;
+					}
+					contention = contended[0] * 1e6 / ((double) total * threads);
+				}
+				ScalabilityResult.Point point =
+						new ScalabilityResult.Point(threads, samples, operations, contention);
+				result.add(point);
+				System.out.println(threads + " threads, " + point.median() / 1e6 + " ms");
+			} finally {
+				if (pool != null) {
+					pool.shutdown();
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the Timeable once with the given number of threads.
+	 *
+	 * @param contended if not null, milliseconds spent blocked or waiting are added to contended[0]
+	 * @return run time in nanoseconds
+	 */
+	private long runOnce(final int n, int threads, ForkJoinPool pool, long[] contended) {
+		timeable.setup(n);
+		if (mode == Mode.POOL) {
+			long start = System.nanoTime();
+			pool.submit(new Runnable() {
+				public void run() {
+					timeable.timeMe(n);
+				}
+			}).join();
+			return System.nanoTime() - start;
+		}
+
+		final CountDownLatch ready = new CountDownLatch(threads);
+		final CountDownLatch go = new CountDownLatch(1);
+		final long[] waits = new long[threads];
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int index = t;
+			workers[t] = new Thread() {
+				@Override
+				public void run() {
+					ready.countDown();
+					try {
+						go.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					long before = waitedMillis();
+					try {
+						timeable.timeMe(n);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+					waits[index] = waitedMillis() - before;
+				}
+			};
+			workers[t].start();
+		}
+
+		try {
+			ready.await();
+			long start = System.nanoTime();
+			go.countDown();
+			for (Thread worker: workers) {
+				worker.join();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (failure.get() != null) {
+				throw new RuntimeException("timeMe failed", failure.get());
+			}
+			if (contended != null) {
+				for (long wait: waits) {
+					contended[0] += wait;
+				}
+			}
+			return elapsed;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the milliseconds the current thread has spent blocked or
+	 * waiting, or 0 if the JVM doesn't keep track.
+	 */
+	private long waitedMillis() {
+		if (!threadBean.isThreadContentionMonitoringEnabled()) {
+			return 0;
+		}
+		ThreadInfo info = threadBean.getThreadInfo(Thread.currentThread().getId());
+		return Math.max(0, info.getBlockedTime()) + Math.max(0, info.getWaitedTime());
+	}
+
+	/**
+	 * Prints the report and, if there is a display, plots the speedup.
+	 *
+	 * @param result
+	 */
+	public void plotResults(ScalabilityResult result) {
+		System.out.print(result.report());
+
+		if (GraphicsEnvironment.isHeadless()) {
+			System.out.println("No display, so no chart.");
+			return;
+		}
+		ChartRenderer renderer = new ChartRenderer(title);
+		renderer.setDomainLabel("Threads");
+		renderer.plot(result.toThroughputSeries(), "Throughput (ops/s)",
+				result.toSpeedupSeries(), "Speedup");
+	}
+}
@@ -0,0 +1,94 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.allendowney.thinkdast.Profiler.Timeable;
+import com.allendowney.thinkdast.ScalabilityProfiler.Mode;
+
+/**
+ * @author downey
+ *
+ */
+public class ScalabilityProfilerTest {
+
+	/**
+	 * Test method for {@link ScalabilityProfiler#threadCounts(int)}.
+	 */
+	@Test
+	public void testThreadCounts() {
+		assertThat(ScalabilityProfiler.threadCounts(1), is(Arrays.asList(1)));
+		assertThat(ScalabilityProfiler.threadCounts(4), is(Arrays.asList(1, 2, 4)));
+		assertThat(ScalabilityProfiler.threadCounts(6), is(Arrays.asList(1, 2, 4, 6)));
+		try {
+			ScalabilityProfiler.threadCounts(0);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+	}
+
+	/**
+	 * Test method for {@link ScalabilityProfiler#run(int, int)}.
+	 */
+	@Test
+	public void testShared() {
+		final AtomicInteger setups = new AtomicInteger();
+		final AtomicInteger calls = new AtomicInteger();
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		Timeable timeable = new Timeable() {
+			public void setup(int n) {
+				setups.incrementAndGet();
+			}
+
+			public void timeMe(int n) {
+				calls.incrementAndGet();
+				threads.add(Thread.currentThread());
+			}
+		};
+		ScalabilityProfiler profiler = new ScalabilityProfiler("test", timeable, Mode.SHARED);
+		profiler.setWarmups(0);
+		profiler.setIterations(2);
+		ScalabilityResult result = profiler.run(100, 3);
+
+		// 1, 2 and 3 threads, two runs each, and a new thread for each call
+		assertThat(result.getPoints().size(), is(3));
+		assertThat(setups.get(), is(6));
+		assertThat(calls.get(), is(2 * (1 + 2 + 3)));
+		assertThat(threads.size(), is(2 * (1 + 2 + 3)));
+		assertThat(result.getPoints().get(2).getThreads(), is(3));
+		assertThat(result.getPoints().get(2).getOperations(), is(300L));
+	}
+
+	/**
+	 * Test method for {@link ScalabilityProfiler#run(int, int)}.
+	 */
+	@Test
+	public void testPool() {
+		final Set<Integer> parallelism = ConcurrentHashMap.newKeySet();
+		Timeable timeable = new Timeable() {
+			public void setup(int n) {}
+
+			public void timeMe(int n) {
+				parallelism.add(ForkJoinTask.getPool().getParallelism());
+			}
+		};
+		ScalabilityProfiler profiler = new ScalabilityProfiler("test", timeable, Mode.POOL);
+		profiler.setIterations(1);
+		ScalabilityResult result = profiler.run(100, 4);
+
+		// timeMe ran in pools with 1, 2 and 4 threads, and did n operations each time
+		assertThat(new TreeSet<Integer>(parallelism), is(new TreeSet<Integer>(Arrays.asList(1, 2, 4))));
+		for (ScalabilityResult.Point point: result.getPoints()) {
+			assertThat(point.getOperations(), is(100L));
+			assertThat(Double.isNaN(point.contention()), is(true));
+		}
+	}
+}
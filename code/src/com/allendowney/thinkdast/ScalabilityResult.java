@@ -0,0 +1,239 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * Run times measured by ScalabilityProfiler, for a range of thread counts.
+ *
+ * Speedup is throughput relative to the first point, which is normally
+ * one thread, and efficiency is speedup divided by the number of
+ * threads.  The serial fraction is the Karp-Flatt metric: the fraction
+ * of the work that would have to be sequential, under Amdahl's law, to
+ * explain the measured speedup.  If it grows with the number of threads,
+ * the cost is not a fixed sequential part but contention or coordination
+ * that gets worse as threads are added.
+ *
+ */
+public class ScalabilityResult {
+
+	// below this efficiency, or above this fraction of time contended, report contention
+	static final double LOW_EFFICIENCY = 0.5;
+	static final double HIGH_CONTENTION = 0.1;
+
+	/**
+	 * The samples for one thread count.
+	 */
+	public static class Point {
+		private final int threads;
+		private final long[] samples;    // sorted, nanoseconds
+		private final long operations;
+		private final double contention;
+
+		/**
+		 * @param threads
+		 * @param samples run times in nanoseconds
+		 * @param operations operations done in each run, by all threads together
+		 * @param contention fraction of thread time spent blocked or waiting, or NaN if unknown
+		 */
+		public Point(int threads, long[] samples, long operations, double contention) {
+			if (samples.length == 0) {
+				throw new IllegalArgumentException("No samples for " + threads + " threads");
+			}
+			this.threads = threads;
+			this.samples = samples.clone();
+			Arrays.sort(this.samples);
+			this.operations = operations;
+			this.contention = contention;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public long getOperations() {
+			return operations;
+		}
+
+		/**
+		 * Returns the median run time in nanoseconds.
+		 */
+		public double median() {
+			int k = samples.length;
+			return (samples[(k - 1) / 2] + samples[k / 2]) / 2.0;
+		}
+
+		/**
+		 * Returns operations per second, based on the median run time.
+		 */
+		public double throughput() {
+			return operations / (median() / 1e9);
+		}
+
+		public double contention() {
+			return contention;
+		}
+	}
+
+	private final String title;
+	private final int processors;
+	private final List<Point> points = new ArrayList<Point>();
+
+	/**
+	 * @param title
+	 * @param processors number of CPUs the measurements ran on
+	 */
+	public ScalabilityResult(String title, int processors) {
+		this.title = title;
+		this.processors = processors;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public int getProcessors() {
+		return processors;
+	}
+
+	public void add(Point point) {
+		points.add(point);
+	}
+
+	public List<Point> getPoints() {
+		return Collections.unmodifiableList(points);
+	}
+
+	/**
+	 * Returns the throughput of `point` relative to the first point.
+	 *
+	 * @param point
+	 * @return
+	 */
+	public double speedup(Point point) {
+		return point.throughput() / points.get(0).throughput();
+	}
+
+	/**
+	 * Returns speedup divided by the number of threads; 1 is perfect scaling.
+	 *
+	 * @param point
+	 * @return
+	 */
+	public double efficiency(Point point) {
+		return speedup(point) * points.get(0).getThreads() / point.getThreads();
+	}
+
+	/**
+	 * Returns the Karp-Flatt serial fraction, or NaN for a single thread.
+	 *
+	 * @param point
+	 * @return
+	 */
+	public double serialFraction(Point point) {
+		int p = point.getThreads();
+		if (p < 2) {
+			return Double.NaN;
+		}
+		return (1 / speedup(point) - 1.0 / p) / (1 - 1.0 / p);
+	}
+
+	/**
+	 * Returns a short explanation if `point` looks contended, or "".
+	 *
+	 * @param point
+	 * @return
+	 */
+	public String diagnose(Point point) {
+		List<String> notes = new ArrayList<String>();
+		int i = points.indexOf(point);
+		if (i > 0 && point.throughput() < points.get(i - 1).throughput()) {
+			notes.add("slower than " + points.get(i - 1).getThreads() + " threads");
+		}
+		if (point.getThreads() > 1 && efficiency(point) < LOW_EFFICIENCY) {
+			notes.add("low efficiency");
+		}
+		if (point.contention() > HIGH_CONTENTION) {
+			notes.add("contended");
+		}
+		if (point.getThreads() > processors) {
+			notes.add("more threads than CPUs");
+		}
+		return String.join(", ", notes);
+	}
+
+	/**
+	 * Returns throughput in operations per second for each thread count.
+	 *
+	 * @return
+	 */
+	public XYSeries toThroughputSeries() {
+		XYSeries series = new XYSeries("Throughput (ops/s)");
+		for (Point point: points) {
+			series.add(point.getThreads(), point.throughput());
+		}
+		return series;
+	}
+
+	/**
+	 * Returns the speedup for each thread count.
+	 *
+	 * @return
+	 */
+	public XYSeries toSpeedupSeries() {
+		XYSeries series = new XYSeries("Speedup");
+		for (Point point: points) {
+			series.add(point.getThreads(), speedup(point));
+		}
+		return series;
+	}
+
+	/**
+	 * Returns the results as a table, with a note on each row that looks contended.
+	 *
+	 * @return
+	 */
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "%s (%d CPUs)%n", title, processors));
+		sb.append(String.format(Locale.ROOT, "%7s %11s %14s %8s %10s %8s %10s  %s%n",
+				"threads", "median ms", "ops/s", "speedup", "efficiency", "serial", "contention", "notes"));
+		for (Point point: points) {
+			sb.append(String.format(Locale.ROOT, "%7d %11.3f %14.0f %8.2f %10.2f %8s %10s  %s%n",
+					point.getThreads(), point.median() / 1e6, point.throughput(),
+					speedup(point), efficiency(point), percent(serialFraction(point)),
+					percent(point.contention()), diagnose(point)));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the results as CSV, one row per thread count, times in nanoseconds.
+	 *
+	 * @return
+	 */
+	public String toCsv() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("threads,count,median,ops,throughput,speedup,efficiency,serial_fraction,contention\n");
+		for (Point point: points) {
+			sb.append(String.format(Locale.ROOT, "%d,%d,%.1f,%d,%.1f,%.4f,%.4f,%s,%s\n",
+					point.getThreads(), point.samples.length, point.median(),
+					point.getOperations(), point.throughput(), speedup(point),
+					efficiency(point), csv(serialFraction(point)), csv(point.contention())));
+		}
+		return sb.toString();
+	}
+
+	private static String percent(double x) {
+		return Double.isNaN(x) ? "-" : String.format(Locale.ROOT, "%.1f%%", 100 * x);
+	}
+
+	private static String csv(double x) {
+		return Double.isNaN(x) ? "" : String.format(Locale.ROOT, "%.4f", x);
+	}
+}
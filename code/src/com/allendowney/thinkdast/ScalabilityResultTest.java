@@ -0,0 +1,79 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class ScalabilityResultTest {
+
+	private ScalabilityResult result;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		// 1000 operations per thread; 2 threads scale perfectly, 4 threads
+		// take as long as 2, and 8 threads are slower than 4
+		result = new ScalabilityResult("test", 4);
+		result.add(new ScalabilityResult.Point(1, new long[] {1000000, 900000, 1100000}, 1000, 0.0));
+		result.add(new ScalabilityResult.Point(2, new long[] {1000000}, 2000, 0.01));
+		result.add(new ScalabilityResult.Point(4, new long[] {2000000}, 4000, 0.3));
+		result.add(new ScalabilityResult.Point(8, new long[] {8000000}, 8000, 0.5));
+	}
+
+	/**
+	 * Test method for {@link ScalabilityResult#speedup}.
+	 */
+	@Test
+	public void testSpeedup() {
+		ScalabilityResult.Point one = result.getPoints().get(0);
+		ScalabilityResult.Point two = result.getPoints().get(1);
+		ScalabilityResult.Point four = result.getPoints().get(2);
+		assertThat(one.median(), is(1000000.0));
+		assertThat(Math.abs(one.throughput() - 1e6) < 1e-6, is(true));
+		assertThat(result.speedup(one), is(1.0));
+		assertThat(result.speedup(two), is(2.0));
+		assertThat(result.efficiency(two), is(1.0));
+		assertThat(result.efficiency(four), is(0.5));
+
+		// Karp-Flatt: none for perfect scaling, 1/3 for a speedup of 2 on 4 threads
+		assertThat(Double.isNaN(result.serialFraction(one)), is(true));
+		assertThat(result.serialFraction(two), is(0.0));
+		assertThat(Math.abs(result.serialFraction(four) - 1.0 / 3) < 1e-9, is(true));
+	}
+
+	/**
+	 * Test method for {@link ScalabilityResult#diagnose}.
+	 */
+	@Test
+	public void testDiagnose() {
+		assertThat(result.diagnose(result.getPoints().get(0)), is(""));
+		assertThat(result.diagnose(result.getPoints().get(1)), is(""));
+		assertThat(result.diagnose(result.getPoints().get(2)), is("contended"));
+		assertThat(result.diagnose(result.getPoints().get(3)),
+				is("slower than 4 threads, low efficiency, contended, more threads than CPUs"));
+		assertThat(result.report(), containsString("slower than 4 threads"));
+	}
+
+	/**
+	 * Test method for {@link ScalabilityResult#toCsv()}.
+	 */
+	@Test
+	public void testToCsv() {
+		String csv = result.toCsv();
+		assertThat(csv.contains("\r"), is(false));
+		String[] lines = csv.split("\n");
+		assertThat(lines.length, is(5));
+		assertThat(lines[0], is("threads,count,median,ops,throughput,speedup,efficiency,serial_fraction,contention"));
+		assertThat(lines[1], is("1,3,1000000.0,1000,1000000.0,1.0000,1.0000,,0.0000"));
+		assertThat(lines[2].startsWith("2,1,1000000.0,2000,2000000.0,2.0000,1.0000,0.0000,"), is(true));
+		assertThat(result.toSpeedupSeries().getY(2).doubleValue(), is(2.0));
+	}
+}
@@ -18,9 +18,17 @@ import org.jsoup.select.Elements;
  */
 public class TermCounter {
 
+	private static final MetricsRegistry.Counter TERMS =
+			MetricsRegistry.global().counter("termcounter.terms");
+	private static final MetricsRegistry.Histogram PROCESS_NANOS =
+			MetricsRegistry.global().histogram("termcounter.process_ns");
+
 	private Map<String, Integer> map;
 	private String label;
 	private Integer size;
+	// while processElements is tracing, where processTree adds up the
+	// time spent in processText
+	private long[] tokenizeNanos;
 
 	public TermCounter(String label) {
 		this.label = label;
@@ -44,12 +52,32 @@ public class TermCounter {
 	/**
 	 * Takes a collection of Elements and counts their words.
 	 *
+	 * When tracing is on, the time spent in processText is added up as
+	 * "tokenize", and the rest, walking the trees, is "traverse".
+	 *
 	 * @param paragraphs
 	 */
 	public void processElements(Elements paragraphs) {
-		for (Node node: paragraphs) {
-			processTree(node);
+		long start = System.nanoTime();
+		int before = size;
+		Tracer tracer = Tracer.global();
+		boolean tracing = tracer.isEnabled();
+		long[] tokenize = tracing ? new long[1] : null;
+		tokenizeNanos = tokenize;
+		try {
+			for (Node node: paragraphs) {
+				processTree(node);
+			}
+		} finally {
+			tokenizeNanos = null;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (tracing) {
+			tracer.record("traverse", Math.max(0, elapsed - tokenize[0]));
+			tracer.record("tokenize", tokenize[0]);
 		}
+		PROCESS_NANOS.record(elapsed);
+		TERMS.add(size - before);
 	}
 
 	/**
@@ -58,11 +86,23 @@ public class TermCounter {
 	 * @param root
 	 */
 	public void processTree(Node root) {
+		processTree(root, tokenizeNanos);
+	}
+
+	/**
+	 * Finds TextNodes in a DOM tree and counts their words, adding the
+	 * time spent in processText to tokenize[0] unless tokenize is null.
+	 */
+	private void processTree(Node root, long[] tokenize) {
 		// NOTE: we could use select to find the TextNodes, but since
 		// we already have a tree iterator, let's use it.
 		for (Node node: new WikiNodeIterable(root)) {
 			if (node instanceof TextNode) {
+				long start = tokenize == null ? 0 : System.nanoTime();
 				processText(((TextNode) node).text());
+				if (tokenize != null) {
+					tokenize[0] += System.nanoTime() - start;
+				}
 			}
 		}
 	}
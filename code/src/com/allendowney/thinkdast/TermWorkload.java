@@ -0,0 +1,202 @@
+package com.allendowney.thinkdast;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jfree.data.xy.XYSeries;
+import org.jsoup.select.Elements;
+
+/**
+ * The terms in the Wikipedia pages saved in src/resources, as a
+ * workload for benchmarks.
+ *
+ * The pages are tokenized by TermCounter, so the terms are exactly the
+ * keys TermCounter and the indexes put in their maps, including the
+ * empty string TermCounter gets from text that starts with whitespace,
+ * which is the second most common "term".  stream() returns
+ * them in the order they appear; sample() draws any number of them at
+ * random with the frequencies they have in the pages, which, like most
+ * text, roughly follow Zipf's law.
+ *
+ */
+public class TermWorkload {
+
+	public static final String BASE_URL = "https://en.wikipedia.org/wiki/";
+
+	// the pages in src/resources/wiki
+	public static final String[] PAGES = {
+		"Awareness", "Computer_science", "Concurrent_computing", "Consciousness",
+		"Java_(programming_language)", "Knowledge", "Mathematics", "Modern_philosophy",
+		"Philosophy", "Programming_language", "Property_(philosophy)",
+		"Quality_(philosophy)", "Science"
+	};
+
+	private final Map<String, Elements> pages;
+	private final String[] stream;
+	private final String[] vocabulary;    // most frequent first
+	private final int[] counts;           // counts[i] is the count of vocabulary[i]
+	private final long[] cumulative;      // cumulative[i] is counts[0] + ... + counts[i]
+
+	/**
+	 * Tokenizes the given pages.
+	 *
+	 * @param pages map from URL to paragraphs, in the order to read them
+	 */
+	public TermWorkload(Map<String, Elements> pages) {
+		this.pages = Collections.unmodifiableMap(new LinkedHashMap<String, Elements>(pages));
+
+		final List<String> terms = new ArrayList<String>();
+		final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		for (Map.Entry<String, Elements> entry: pages.entrySet()) {
+			// record each term as TermCounter counts it
+			TermCounter counter = new TermCounter(entry.getKey()) {
+				@Override
+				public void incrementTermCount(String term) {
+					terms.add(term);
+					super.incrementTermCount(term);
+				}
+			};
+			counter.processElements(entry.getValue());
+			for (String term: counter.keySet()) {
+				Integer count = frequencies.get(term);
+				frequencies.put(term, (count == null ? 0 : count) + counter.get(term));
+			}
+		}
+		stream = terms.toArray(new String[0]);
+
+		List<Map.Entry<String, Integer>> entries =
+				new ArrayList<Map.Entry<String, Integer>>(frequencies.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+			@Override
+			public int compare(Map.Entry<String, Integer> e1, Map.Entry<String, Integer> e2) {
+				int c = e2.getValue().compareTo(e1.getValue());
+				return c != 0 ? c : e1.getKey().compareTo(e2.getKey());
+			}
+		});
+		vocabulary = new String[entries.size()];
+		counts = new int[entries.size()];
+		cumulative = new long[entries.size()];
+		long total = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			vocabulary[i] = entries.get(i).getKey();
+			counts[i] = entries.get(i).getValue();
+			total += counts[i];
+			cumulative[i] = total;
+		}
+	}
+
+	/**
+	 * Reads and tokenizes all of the pages in src/resources.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public static TermWorkload fromResources() throws IOException {
+		WikiFetcher fetcher = new WikiFetcher();
+		Map<String, Elements> pages = new LinkedHashMap<String, Elements>();
+		for (String page: PAGES) {
+			String url = BASE_URL + page;
+			pages.put(url, fetcher.readWikipedia(url));
+		}
+		return new TermWorkload(pages);
+	}
+
+	/**
+	 * Returns the paragraphs of each page, by URL.
+	 *
+	 * @return
+	 */
+	public Map<String, Elements> pages() {
+		return pages;
+	}
+
+	/**
+	 * Returns every term in every page, in order.
+	 *
+	 * @return a new array
+	 */
+	public String[] stream() {
+		return stream.clone();
+	}
+
+	/**
+	 * Returns the distinct terms, most frequent first.
+	 *
+	 * @return a new array
+	 */
+	public String[] vocabulary() {
+		return vocabulary.clone();
+	}
+
+	/**
+	 * Returns the number of times the term with the given rank appears;
+	 * rank 0 is the most frequent term.
+	 *
+	 * @param rank
+	 * @return
+	 */
+	public int count(int rank) {
+		return counts[rank];
+	}
+
+	/**
+	 * Draws `length` terms at random, each with probability proportional
+	 * to its count, so the result has the frequencies of the real text
+	 * but can be as long as needed.
+	 *
+	 * @param length
+	 * @param seed the same seed gives the same terms
+	 * @return
+	 */
+	public String[] sample(int length, long seed) {
+		Random random = new Random(seed);
+		long total = cumulative[cumulative.length - 1];
+		String[] terms = new String[length];
+		for (int i = 0; i < length; i++) {
+			// find the first rank whose cumulative count exceeds x
+			long x = (long) (random.nextDouble() * total);
+			int k = Arrays.binarySearch(cumulative, x + 1);
+			terms[i] = vocabulary[k < 0 ? -k - 1 : k];
+		}
+		return terms;
+	}
+
+	/**
+	 * Fits a line to log(count) versus log(rank + 1).
+	 *
+	 * For text that follows Zipf's law the slope is close to -1.
+	 *
+	 * @return
+	 */
+	public Profiler.Fit zipfFit() {
+		XYSeries series = new XYSeries("count");
+		for (int i = 0; i < counts.length; i++) {
+			series.add(i + 1, counts[i]);
+		}
+		return Profiler.fit(series);
+	}
+
+	/**
+	 * Prints a summary of the workload.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		TermWorkload workload = fromResources();
+		System.out.println(workload.pages().size() + " pages, " + workload.stream.length
+				+ " terms, " + workload.vocabulary.length + " distinct");
+		System.out.println("Zipf fit: " + workload.zipfFit());
+		for (int i = 0; i < 10 && i < workload.vocabulary.length; i++) {
+			System.out.println(workload.vocabulary[i] + ", " + workload.counts[i]);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.select.Elements;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class TermWorkloadTest {
+
+	private static TermWorkload workload;
+
+	/**
+	 * Reading the pages is slow, so all the tests share one workload.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		workload = TermWorkload.fromResources();
+	}
+
+	/**
+	 * Test method for {@link TermWorkload#stream()}.
+	 */
+	@Test
+	public void testStream() {
+		assertThat(workload.pages().size(), is(TermWorkload.PAGES.length));
+
+		// the counts add up to the length of the stream
+		String[] vocabulary = workload.vocabulary();
+		long total = 0;
+		for (int i = 0; i < vocabulary.length; i++) {
+			total += workload.count(i);
+			if (i > 0) {
+				assertThat(workload.count(i) <= workload.count(i - 1), is(true));
+			}
+		}
+		assertThat(total, is((long) workload.stream().length));
+		assertThat(vocabulary[0], is("the"));
+	}
+
+	/**
+	 * Test method for {@link TermWorkload#TermWorkload(Map)}.
+	 */
+	@Test
+	public void testMatchesTermCounter() {
+		String url = TermWorkload.BASE_URL + "Philosophy";
+		Elements paragraphs = workload.pages().get(url);
+		TermCounter counter = new TermCounter(url);
+		counter.processElements(paragraphs);
+
+		Map<String, Elements> pages = new LinkedHashMap<String, Elements>();
+		pages.put(url, paragraphs);
+		TermWorkload single = new TermWorkload(pages);
+		assertThat(single.stream().length, is(counter.size()));
+		String[] vocabulary = single.vocabulary();
+		assertThat(vocabulary.length, is(counter.keySet().size()));
+		for (int i = 0; i < vocabulary.length; i++) {
+			assertThat(single.count(i), is(counter.get(vocabulary[i])));
+		}
+	}
+
+	/**
+	 * Test method for {@link TermWorkload#sample(int, long)}.
+	 */
+	@Test
+	public void testSample() {
+		String[] sample = workload.sample(100000, 17);
+		assertThat(Arrays.equals(sample, workload.sample(100000, 17)), is(true));
+
+		Set<String> vocabulary = new HashSet<String>(Arrays.asList(workload.vocabulary()));
+		int the = 0;
+		for (String term: sample) {
+			assertThat(vocabulary.contains(term), is(true));
+			if (term.equals("the")) {
+				the++;
+			}
+		}
+		// "the" should come up about as often as in the pages
+		double expected = (double) workload.count(0) / workload.stream().length;
+		assertThat(Math.abs((double) the / sample.length - expected) < 0.005, is(true));
+	}
+
+	/**
+	 * Test method for {@link TermWorkload#zipfFit()}.
+	 */
+	@Test
+	public void testZipfFit() {
+		double slope = workload.zipfFit().getSlope();
+		assertThat(slope > -1.5 && slope < -0.5, is(true));
+	}
+}
@@ -0,0 +1,215 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * Keeps track of the k largest elements seen so far.
+ *
+ * Elements are offered one at a time, so the input can be an Iterator or
+ * a Stream that is never stored anywhere.  The accumulator holds at most
+ * k elements in a min-heap whose root is the smallest of the current top
+ * k; a new element only gets in if it beats the root.  That takes O(k)
+ * memory and O(n log k) time.  The heap starts small and doubles as
+ * elements arrive, so a k much bigger than the input costs no more than
+ * the input itself.
+ *
+ * Accumulators built by separate threads can be combined with merge,
+ * and collector() packages all of this for parallel Streams.
+ *
+ * @param <T>
+ */
+public class TopK<T> implements Consumer<T> {
+	// the heap starts with room for this many, or k if that is smaller
+	static final int INITIAL_CAPACITY = 16;
+
+	private final int k;
+	private final Comparator<? super T> comparator;
+	private Object[] heap;
+	private int size;
+
+	/**
+	 * Makes an accumulator for the `k` largest elements according to `comparator`.
+	 *
+	 * @param k
+	 * @param comparator
+	 */
+	public TopK(int k, Comparator<? super T> comparator) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Illegal k: " + k);
+		}
+		this.k = k;
+		this.comparator = comparator;
+		this.heap = new Object[Math.min(k, INITIAL_CAPACITY)];
+	}
+
+	/**
+	 * Returns a Collector that gathers the `k` largest elements of a Stream
+	 * into a List in ascending order.
+	 *
+	 * @param k
+	 * @param comparator
+	 * @return
+	 */
+	public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> comparator) {
+		return Collector.of(
+				() -> new TopK<T>(k, comparator),
+				TopK::offer,
+				TopK::merge,
+				TopK::toList);
+	}
+
+	/**
+	 * Considers an element for the top k.
+	 *
+	 * @param element
+	 * @return true if the element is (for now) one of the top k
+	 */
+	public boolean offer(T element) {
+		if (size < k) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, (int) Math.min(k, 2L * heap.length));
+			}
+			siftUp(size++, element);
+			return true;
+		}
+		if (k == 0 || comparator.compare(element, root()) <= 0) {
+			return false;
+		}
+		siftDown(0, element);
+		return true;
+	}
+
+	@Override
+	public void accept(T element) {
+		offer(element);
+	}
+
+	/**
+	 * Offers every element from an Iterator.
+	 *
+	 * @param iterator
+	 */
+	public void offerAll(Iterator<? extends T> iterator) {
+		while (iterator.hasNext()) {
+			offer(iterator.next());
+		}
+	}
+
+	/**
+	 * Offers every element of an Iterable.
+	 *
+	 * @param elements
+	 */
+	public void offerAll(Iterable<? extends T> elements) {
+		offerAll(elements.iterator());
+	}
+
+	/**
+	 * Adds the elements kept by another accumulator to this one.
+	 *
+	 * @param that an accumulator with the same k and comparator
+	 * @return this
+	 */
+	@SuppressWarnings("unchecked")
+	public TopK<T> merge(TopK<? extends T> that) {
+		for (int i = 0; i < that.size; i++) {
+			offer((T) that.heap[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the number of elements kept, which is at most k.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the smallest of the top k, or null if nothing has been offered.
+	 *
+	 * @return
+	 */
+	public T peek() {
+		return size == 0 ? null : root();
+	}
+
+	/**
+	 * Returns the top k elements in ascending order.
+	 *
+	 * The accumulator is unchanged, so more elements can be offered later.
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> toList() {
+		T[] sorted = (T[]) Arrays.copyOf(heap, size);
+		Arrays.sort(sorted, comparator);
+		return new ArrayList<T>(Arrays.asList(sorted));
+	}
+
+	@SuppressWarnings("unchecked")
+	private T root() {
+		return (T) heap[0];
+	}
+
+	@SuppressWarnings("unchecked")
+	private T elementAt(int i) {
+		return (T) heap[i];
+	}
+
+	/**
+	 * Puts `element` in the hole at `i`, moving parents down until it fits.
+	 */
+	private void siftUp(int i, T element) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			T p = elementAt(parent);
+			if (comparator.compare(element, p) >= 0) {
+				break;
+			}
+			heap[i] = p;
+			i = parent;
+		}
+		heap[i] = element;
+	}
+
+	/**
+	 * Puts `element` in the hole at `i`, moving smaller children up until it fits.
+	 */
+	private void siftDown(int i, T element) {
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			T c = elementAt(child);
+			int right = child + 1;
+			if (right < size && comparator.compare(c, elementAt(right)) > 0) {
+				child = right;
+				c = elementAt(child);
+			}
+			if (comparator.compare(element, c) <= 0) {
+				break;
+			}
+			heap[i] = c;
+			i = child;
+		}
+		heap[i] = element;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		TopK<Integer> top = new TopK<Integer>(3, Comparator.<Integer>naturalOrder());
+		top.offerAll(Arrays.asList(6, 3, 5, 8, 1, 4, 2, 7));
+		System.out.println(top.toList());
+	}
+}
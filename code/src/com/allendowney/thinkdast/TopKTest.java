@@ -0,0 +1,145 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class TopKTest {
+
+	private TopK<Integer> top;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		top = new TopK<Integer>(4, Comparator.<Integer>naturalOrder());
+	}
+
+	/**
+	 * Test method for {@link TopK#offer(java.lang.Object)}.
+	 */
+	@Test
+	public void testOffer() {
+		assertThat(top.peek(), nullValue());
+		for (int i: Arrays.asList(6, 3, 5, 8)) {
+			assertThat(top.offer(i), is(true));
+		}
+		assertThat(top.peek(), is(3));
+		assertThat(top.offer(1), is(false));
+		assertThat(top.offer(7), is(true));
+		assertThat(top.size(), is(4));
+		assertThat(top.toList(), is(Arrays.asList(5, 6, 7, 8)));
+
+		// toList doesn't use up the accumulator
+		top.offer(9);
+		assertThat(top.toList(), is(Arrays.asList(6, 7, 8, 9)));
+	}
+
+	/**
+	 * Test method for {@link TopK#offerAll(java.util.Iterator)}.
+	 */
+	@Test
+	public void testOfferAll() {
+		List<Integer> list = randomList(10000);
+		top = new TopK<Integer>(100, Comparator.<Integer>naturalOrder());
+		top.offerAll(list.iterator());
+
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected);
+		assertThat(top.toList(), is(expected.subList(9900, 10000)));
+
+		// fewer elements than k
+		top = new TopK<Integer>(10, Comparator.<Integer>naturalOrder());
+		top.offerAll(Arrays.asList(2, 1));
+		assertThat(top.toList(), is(Arrays.asList(1, 2)));
+
+		top = new TopK<Integer>(0, Comparator.<Integer>naturalOrder());
+		top.offerAll(Arrays.asList(2, 1));
+		assertThat(top.size(), is(0));
+	}
+
+	/**
+	 * Checks that a k much bigger than the input doesn't allocate k slots.
+	 */
+	@Test
+	public void testHugeK() {
+		int k = Integer.MAX_VALUE - 8;
+		top = new TopK<Integer>(k, Comparator.<Integer>naturalOrder());
+		top.offerAll(Arrays.asList(3, 1, 2));
+		assertThat(top.toList(), is(Arrays.asList(1, 2, 3)));
+
+		// enough to grow the heap several times
+		List<Integer> list = randomList(1000);
+		top = new TopK<Integer>(k, Comparator.<Integer>naturalOrder());
+		top.offerAll(list);
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected);
+		assertThat(top.toList(), is(expected));
+
+		List<Integer> actual = randomList(100000).parallelStream()
+				.collect(TopK.collector(k, Comparator.<Integer>naturalOrder()));
+		assertThat(actual.size(), is(100000));
+
+		ListSorter<Integer> sorter = new ListSorter<Integer>();
+		assertThat(sorter.topK(k, Arrays.asList(3, 1, 2), Comparator.<Integer>naturalOrder()),
+				is(Arrays.asList(1, 2, 3)));
+	}
+
+	/**
+	 * Test method for {@link TopK#merge(TopK)}.
+	 */
+	@Test
+	public void testMerge() {
+		TopK<Integer> other = new TopK<Integer>(4, Comparator.<Integer>naturalOrder());
+		top.offerAll(Arrays.asList(1, 9, 3, 7, 5));
+		other.offerAll(Arrays.asList(2, 8, 4, 6, 10));
+		assertThat(top.merge(other).toList(), is(Arrays.asList(7, 8, 9, 10)));
+	}
+
+	/**
+	 * Test method for {@link TopK#collector(int, java.util.Comparator)}.
+	 */
+	@Test
+	public void testCollector() {
+		List<Integer> list = randomList(100000);
+		List<Integer> expected = new ArrayList<Integer>(list);
+		Collections.sort(expected);
+
+		List<Integer> actual = list.parallelStream()
+				.collect(TopK.collector(10, Comparator.<Integer>naturalOrder()));
+		assertThat(actual, is(expected.subList(99990, 100000)));
+
+		List<Integer> numbers = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+		List<Integer> bottom = numbers.stream()
+				.collect(TopK.collector(3, Comparator.<Integer>reverseOrder()));
+		assertThat(bottom, is(Arrays.asList(2, 1, 0)));
+	}
+
+	/**
+	 * Makes a list of random Integers, the same every time.
+	 */
+	private List<Integer> randomList(int n) {
+		Random random = new Random(n);
+		List<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			list.add(random.nextInt());
+		}
+		return list;
+	}
+}
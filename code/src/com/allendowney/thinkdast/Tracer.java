@@ -0,0 +1,375 @@
+package com.allendowney.thinkdast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records how long each stage of a crawl or a search takes.
+ *
+ * Code marks a stage with a span:
+ *
+ *   try (Tracer.Span span = Tracer.global().start("fetch")) {
+ *       ...
+ *   }
+ *
+ * A span started while another is open on the same thread is its child,
+ * so spans form a tree per operation, and each one is known by its path
+ * from the root, like "crawl;index;count".  Finished spans go in a ring
+ * buffer that keeps the most recent `capacity` of them; older ones are
+ * overwritten, so tracing can stay on for a long crawl in fixed memory.
+ *
+ * summary() adds up the spans in the buffer by path and prints them as a
+ * tree, with the total and self time of each stage: self time is the
+ * part not spent in a child, which is where the time actually went.
+ * toFolded() prints the same thing in the "folded stacks" format that
+ * flame graph tools read, one line per path with its self time in
+ * microseconds.
+ *
+ * A span costs two calls to System.nanoTime and an allocation, so spans
+ * belong around stages that take microseconds or more, not around every
+ * term.  For a stage made of many small pieces, code can add up the time
+ * itself and hand the total to record.  When the tracer is disabled,
+ * start returns a span that does nothing, and record does nothing.
+ *
+ */
+public class Tracer {
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final Tracer GLOBAL = new Tracer(DEFAULT_CAPACITY);
+
+	/**
+	 * Returns the tracer the crawler, indexer and search code use.
+	 *
+	 * @return
+	 */
+	public static Tracer global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * One stage of an operation; closing it records how long it took.
+	 */
+	public static class Span implements AutoCloseable {
+		private final Tracer tracer;
+		private final Span parent;
+		private final String name;
+		private final String path;
+		private final long start;
+		private long duration = -1;
+
+		private Span(Tracer tracer, Span parent, String name) {
+			this(tracer, parent, name, System.nanoTime());
+		}
+
+		private Span(Tracer tracer, Span parent, String name, long start) {
+			this.tracer = tracer;
+			this.parent = parent;
+			this.name = name;
+			this.path = parent == null ? name : parent.path + ";" + name;
+			this.start = start;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the names of this span and its ancestors, root first, separated by ";".
+		 *
+		 * @return
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Returns the value of System.nanoTime when the span started.
+		 *
+		 * @return
+		 */
+		public long getStart() {
+			return start;
+		}
+
+		/**
+		 * Returns how long the span took, in nanoseconds, or -1 if it is still open.
+		 *
+		 * @return
+		 */
+		public long getDuration() {
+			return duration;
+		}
+
+		/**
+		 * Ends the span; closing it again does nothing.
+		 */
+		@Override
+		public void close() {
+			if (tracer == null || duration >= 0) {
+				return;
+			}
+			duration = System.nanoTime() - start;
+			tracer.finish(this);
+		}
+
+		@Override
+		public String toString() {
+			return path + " " + duration + " ns";
+		}
+	}
+
+	// returned by start when the tracer is disabled
+	private static final Span NOOP = new Span(null, null, "");
+
+	private final AtomicReferenceArray<Span> buffer;
+	private final AtomicLong next = new AtomicLong();
+	private final ThreadLocal<Span> current = new ThreadLocal<Span>();
+	private volatile boolean enabled = true;
+
+	/**
+	 * Makes a tracer that keeps the most recent `capacity` spans.
+	 *
+	 * @param capacity
+	 */
+	public Tracer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		buffer = new AtomicReferenceArray<Span>(capacity);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns tracing on or off; spans that are already open are still recorded.
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Starts a span, as a child of the span open on this thread, if any.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Span start(String name) {
+		if (!enabled) {
+			return NOOP;
+		}
+		Span span = new Span(this, current.get(), name);
+		current.set(span);
+		return span;
+	}
+
+	/**
+	 * Records a finished span that took `duration` nanoseconds, as a
+	 * child of the span open on this thread, if any.  Its start is taken
+	 * to be `duration` before now.
+	 *
+	 * @param name
+	 * @param duration
+	 */
+	public void record(String name, long duration) {
+		if (!enabled) {
+			return;
+		}
+		if (duration < 0) {
+			throw new IllegalArgumentException("Illegal duration: " + duration);
+		}
+		Span span = new Span(this, current.get(), name, System.nanoTime() - duration);
+		span.duration = duration;
+		add(span);
+	}
+
+	private void finish(Span span) {
+		// normally span is the current span, but if a child was never
+		// closed, closing the parent closes the child's scope too
+		current.set(span.parent);
+		add(span);
+	}
+
+	private void add(Span span) {
+		long i = next.getAndIncrement();
+		buffer.set((int) (i % buffer.length()), span);
+	}
+
+	/**
+	 * Returns the spans in the buffer, in the order they finished.
+	 *
+	 * @return
+	 */
+	public List<Span> spans() {
+		long end = next.get();
+		List<Span> spans = new ArrayList<Span>();
+		for (long i = Math.max(0, end - buffer.length()); i < end; i++) {
+			Span span = buffer.get((int) (i % buffer.length()));
+			if (span != null) {
+				spans.add(span);
+			}
+		}
+		return spans;
+	}
+
+	/**
+	 * Removes all spans from the buffer.
+	 */
+	public void clear() {
+		for (int i = 0; i < buffer.length(); i++) {
+			buffer.set(i, null);
+		}
+	}
+
+	/**
+	 * Total and self time, in nanoseconds, and number of spans for one path.
+	 */
+	static class Stage {
+		final String path;
+		long count;
+		long total;
+		long children;
+
+		Stage(String path) {
+			this.path = path;
+		}
+
+		long self() {
+			// a child can outlive its parent in the buffer
+			return Math.max(0, total - children);
+		}
+
+		int depth() {
+			int depth = 0;
+			for (int i = 0; i < path.length(); i++) {
+				if (path.charAt(i) == ';') {
+					depth++;
+				}
+			}
+			return depth;
+		}
+	}
+
+	/**
+	 * Adds up the spans in the buffer by path.
+	 *
+	 * @return map from path to Stage, in the order the paths first finished
+	 */
+	Map<String, Stage> stages() {
+		Map<String, Stage> stages = new LinkedHashMap<String, Stage>();
+		for (Span span: spans()) {
+			Stage stage = stages.get(span.path);
+			if (stage == null) {
+				stage = new Stage(span.path);
+				stages.put(span.path, stage);
+			}
+			stage.count++;
+			stage.total += span.duration;
+		}
+		for (Stage stage: stages.values()) {
+			int i = stage.path.lastIndexOf(';');
+			if (i >= 0) {
+				Stage parent = stages.get(stage.path.substring(0, i));
+				if (parent != null) {
+					parent.children += stage.total;
+				}
+			}
+		}
+		return stages;
+	}
+
+	/**
+	 * Returns the stages as an indented tree, children under their
+	 * parents and biggest first, with times in milliseconds and each
+	 * stage's share of the total time of its root.
+	 *
+	 * @return
+	 */
+	public String summary() {
+		final Map<String, Stage> stages = stages();
+		List<Stage> sorted = new ArrayList<Stage>(stages.values());
+		// sorting by the totals of each ancestor in turn puts children
+		// right after their parents, biggest first
+		Collections.sort(sorted, new Comparator<Stage>() {
+			@Override
+			public int compare(Stage s1, Stage s2) {
+				String[] p1 = s1.path.split(";");
+				String[] p2 = s2.path.split(";");
+				String prefix1 = "";
+				String prefix2 = "";
+				for (int i = 0; i < Math.min(p1.length, p2.length); i++) {
+					prefix1 = i == 0 ? p1[0] : prefix1 + ";" + p1[i];
+					prefix2 = i == 0 ? p2[0] : prefix2 + ";" + p2[i];
+					if (!prefix1.equals(prefix2)) {
+						int c = Long.compare(total(stages, prefix2), total(stages, prefix1));
+						return c != 0 ? c : prefix1.compareTo(prefix2);
+					}
+				}
+				return Integer.compare(p1.length, p2.length);
+			}
+		});
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "%-40s %6s %10s %7s %10s%n",
+				"stage", "count", "total ms", "%", "self ms"));
+		for (Stage stage: sorted) {
+			String root = stage.path.split(";")[0];
+			long rootTotal = total(stages, root);
+			StringBuilder label = new StringBuilder();
+			for (int i = 0; i < stage.depth(); i++) {
+				label.append("  ");
+			}
+			label.append(stage.path.substring(stage.path.lastIndexOf(';') + 1));
+			sb.append(String.format(Locale.ROOT, "%-40s %6d %10.3f %6.1f%% %10.3f%n",
+					label, stage.count, stage.total / 1e6,
+					rootTotal == 0 ? 0.0 : 100.0 * stage.total / rootTotal, stage.self() / 1e6));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the total of a path, or, for a path whose spans have all
+	 * been overwritten, the total of its children.
+	 */
+	private static long total(Map<String, Stage> stages, String path) {
+		Stage stage = stages.get(path);
+		if (stage != null) {
+			return stage.total;
+		}
+		long total = 0;
+		for (Stage s: stages.values()) {
+			if (s.path.startsWith(path + ";") && s.path.indexOf(';', path.length() + 1) < 0) {
+				total += s.total;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Returns one line per path with its self time in microseconds, in
+	 * the folded format flame graph tools read.
+	 *
+	 * @return
+	 */
+	public String toFolded() {
+		StringBuilder sb = new StringBuilder();
+		for (Stage stage: stages().values()) {
+			long micros = stage.self() / 1000;
+			if (micros > 0) {
+				sb.append(stage.path).append(' ').append(micros).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+}
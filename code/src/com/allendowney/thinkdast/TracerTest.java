@@ -0,0 +1,178 @@
+package com.allendowney.thinkdast;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Elements;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author downey
+ *
+ */
+public class TracerTest {
+
+	private Tracer tracer;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		tracer = new Tracer(8);
+	}
+
+	/**
+	 * Test method for {@link Tracer#start(String)}.
+	 */
+	@Test
+	public void testStart() {
+		try (Tracer.Span root = tracer.start("crawl")) {
+			try (Tracer.Span child = tracer.start("fetch")) {
+				assertThat(child.getPath(), is("crawl;fetch"));
+				try (Tracer.Span grandchild = tracer.start("sleep")) {
+					assertThat(grandchild.getPath(), is("crawl;fetch;sleep"));
+				}
+			}
+			try (Tracer.Span child = tracer.start("index")) {
+				assertThat(child.getPath(), is("crawl;index"));
+				assertThat(child.getDuration(), is(-1L));
+			}
+		}
+		try (Tracer.Span root = tracer.start("search")) {
+			assertThat(root.getPath(), is("search"));
+		}
+
+		List<String> paths = new ArrayList<String>();
+		for (Tracer.Span span: tracer.spans()) {
+			paths.add(span.getPath());
+			assertTrue(span.getDuration() >= 0);
+		}
+		assertThat(paths.toString(), is("[crawl;fetch;sleep, crawl;fetch, crawl;index, crawl, search]"));
+	}
+
+	/**
+	 * Test method for {@link Tracer#record(String, long)}.
+	 */
+	@Test
+	public void testRecord() {
+		try (Tracer.Span root = tracer.start("count")) {
+			tracer.record("tokenize", 3000000);
+			try (Tracer.Span child = tracer.start("index")) {
+				assertThat(child.getPath(), is("count;index"));
+			}
+		}
+		tracer.record("loose", 1000);
+		Map<String, Tracer.Stage> stages = tracer.stages();
+		assertThat(stages.keySet().toString(), is("[count;tokenize, count;index, count, loose]"));
+		assertThat(stages.get("count;tokenize").total, is(3000000L));
+		assertThat(stages.get("loose").total, is(1000L));
+
+		try {
+			tracer.record("negative", -1);
+			fail();
+		} catch (IllegalArgumentException e) {} // good
+
+		tracer.setEnabled(false);
+		tracer.record("disabled", 1000);
+		assertThat(tracer.stages().containsKey("disabled"), is(false));
+	}
+
+	/**
+	 * Test method for {@link Tracer#setEnabled(boolean)}.
+	 */
+	@Test
+	public void testDisabled() {
+		tracer.setEnabled(false);
+		try (Tracer.Span span = tracer.start("crawl")) {
+			assertThat(span.getDuration(), is(-1L));
+		}
+		assertThat(tracer.spans().isEmpty(), is(true));
+		assertThat(tracer.summary(), not(containsString("crawl")));
+	}
+
+	/**
+	 * Test method for {@link Tracer#spans()}.
+	 */
+	@Test
+	public void testRingBuffer() {
+		for (int i = 0; i < 20; i++) {
+			tracer.start("span" + i).close();
+		}
+		List<Tracer.Span> spans = tracer.spans();
+		assertThat(spans.size(), is(8));
+		assertThat(spans.get(0).getName(), is("span12"));
+		assertThat(spans.get(7).getName(), is("span19"));
+
+		tracer.clear();
+		assertThat(tracer.spans().isEmpty(), is(true));
+	}
+
+	/**
+	 * Test method for {@link Tracer#summary()} and {@link Tracer#toFolded()}.
+	 */
+	@Test
+	public void testSummary() throws InterruptedException {
+		try (Tracer.Span root = tracer.start("crawl")) {
+			try (Tracer.Span child = tracer.start("fetch")) {
+				Thread.sleep(20);
+			}
+			try (Tracer.Span child = tracer.start("index")) {
+				Thread.sleep(5);
+			}
+		}
+		Map<String, Tracer.Stage> stages = tracer.stages();
+		Tracer.Stage crawl = stages.get("crawl");
+		Tracer.Stage fetch = stages.get("crawl;fetch");
+		Tracer.Stage index = stages.get("crawl;index");
+		assertThat(crawl.children, is(fetch.total + index.total));
+		assertTrue(fetch.total >= 20000000);
+		assertThat(fetch.self(), is(fetch.total));
+
+		// biggest child first, right after its parent
+		String[] lines = tracer.summary().split("\n");
+		assertThat(lines.length, is(4));
+		assertThat(lines[1], startsWith("crawl "));
+		assertThat(lines[2], startsWith("  fetch "));
+		assertThat(lines[3], startsWith("  index "));
+
+		String folded = tracer.toFolded();
+		assertThat(folded, containsString("crawl;fetch " + fetch.total / 1000 + "\n"));
+		assertThat(folded, containsString("crawl;index " + index.total / 1000 + "\n"));
+	}
+
+	/**
+	 * Checks that TermCounter traces finding the text and counting the terms separately.
+	 */
+	@Test
+	public void testTermCounter() throws IOException {
+		Elements paragraphs = new WikiFetcher().readWikipedia(TermWorkload.BASE_URL + "Philosophy");
+		Tracer global = Tracer.global();
+		global.clear();
+		try (Tracer.Span span = global.start("count")) {
+			new TermCounter("Philosophy").processElements(paragraphs);
+		}
+		Map<String, Tracer.Stage> stages = global.stages();
+		assertThat(stages.keySet().toString(), is("[count;traverse, count;tokenize, count]"));
+
+		// processElements still goes through processTree
+		final List<Node> trees = new ArrayList<Node>();
+		TermCounter counter = new TermCounter("Philosophy") {
+			@Override
+			public void processTree(Node root) {
+				trees.add(root);
+				super.processTree(root);
+			}
+		};
+		counter.processElements(paragraphs);
+		assertThat(trees.size(), is(paragraphs.size()));
+		assertTrue(counter.size() > 0);
+	}
+}
@@ -3,6 +3,7 @@ package com.allendowney.thinkdast;
 import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
@@ -21,7 +22,7 @@ public class WikiCrawler {
 	private JedisIndex index;
 
 	// queue of URLs to be indexed
-	private Queue<String> queue = new LinkedList<String>();
+	private Queue<String> queue;
 
 	// fetcher used to get pages from Wikipedia
 	final static WikiFetcher wf = new WikiFetcher();
@@ -33,8 +34,27 @@ public class WikiCrawler {
 	 * @param index
 	 */
 	public WikiCrawler(String source, JedisIndex index) {
+		this(source, index, new MyArrayDeque<String>());
+	}
+
+	/**
+	 * Constructor for a crawler whose queue holds at most `maxQueueSize` URLs.
+	 *
+	 * When the queue is full, links from further pages are dropped until
+	 * the queue drains.
+	 *
+	 * @param source
+	 * @param index
+	 * @param maxQueueSize
+	 */
+	public WikiCrawler(String source, JedisIndex index, int maxQueueSize) {
+		this(source, index, new MyBoundedDeque<String>(maxQueueSize));
+	}
+
+	private WikiCrawler(String source, JedisIndex index, Queue<String> queue) {
 		this.source = source;
 		this.index = index;
+		this.queue = queue;
 		queue.offer(source);
 	}
 
@@ -60,22 +80,29 @@ public class WikiCrawler {
 		}
 		String url = queue.poll();
 
-		Elements paragraphs;
-		if (testing) {
-			paragraphs = wf.readWikipedia(url);
-		} else {
-			// If already indexed, return null
-			if (index.isIndexed(url)) {
-				return null;
-			}
+		Tracer tracer = Tracer.global();
+		try (Tracer.Span span = tracer.start("crawl")) {
+			Elements paragraphs;
+			if (testing) {
+				paragraphs = wf.readWikipedia(url);
+			} else {
+				// If already indexed, return null
+				try (Tracer.Span check = tracer.start("isIndexed")) {
+					if (index.isIndexed(url)) {
+						return null;
+					}
+				}
 
-			paragraphs = wf.fetchWikipedia(url);
-		}
+				paragraphs = wf.fetchWikipedia(url);
+			}
 
-		index.indexPage(url, paragraphs);
-		queueInternalLinks(paragraphs);
+			index.indexPage(url, paragraphs);
+			try (Tracer.Span links = tracer.start("queueLinks")) {
+				queueInternalLinks(paragraphs);
+			}
 
-		return url;
+			return url;
+		}
 	}
 
 	/**
@@ -129,7 +156,10 @@ public class WikiCrawler {
 					continue;
 				}
 
-				queue.add("https://en.wikipedia.org" + element.attr("href"));
+				// if the queue is full, don't bother with the rest of the links
+				if (!queue.offer("https://en.wikipedia.org" + element.attr("href"))) {
+					return;
+				}
 			} else if (node instanceof TextNode) {
 				TextNode textNode = (TextNode) node;
 				for (Character c: textNode.text().toCharArray()) {
@@ -149,8 +179,17 @@ public class WikiCrawler {
 		jedis.flushAll();
 		JedisIndex index = new JedisIndex(jedis);
 		String source = "https://en.wikipedia.org/wiki/Java_(programming_language)";
-		WikiCrawler wc = new WikiCrawler(source, index);
-		
+		final WikiCrawler wc = new WikiCrawler(source, index);
+
+		// print pages, terms and latencies every 10 seconds while crawling
+		MetricsRegistry metrics = MetricsRegistry.global();
+		metrics.gauge("crawler.queue", new MetricsRegistry.Gauge() {
+			public double value() {
+				return wc.queueSize();
+			}
+		});
+		metrics.startReporter(10, TimeUnit.SECONDS, System.out, false);
+
 		// for testing purposes, load up the queue
 		Elements paragraphs = wf.fetchWikipedia(source);
 		wc.queueInternalLinks(paragraphs);
@@ -166,5 +205,7 @@ public class WikiCrawler {
 		for (Entry<String, Integer> entry: map.entrySet()) {
 			System.out.println(entry);
 		}
+		System.out.print(metrics.toText());
+		System.out.print(Tracer.global().summary());
 	}
 }
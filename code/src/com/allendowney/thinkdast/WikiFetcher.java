@@ -13,6 +13,17 @@ import org.jsoup.select.Elements;
 
 
 public class WikiFetcher {
+	private static final MetricsRegistry.Counter PAGES =
+			MetricsRegistry.global().counter("fetcher.pages");
+	private static final MetricsRegistry.Counter PARAGRAPHS =
+			MetricsRegistry.global().counter("fetcher.paragraphs");
+	private static final MetricsRegistry.Histogram FETCH_NANOS =
+			MetricsRegistry.global().histogram("fetcher.fetch_ns");
+	private static final MetricsRegistry.Histogram SLEEP_NANOS =
+			MetricsRegistry.global().histogram("fetcher.sleep_ns");
+	private static final MetricsRegistry.Histogram READ_NANOS =
+			MetricsRegistry.global().histogram("fetcher.read_ns");
+
 	private long lastRequestTime = -1;
 	private long minInterval = 1000;
 
@@ -24,18 +35,38 @@ public class WikiFetcher {
 	 * @throws IOException
 	 */
 	public Elements fetchWikipedia(String url) throws IOException {
-		sleepIfNeeded();
+		Tracer tracer = Tracer.global();
+		try (Tracer.Span span = tracer.start("fetch")) {
+			long start = System.nanoTime();
+			try (Tracer.Span sleep = tracer.start("sleep")) {
+				sleepIfNeeded();
+			}
+			SLEEP_NANOS.recordSince(start);
 
-		// download and parse the document
-		Connection conn = Jsoup.connect(url);
-		Document doc = conn.get();
+			// download and parse the document, separately so they can be traced
+			start = System.nanoTime();
+			Connection.Response response;
+			try (Tracer.Span download = tracer.start("download")) {
+				response = Jsoup.connect(url).execute();
+			}
+			Document doc;
+			try (Tracer.Span parse = tracer.start("parse")) {
+				doc = response.parse();
+			}
 
-		// select the content text and pull out the paragraphs.
-		Element content = doc.getElementById("mw-content-text");
+			// select the content text and pull out the paragraphs.
+			Elements paras;
+			try (Tracer.Span select = tracer.start("select")) {
+				Element content = doc.getElementById("mw-content-text");
 
-		// TODO: avoid selecting paragraphs from sidebars and boxouts
-		Elements paras = content.select("p");
-		return paras;
+				// TODO: avoid selecting paragraphs from sidebars and boxouts
+				paras = content.select("p");
+			}
+			FETCH_NANOS.recordSince(start);
+			PAGES.increment();
+			PARAGRAPHS.add(paras.size());
+			return paras;
+		}
 	}
 
 	/**
@@ -46,20 +77,33 @@ public class WikiFetcher {
 	 * @throws IOException
 	 */
 	public Elements readWikipedia(String url) throws IOException {
-		URL realURL = new URL(url);
+		Tracer tracer = Tracer.global();
+		try (Tracer.Span span = tracer.start("read")) {
+			long start = System.nanoTime();
+			URL realURL = new URL(url);
 
-		// assemble the file name
-		String slash = File.separator;
-		String filename = "resources" + realURL.getPath();
+			// assemble the file name
+			String slash = File.separator;
+			String filename = "resources" + realURL.getPath();
 
-		// read the file
-		InputStream stream = WikiFetcher.class.getClassLoader().getResourceAsStream(filename);
-		Document doc = Jsoup.parse(stream, "UTF-8", filename);
+			// read the file
+			InputStream stream = WikiFetcher.class.getClassLoader().getResourceAsStream(filename);
+			Document doc;
+			try (Tracer.Span parse = tracer.start("parse")) {
+				doc = Jsoup.parse(stream, "UTF-8", filename);
+			}
 
-		// parse the contents of the file
-		Element content = doc.getElementById("mw-content-text");
-		Elements paras = content.select("p");
-		return paras;
+			// parse the contents of the file
+			Elements paras;
+			try (Tracer.Span select = tracer.start("select")) {
+				Element content = doc.getElementById("mw-content-text");
+				paras = content.select("p");
+			}
+			READ_NANOS.recordSince(start);
+			PAGES.increment();
+			PARAGRAPHS.add(paras.size());
+			return paras;
+		}
 	}
 
 	/**
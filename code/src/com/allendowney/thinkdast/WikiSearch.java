@@ -13,6 +13,13 @@ import redis.clients.jedis.Jedis;
  */
 public class WikiSearch {
 
+	private static final MetricsRegistry.Counter QUERIES =
+			MetricsRegistry.global().counter("search.queries");
+	private static final MetricsRegistry.Counter RESULTS =
+			MetricsRegistry.global().counter("search.results");
+	private static final MetricsRegistry.Histogram SEARCH_NANOS =
+			MetricsRegistry.global().histogram("search.latency_ns");
+
 	// map from URLs that contain the term(s) to relevance score
 	private Map<String, Integer> map;
 
@@ -113,12 +120,27 @@ public class WikiSearch {
 	 * @return List of entries with URL and relevance.
 	 */
 	public List<Entry<String, Integer>> sort() {
-		List<Entry<String, Integer>> list = new LinkedList<>(map.entrySet());
-		list.sort(Comparator.comparingInt(Entry::getValue));
+		// relevance scores are small ints, so a counting sort beats comparisons
+		List<Entry<String, Integer>> list = new ArrayList<>(map.entrySet());
+		new ListSorter<Entry<String, Integer>>().radixSort(list, Entry::getValue);
 
 		return list;
 	}
 
+	/**
+	 * Returns the `k` most relevant results, in the same order as sort().
+	 *
+	 * Only k entries are kept while scanning the results, so this is
+	 * faster than sorting everything when k is small.
+	 *
+	 * @param k
+	 * @return List of entries with URL and relevance.
+	 */
+	public List<Entry<String, Integer>> sort(int k) {
+		return map.entrySet().stream()
+				.collect(TopK.collector(k, Comparator.comparingInt(Entry::getValue)));
+	}
+
 
 	/**
 	 * Performs a search and makes a WikiSearch object.
@@ -128,16 +150,31 @@ public class WikiSearch {
 	 * @return
 	 */
 	public static WikiSearch search(String term, JedisIndex index) {
-		Map<String, Integer> map = index.getCounts(term);
+		Tracer tracer = Tracer.global();
+		try (Tracer.Span span = tracer.start("search")) {
+			long start = System.nanoTime();
+			Map<String, Integer> map;
+			try (Tracer.Span counts = tracer.start("getCounts")) {
+				map = index.getCounts(term);
+			}
 
-		// Adjust ranks
-		int documentCount = index.urlSetKeys().size();
-		for (Entry<String, Integer> entry: map.entrySet()) {
-			int idf = (int) Math.round(Math.log((float) documentCount / (float) map.size()));
-			map.put(entry.getKey(), entry.getValue() * idf);
-		}
+			// Adjust ranks
+			int documentCount;
+			try (Tracer.Span keys = tracer.start("urlSetKeys")) {
+				documentCount = index.urlSetKeys().size();
+			}
+			try (Tracer.Span rank = tracer.start("rank")) {
+				for (Entry<String, Integer> entry: map.entrySet()) {
+					int idf = (int) Math.round(Math.log((float) documentCount / (float) map.size()));
+					map.put(entry.getKey(), entry.getValue() * idf);
+				}
+			}
 
-		return new WikiSearch(map);
+			SEARCH_NANOS.recordSince(start);
+			QUERIES.increment();
+			RESULTS.add(map.size());
+			return new WikiSearch(map);
+		}
 	}
 
 	public static void main(String[] args) throws IOException {
@@ -162,5 +199,8 @@ public class WikiSearch {
 		System.out.println("Query: " + term1 + " AND " + term2);
 		WikiSearch intersection = search1.and(search2);
 		intersection.print();
+
+		System.out.print(MetricsRegistry.global().toText());
+		System.out.print(Tracer.global().summary());
 	}
 }
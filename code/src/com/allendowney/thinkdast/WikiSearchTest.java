@@ -90,4 +90,17 @@ public class WikiSearchTest {
 		assertThat(list.get(1).getValue(), is(5));
 		assertThat(list.get(2).getValue(), is(7));
 	}
+
+	/**
+	 * Test method for {@link WikiSearch#sort(int)}.
+	 */
+	@Test
+	public void testSortTopK() {
+		List<Entry<String, Integer>> list = search2.sort(2);
+		assertThat(list.size(), is(2));
+		assertThat(list.get(0).getValue(), is(5));
+		assertThat(list.get(1).getValue(), is(7));
+
+		assertThat(search2.sort(10).size(), is(3));
+	}
 }